@@ -0,0 +1,104 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator used to compare request execution modes.
+ * Each of the {@code concurrency} clients sends GET requests back to back for the given duration,
+ * then throughput, latency percentiles and errors are printed. With a body template file the requests are
+ * JSON POSTs instead, every {@code {seq}} of the template replaced by a number unique to the request.
+ * Requests turned away with 429 or 503 are counted apart and, like a well-behaved client, the client waits for
+ * the {@code Retry-After} time before its next request; latencies are of the requests served.
+ *
+ * <pre>java loadtest/LoadTest.java http://localhost:8080/api/v1/users?size=20 400 30</pre>
+ * <pre>java loadtest/LoadTest.java http://localhost:8080/api/v1/users/batch 20 30 loadtest/users-batch.json</pre>
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args.length > 0 ? args[0] : "http://localhost:8080/api/v1/users?size=20");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        String bodyTemplate = args.length > 3 ? Files.readString(Path.of(args[3])) : null;
+        AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        HttpRequest get = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            results.add(clients.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                long errors = 0;
+                long rejected = 0;
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = bodyTemplate == null ? get : HttpRequest.newBuilder(uri)
+                            .timeout(Duration.ofSeconds(30))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    bodyTemplate.replace("{seq}", String.valueOf(sequence.incrementAndGet()))))
+                            .build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 429 || response.statusCode() == 503) {
+                            rejected++;
+                            long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                            Thread.sleep(Math.min(retryAfter * 1000, Math.max(0, (deadline - System.nanoTime()) / 1_000_000)));
+                            continue;
+                        }
+                        if (response.statusCode() >= 400) errors++;
+                    } catch (Exception ex) {
+                        errors++;
+                    }
+                    if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                long[] result = Arrays.copyOf(latencies, count + 2);
+                result[count] = errors;
+                result[count + 1] = rejected;
+                return result;
+            }));
+        }
+
+        long[] all = new long[0];
+        long errors = 0;
+        long rejected = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            errors += latencies[latencies.length - 2];
+            rejected += latencies[latencies.length - 1];
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length - 2);
+            System.arraycopy(latencies, 0, all, offset, latencies.length - 2);
+        }
+        clients.shutdown();
+        Arrays.sort(all);
+
+        System.out.printf("uri=%s concurrency=%d duration=%ds%n", uri, concurrency, seconds);
+        System.out.printf("requests=%d errors=%d rejected=%d throughput=%.1f req/s%n", all.length, errors, rejected,
+                all.length / (double) seconds);
+        System.out.printf("latency ms p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
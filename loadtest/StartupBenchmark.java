@@ -0,0 +1,105 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold start benchmark: starts the application command the given number of times and measures the time from
+ * launching the process to the first successful (2xx) response of the URI, polled every 10 ms, which is when a
+ * new instance can take traffic. The startup time Spring Boot logs is printed next to it. Each instance is
+ * stopped before the next run. Run it against a database that is already migrated.
+ *
+ * <pre>java loadtest/StartupBenchmark.java http://localhost:8080/api/v1/users 5 java -jar target/assignment-0.0.1-SNAPSHOT.jar</pre>
+ * <pre>java loadtest/StartupBenchmark.java http://localhost:8080/api/v1/users 5 java -XX:SharedArchiveFile=app.jsa
+ *     -Dspring.profiles.active=prod,startup -cp "assignment.jar:lib/*" com.scalegrid.assignment.AssignmentApplication</pre>
+ */
+public class StartupBenchmark {
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: java loadtest/StartupBenchmark.java <uri> <runs> <command...>");
+            System.exit(1);
+        }
+        URI uri = URI.create(args[0]);
+        int runs = Integer.parseInt(args[1]);
+        List<String> command = Arrays.asList(Arrays.copyOfRange(args, 2, args.length));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest get = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        long[] firstResponses = new long[runs];
+        double[] started = new double[runs];
+
+        for (int run = 0; run < runs; run++) {
+            AtomicReference<Double> startedSeconds = new AtomicReference<>(Double.NaN);
+            CountDownLatch startedLogged = new CountDownLatch(1);
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            Thread output = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Matcher matcher = STARTED.matcher(line);
+                        if (matcher.find()) {
+                            startedSeconds.set(Double.parseDouble(matcher.group(1)));
+                            startedLogged.countDown();
+                        }
+                    }
+                } catch (Exception ignored) {
+                    // the process was stopped
+                }
+            });
+            output.setDaemon(true);
+            output.start();
+
+            long deadline = start + TimeUnit.MINUTES.toNanos(2);
+            long firstResponse = -1;
+            while (firstResponse < 0 && System.nanoTime() < deadline && process.isAlive()) {
+                try {
+                    HttpResponse<Void> response = client.send(get, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() / 100 == 2) {
+                        firstResponse = System.nanoTime() - start;
+                        break;
+                    }
+                } catch (Exception ex) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            // requests can be served before the startup time is logged
+            startedLogged.await(30, TimeUnit.SECONDS);
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            output.join(1000);
+            if (firstResponse < 0) {
+                System.err.printf("run %d: no successful response, exit code %d%n", run + 1, process.exitValue());
+                System.exit(1);
+            }
+            firstResponses[run] = firstResponse;
+            started[run] = startedSeconds.get();
+            System.out.printf("run %d: first response %.0f ms, started in %.2f s%n", run + 1,
+                    firstResponse / 1_000_000.0, started[run]);
+        }
+
+        Arrays.sort(firstResponses);
+        Arrays.sort(started);
+        System.out.printf("command=%s runs=%d%n", String.join(" ", command), runs);
+        System.out.printf("first response ms median=%.0f min=%.0f max=%.0f, started in median=%.2f s%n",
+                firstResponses[runs / 2] / 1_000_000.0, firstResponses[0] / 1_000_000.0,
+                firstResponses[runs - 1] / 1_000_000.0, started[runs / 2]);
+    }
+}
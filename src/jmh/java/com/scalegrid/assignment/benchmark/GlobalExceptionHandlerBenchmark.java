@@ -0,0 +1,84 @@
+package com.scalegrid.assignment.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalegrid.assignment.exception.ErrorResponse;
+import com.scalegrid.assignment.exception.GlobalExceptionHandler;
+import com.scalegrid.assignment.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the not found error path, from the exception thrown below the controller to the bytes of the 404
+ * body: the current path against the former one, which captured a stack trace, built the log line and
+ * serialized a new {@link ErrorResponse}. Logging is off for both, the GC profiler compares their
+ * allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GlobalExceptionHandlerBenchmark {
+    private static final String MESSAGE = "User not found with email: x@y.z";
+
+    /**
+     * Frames between the throw and the handler, a Spring MVC request has about a hundred
+     */
+    @Param({"10", "100"})
+    private int stackDepth;
+
+    private GlobalExceptionHandler handler;
+    private ObjectMapper objectMapper;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(GlobalExceptionHandler.class)).setLevel(Level.OFF);
+        handler = new GlobalExceptionHandler(new SimpleMeterRegistry());
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        request = new MockHttpServletRequest("GET", "/api/v1/users/x@y.z");
+        request.addHeader("Accept", "application/json");
+    }
+
+    @Benchmark
+    public Object missPath() {
+        try {
+            throwAt(stackDepth, () -> new ResourceNotFoundException(MESSAGE));
+        } catch (ResourceNotFoundException ex) {
+            return handler.handleEntityNotFoundException(ex, request).getBody();
+        }
+        throw new IllegalStateException();
+    }
+
+    @Benchmark
+    public byte[] formerMissPath(Blackhole blackhole) throws Exception {
+        try {
+            throwAt(stackDepth, () -> new RuntimeException(MESSAGE));
+        } catch (RuntimeException ex) {
+            blackhole.consume(new StringBuilder().append(ex).toString());
+            ErrorResponse errorResponse = new ErrorResponse.
+                    Builder()
+                    .withMessage(ex.getMessage())
+                    .withHttpStatus(HttpStatus.NOT_FOUND)
+                    .withCreatedAt()
+                    .build();
+            return objectMapper.writeValueAsBytes(errorResponse);
+        }
+        throw new IllegalStateException();
+    }
+
+    private static void throwAt(int depth, Supplier<RuntimeException> exception) {
+        if (depth == 0) {
+            throw exception.get();
+        }
+        throwAt(depth - 1, exception);
+    }
+}
@@ -0,0 +1,54 @@
+package com.scalegrid.assignment.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalegrid.assignment.exception.ErrorResponse;
+import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.dto.UserDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson serialization of the response bodies, configured the way Spring Boot configures
+ * the {@link ObjectMapper} of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+    private ObjectMapper objectMapper;
+    private User user;
+    private UserDto userDto;
+    private ErrorResponse errorResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        user = new User("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+        user.setId(1L);
+        userDto = new UserDto("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+        errorResponse = new ErrorResponse.Builder()
+                .withMessage("User not found with email: x@y.z")
+                .withHttpStatus(HttpStatus.NOT_FOUND)
+                .withCreatedAt()
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeUserDto() throws Exception {
+        return objectMapper.writeValueAsBytes(userDto);
+    }
+
+    @Benchmark
+    public byte[] serializeErrorResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(errorResponse);
+    }
+}
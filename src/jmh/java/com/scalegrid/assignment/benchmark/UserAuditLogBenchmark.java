@@ -0,0 +1,77 @@
+package com.scalegrid.assignment.benchmark;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.audit.UserAuditLog;
+import com.scalegrid.assignment.user.audit.UserAuditRecord;
+import com.scalegrid.assignment.user.repository.UserAuditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what recording a user write in the audit log costs the request thread, while a writer thread
+ * drains the buffer into a repository that discards the records. Run with {@code -t} above 1 to measure
+ * contended appends; drops show up as {@code users.audit.records} and are printed on teardown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserAuditLogBenchmark {
+    private static final UserAuditRecord.Values PREVIOUS = new UserAuditRecord.Values("Maruf",
+            "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10), 0L);
+    private static final UserAuditRecord.Values MODIFIED = new UserAuditRecord.Values("Rahman",
+            "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10), 1L);
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserAuditLog auditLog;
+    private Thread writer;
+    private volatile boolean running;
+
+    @Setup
+    public void setUp() {
+        UserAuditRepository discarding = (UserAuditRepository) Proxy.newProxyInstance(
+                UserAuditRepository.class.getClassLoader(), new Class<?>[]{UserAuditRepository.class},
+                (proxy, method, args) -> null);
+        meterRegistry = new SimpleMeterRegistry();
+        auditLog = new UserAuditLog(discarding, new UserProperties(), meterRegistry);
+        running = true;
+        writer = new Thread(() -> {
+            while (running) {
+                auditLog.run();
+                Thread.yield();
+            }
+        }, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        writer.join();
+        System.out.println("\nwritten " + meterRegistry.get("users.audit.records").tag("outcome", "written")
+                .counter().count() + ", dropped " + meterRegistry.get("users.audit.records")
+                .tag("outcome", "dropped").counter().count());
+    }
+
+    @State(Scope.Thread)
+    public static class Request {
+        @Setup
+        public void setUp() {
+            MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/v1/users/1");
+            request.addHeader("X-API-Key", "benchmark");
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        }
+    }
+
+    @Benchmark
+    public void recordModification(Request request) {
+        auditLog.modified(1L, PREVIOUS, MODIFIED);
+    }
+}
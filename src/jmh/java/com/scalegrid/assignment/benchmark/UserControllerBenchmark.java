@@ -0,0 +1,84 @@
+package com.scalegrid.assignment.benchmark;
+
+import com.scalegrid.assignment.AssignmentApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Measures the full {@code UserController} call path (dispatch, service, repository, Jackson) of the
+ * application running over an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserControllerBenchmark {
+    private static final String BASE_URL = "/api/v1/users";
+    private static final int USERS = 1000;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(AssignmentApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.flyway.enabled=false")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        for (int i = 0; i < USERS; i++) {
+            createUser();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getUserWithEmail() throws Exception {
+        return mockMvc.perform(get(BASE_URL.concat("/user1@benchmark.com")).accept(APPLICATION_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getUsers() throws Exception {
+        return mockMvc.perform(get(BASE_URL.concat("?page=10&size=20")).accept(APPLICATION_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getUsersAfter() throws Exception {
+        return mockMvc.perform(get(BASE_URL.concat("/cursor?size=20")).accept(APPLICATION_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult createUser() throws Exception {
+        long id = sequence.incrementAndGet();
+        return mockMvc.perform(post(BASE_URL)
+                        .content("{\"name\":\"User " + id + "\", \"email\":\"user" + id
+                                + "@benchmark.com\", \"dateOfBirth\":\"1994-02-10\"}")
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andReturn();
+    }
+}
@@ -0,0 +1,72 @@
+package com.scalegrid.assignment.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.scalegrid.assignment.user.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the media types of user list responses: serialization time per page, with and without the gzip
+ * compression the server applies, and the bytes on the wire, printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserListSerializationBenchmark {
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"20", "200", "2000"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private List<User> users;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder;
+        switch (format) {
+            case "smile":
+                builder = Jackson2ObjectMapperBuilder.smile();
+                break;
+            case "cbor":
+                builder = Jackson2ObjectMapperBuilder.cbor();
+                break;
+            default:
+                builder = Jackson2ObjectMapperBuilder.json();
+        }
+        // dates as ISO strings, as Spring Boot configures the application mappers
+        objectMapper = builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        users = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            User user = new User("User " + i, "user" + i + "@benchmark.com", LocalDate.of(1994, 2, 10).plusDays(i));
+            user.setId(1_000_000L + i);
+            users.add(user);
+        }
+        System.out.printf("%n%s, %d users: %d bytes, %d bytes gzipped%n", format, pageSize,
+                serialize().length, serializeGzipped().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] serializeGzipped() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, users);
+        }
+        return bytes.toByteArray();
+    }
+}
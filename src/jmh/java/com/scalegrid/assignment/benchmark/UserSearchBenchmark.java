@@ -0,0 +1,90 @@
+package com.scalegrid.assignment.benchmark;
+
+import com.scalegrid.assignment.AssignmentApplication;
+import com.scalegrid.assignment.user.model.dto.UserSearchCriteria;
+import com.scalegrid.assignment.user.model.dto.UserSearchPage;
+import com.scalegrid.assignment.user.service.IUserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code IUserService.searchUsers} per filter over a PostgreSQL users table holding the given number
+ * of extra rows with varied names. Needs the database of {@code application.properties}, or one given with
+ * {@code -Dspring.datasource.url}; the rows are inserted before and deleted after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserSearchBenchmark {
+    private static final long BASE_ID = 3_000_000_000L;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000000", "10000000"})
+    private long rows;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private IUserService userService;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(AssignmentApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0")
+                .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        userService = context.getBean(IUserService.class);
+        deleteRows();
+        jdbcTemplate.update("insert into users (id, name, email, birth_date) " +
+                "select ? + g, (array['Maruf', 'Rahman', 'Karim', 'Nadia', 'Farhan', 'Sadia', 'Tanvir', 'Nusrat', " +
+                "'Imran', 'Ayesha'])[1 + g % 10] || ' ' || initcap(substr(md5(g::text), 1, 8)), " +
+                "'search' || g || '@benchmark.com', date '1950-01-01' + (g % 20000)::int " +
+                "from generate_series(1, ?) g", BASE_ID, rows);
+        jdbcTemplate.execute("analyze users");
+    }
+
+    @TearDown
+    public void tearDown() {
+        deleteRows();
+        context.close();
+    }
+
+    @Benchmark
+    public UserSearchPage namePrefix() {
+        return search(new UserSearchCriteria("maruf a1", null, null, null, null));
+    }
+
+    @Benchmark
+    public UserSearchPage nameContains() {
+        return search(new UserSearchCriteria(null, "a1b2", null, null, null));
+    }
+
+    @Benchmark
+    public UserSearchPage emailPrefix() {
+        return search(new UserSearchCriteria(null, null, "search4242", null, null));
+    }
+
+    @Benchmark
+    public UserSearchPage birthDateRange() {
+        return search(new UserSearchCriteria(null, null, null, LocalDate.of(1960, 1, 1), LocalDate.of(1960, 1, 31)));
+    }
+
+    @Benchmark
+    public UserSearchPage nameAndBirthDate() {
+        return search(new UserSearchCriteria("nadia", null, null, LocalDate.of(1960, 1, 1), LocalDate.of(1960, 1, 31)));
+    }
+
+    private UserSearchPage search(UserSearchCriteria criteria) {
+        return userService.searchUsers(criteria, 0, PAGE_SIZE);
+    }
+
+    private void deleteRows() {
+        jdbcTemplate.update("delete from users where id > ?", BASE_ID);
+    }
+}
@@ -0,0 +1,131 @@
+package com.scalegrid.assignment.benchmark;
+
+import com.scalegrid.assignment.AssignmentApplication;
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.cache.UserCache;
+import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.dto.UserDto;
+import com.scalegrid.assignment.user.outbox.UserChangeFeed;
+import com.scalegrid.assignment.user.repository.UserRepository;
+import com.scalegrid.assignment.user.repository.UserWriteResult;
+import com.scalegrid.assignment.user.service.IUserService;
+import com.scalegrid.assignment.user.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link UserService#convertDtoToEntity(UserDto)}, which runs on every create and batch item, and
+ * the single statement modify and upsert of a user against the find-then-save round trips they replaced.
+ * The database benchmarks need the database of {@code application.properties}, or one given with
+ * {@code -Dspring.datasource.url}; their user is inserted before and deleted after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserServiceBenchmark {
+    private UserService userService;
+    private UserDto userDto;
+
+    @Setup
+    public void setUp() {
+        UserProperties userProperties = new UserProperties();
+        userService = new UserService(null, null, userProperties, new UserCache(userProperties), null, null, null,
+                new UserChangeFeed(), null, null);
+        userDto = new UserDto("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+    }
+
+    @Benchmark
+    public User convertDtoToEntity() {
+        return userService.convertDtoToEntity(userDto);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public User modifyUser(Database database) {
+        return database.userService.modifyUser(database.nextUser(), Database.ID, null);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public User modifyUserFindThenSave(Database database) {
+        UserDto next = database.nextUser();
+        return database.transactionTemplate.execute(status -> {
+            User user = database.userRepository.findById(Database.ID).orElseThrow();
+            user.setName(next.getName());
+            user.setEmail(next.getEmail());
+            user.setBirthDate(next.getDateOfBirth());
+            return database.userRepository.save(user);
+        });
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public UserWriteResult upsertUser(Database database) {
+        return database.userService.upsertUser(database.nextUser());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public User upsertUserFindThenSave(Database database) {
+        UserDto next = database.nextUser();
+        return database.transactionTemplate.execute(status -> {
+            User user = database.userRepository.findByEmail(next.getEmail())
+                    .orElseGet(() -> new User(null, next.getEmail(), null));
+            user.setName(next.getName());
+            user.setBirthDate(next.getDateOfBirth());
+            return database.userRepository.save(user);
+        });
+    }
+
+    /**
+     * Application context and the user rewritten by the database benchmarks, each call with another name so
+     * every write changes the row
+     */
+    @State(Scope.Benchmark)
+    public static class Database {
+        private static final long ID = 3_100_000_000L;
+        private static final String EMAIL = "write@benchmark.com";
+        private ConfigurableApplicationContext context;
+        private JdbcTemplate jdbcTemplate;
+        private IUserService userService;
+        private UserRepository userRepository;
+        private TransactionTemplate transactionTemplate;
+        private long sequence;
+
+        @Setup
+        public void setUp() {
+            context = new SpringApplicationBuilder(AssignmentApplication.class)
+                    .web(WebApplicationType.SERVLET)
+                    .properties("server.port=0")
+                    .run();
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+            userService = context.getBean(IUserService.class);
+            userRepository = context.getBean(UserRepository.class);
+            transactionTemplate = context.getBean(TransactionTemplate.class);
+            deleteUser();
+            jdbcTemplate.update("insert into users (id, name, email, birth_date) " +
+                    "values (?, 'Maruf', ?, date '1994-02-10')", ID, EMAIL);
+        }
+
+        @TearDown
+        public void tearDown() {
+            deleteUser();
+            context.close();
+        }
+
+        private UserDto nextUser() {
+            return new UserDto("Maruf " + sequence++, EMAIL, LocalDate.of(1994, 2, 10));
+        }
+
+        private void deleteUser() {
+            jdbcTemplate.update("delete from users where id = ? or email = ?", ID, EMAIL);
+        }
+    }
+}
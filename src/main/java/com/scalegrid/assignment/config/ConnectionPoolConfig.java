@@ -0,0 +1,39 @@
+package com.scalegrid.assignment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * <p>ConnectionPoolConfig class sizes the Hikari pools of the context from the core count when
+ * {@code app.datasource.pool.connections-per-core} is set, see {@link ConnectionPoolProperties}.</p>
+ */
+@Configuration
+public class ConnectionPoolConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolConfig.class);
+
+    @Bean
+    public static BeanPostProcessor connectionPoolSizingPostProcessor(
+            ObjectProvider<ConnectionPoolProperties> connectionPoolProperties) {
+        return new BeanPostProcessor() {
+            // before initialization: after spring.datasource.hikari.* is bound, before the pool is wrapped
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof HikariDataSource)) {
+                    return bean;
+                }
+                int poolSize = connectionPoolProperties.getObject().poolSize();
+                if (poolSize > 0) {
+                    LOGGER.info("Sizing connection pool {} to {} connections from the core count", beanName, poolSize);
+                    ((HikariDataSource) bean).setMaximumPoolSize(poolSize);
+                }
+                return bean;
+            }
+        };
+    }
+}
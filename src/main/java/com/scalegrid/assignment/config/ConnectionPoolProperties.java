@@ -0,0 +1,64 @@
+package com.scalegrid.assignment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * <p>ConnectionPoolProperties class holds the connection pool sizing settings, bound from
+ * {@code app.datasource.pool.*}. When {@code connections-per-core} is set the primary pool gets
+ * {@code cores * connections-per-core + extra-connections} connections, overriding
+ * {@code spring.datasource.hikari.maximum-pool-size}.</p>
+ */
+@ConfigurationProperties(prefix = "app.datasource.pool")
+public class ConnectionPoolProperties {
+    /**
+     * Connections per core of the database host, 0 keeps the configured pool size
+     */
+    private int connectionsPerCore = 0;
+
+    /**
+     * Connections added to the per core ones, for the time spent waiting on disk and network
+     */
+    private int extraConnections = 1;
+
+    /**
+     * Cores of the database host, 0 means the cores available to this JVM
+     */
+    private int cores = 0;
+
+    public int getConnectionsPerCore() {
+        return connectionsPerCore;
+    }
+
+    public void setConnectionsPerCore(int connectionsPerCore) {
+        this.connectionsPerCore = connectionsPerCore;
+    }
+
+    public int getExtraConnections() {
+        return extraConnections;
+    }
+
+    public void setExtraConnections(int extraConnections) {
+        this.extraConnections = extraConnections;
+    }
+
+    public int getCores() {
+        return cores;
+    }
+
+    public void setCores(int cores) {
+        this.cores = cores;
+    }
+
+    /**
+     * This method returns the pool size derived from the core count, 0 when sizing by core count is off.
+     *
+     * @return number of connections
+     */
+    public int poolSize() {
+        if (connectionsPerCore <= 0) {
+            return 0;
+        }
+        int coreCount = cores > 0 ? cores : Runtime.getRuntime().availableProcessors();
+        return coreCount * connectionsPerCore + Math.max(extraConnections, 0);
+    }
+}
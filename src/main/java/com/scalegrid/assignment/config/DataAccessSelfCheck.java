@@ -0,0 +1,122 @@
+package com.scalegrid.assignment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>DataAccessSelfCheck class logs the effective connection pool, driver and Hibernate batching settings once
+ * the application is ready, and warns about the ones that cost throughput under load: open-in-view, and a pool
+ * the database has no room for.</p>
+ */
+@Component
+public class DataAccessSelfCheck {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataAccessSelfCheck.class);
+    private static final String[] DRIVER_PROPERTIES = {"reWriteBatchedInserts", "prepareThreshold",
+            "preparedStatementCacheQueries", "preparedStatementCacheSizeMiB"};
+    private final List<DataSource> dataSources;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Environment environment;
+
+    /**
+     * Constructs a new {@link DataAccessSelfCheck} instance
+     *
+     * @param dataSources          {@link DataSource} beans
+     * @param entityManagerFactory {@link EntityManagerFactory}
+     * @param environment          {@link Environment}
+     */
+    public DataAccessSelfCheck(List<DataSource> dataSources, EntityManagerFactory entityManagerFactory,
+                               Environment environment) {
+        this.dataSources = dataSources;
+        this.entityManagerFactory = entityManagerFactory;
+        this.environment = environment;
+    }
+
+    /**
+     * This method logs the effective settings and warns about the costly ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() {
+        Map<String, Object> jpaProperties = entityManagerFactory.getProperties();
+        boolean openInView = environment.getProperty("spring.jpa.open-in-view", Boolean.class, true);
+        LOGGER.info("Hibernate jdbc batch size {}, order inserts {}, order updates {}, open-in-view {}",
+                jpaProperties.getOrDefault("hibernate.jdbc.batch_size", "off"),
+                jpaProperties.getOrDefault("hibernate.order_inserts", false),
+                jpaProperties.getOrDefault("hibernate.order_updates", false), openInView);
+        if (openInView) {
+            LOGGER.warn("spring.jpa.open-in-view is on, every request holds a database connection until its "
+                    .concat("response is written"));
+        }
+        for (HikariDataSource pool : pools()) {
+            check(pool);
+        }
+    }
+
+    private void check(HikariDataSource pool) {
+        StringBuilder driverProperties = new StringBuilder();
+        for (String name : DRIVER_PROPERTIES) {
+            driverProperties.append(' ').append(name).append('=').append(driverProperty(pool, name));
+        }
+        LOGGER.info("Connection pool {}: maximum size {}, minimum idle {}, connection timeout {} ms, driver{}",
+                pool.getPoolName(), pool.getMaximumPoolSize(), pool.getMinimumIdle(), pool.getConnectionTimeout(),
+                driverProperties);
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select current_setting('max_connections')::int "
+                     + "- current_setting('superuser_reserved_connections')::int")) {
+            resultSet.next();
+            int available = resultSet.getInt(1);
+            if (pool.getMaximumPoolSize() > available) {
+                LOGGER.warn("Connection pool {} may open {} connections, the database accepts {}",
+                        pool.getPoolName(), pool.getMaximumPoolSize(), available);
+            }
+        } catch (SQLException ex) {
+            LOGGER.warn("Could not read the connection limit of the database for pool {}", pool.getPoolName(), ex);
+        }
+    }
+
+    private List<HikariDataSource> pools() {
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (DataSource dataSource : dataSources) {
+            try {
+                if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                    HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+                    if (pools.stream().noneMatch(known -> known == pool)) {
+                        pools.add(pool);
+                    }
+                }
+            } catch (SQLException ex) {
+                LOGGER.debug("Data source {} is not a Hikari pool", dataSource, ex);
+            }
+        }
+        return pools;
+    }
+
+    private static String driverProperty(HikariDataSource pool, String name) {
+        Object value = pool.getDataSourceProperties().get(name);
+        if (value != null) {
+            return value.toString();
+        }
+        String url = pool.getJdbcUrl();
+        int start = url == null ? -1 : url.indexOf(name.concat("="));
+        if (start < 0) {
+            return "default";
+        }
+        int end = url.indexOf('&', start);
+        return url.substring(start + name.length() + 1, end < 0 ? url.length() : end);
+    }
+}
@@ -0,0 +1,106 @@
+package com.scalegrid.assignment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>ReadReplicaProperties class holds the read replica settings, bound from {@code app.datasource.read-replica.*}.
+ * Routing is enabled by setting at least one replica URL.</p>
+ */
+@ConfigurationProperties(prefix = "app.datasource.read-replica")
+public class ReadReplicaProperties {
+    /**
+     * JDBC URLs of the replicas read-only transactions are sent to
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * Replica user name, the primary's when not set
+     */
+    private String username;
+
+    /**
+     * Replica password, the primary's when not set
+     */
+    private String password;
+
+    /**
+     * Maximum number of connections of each replica pool
+     */
+    private int maxPoolSize = 10;
+
+    /**
+     * How a replica is picked for each read-only transaction
+     */
+    private Selection selection = Selection.ROUND_ROBIN;
+
+    /**
+     * Time a client that wrote is served by the primary only, so it reads its own writes despite replica lag
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public void setUrls(List<String> urls) {
+        this.urls = urls;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    public void setSelection(Selection selection) {
+        this.selection = selection;
+    }
+
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    /**
+     * Replica selection strategies
+     */
+    public enum Selection {
+        /**
+         * Replicas in turn
+         */
+        ROUND_ROBIN,
+        /**
+         * The replica with the fewest connections in use
+         */
+        LEAST_CONNECTIONS
+    }
+}
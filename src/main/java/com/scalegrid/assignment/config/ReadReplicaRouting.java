@@ -0,0 +1,74 @@
+package com.scalegrid.assignment.config;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>ReadReplicaRouting class holds, per thread, whether database access must go to the primary even inside
+ * read-only transactions. {@link ReplicaRoutingDataSource} reads it when a connection is first used.</p>
+ */
+public final class ReadReplicaRouting {
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadReplicaRouting() {
+    }
+
+    /**
+     * This method runs the action with database access pinned to the primary. Transactions must start
+     * inside the action for it to apply.
+     *
+     * @param action {@link Supplier}
+     * @param <T>    result type
+     * @return the action result
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * This method tells whether database access of the current thread is pinned to the primary.
+     *
+     * @return true when pinned
+     */
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    /**
+     * This method wraps the task so it runs with the database access pinning of the thread submitting it. It is
+     * the task decorator of the application task executor, so streamed response bodies keep the pin of their
+     * request.
+     *
+     * @param task {@link Runnable}
+     * @return {@link Runnable} task running with the pinning of the caller
+     */
+    public static Runnable propagate(Runnable task) {
+        Boolean submitter = PRIMARY_REQUIRED.get();
+        return () -> {
+            Boolean previous = PRIMARY_REQUIRED.get();
+            restore(submitter);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    static void setPrimaryRequired(boolean primaryRequired) {
+        restore(primaryRequired ? Boolean.TRUE : null);
+    }
+
+    private static void restore(Boolean value) {
+        if (value == null) {
+            PRIMARY_REQUIRED.remove();
+        } else {
+            PRIMARY_REQUIRED.set(value);
+        }
+    }
+}
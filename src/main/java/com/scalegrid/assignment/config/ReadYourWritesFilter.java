@@ -0,0 +1,141 @@
+package com.scalegrid.assignment.config;
+
+import com.scalegrid.assignment.user.throttle.EndpointClass;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * <p>ReadYourWritesFilter class pins a client to the primary for a while after it writes, so its reads do not
+ * hit a replica that has not replayed the write yet. A successful write request (below 400) sets a cookie holding
+ * the end of the window; requests bearing an unexpired one run with {@link ReadReplicaRouting} pinned to the
+ * primary. The state lives in the client, so it holds whichever instance serves the next request.</p>
+ *
+ * <p>Requests are told apart like {@link EndpointClass#of(String, String)} does, so reads sent as POST, like
+ * the lookup, are reads. The pin follows the request onto the application task executor, which runs streamed
+ * bodies, through the {@link ReadReplicaRouting#propagate(Runnable) task decorator}; other threads do not
+ * see it.</p>
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE_NAME = "read-primary-until";
+    private final Duration window;
+    private final Clock clock;
+
+    /**
+     * Constructs a new {@link ReadYourWritesFilter} instance
+     *
+     * @param window {@link Duration} time a writing client reads from the primary
+     * @param clock  {@link Clock}
+     */
+    public ReadYourWritesFilter(Duration window, Clock clock) {
+        this.window = window;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = clock.millis();
+        boolean write = isWrite(request);
+        PinningResponse pinningResponse = write ? new PinningResponse(response, now + window.toMillis()) : null;
+        ReadReplicaRouting.setPrimaryRequired(write || pinned(request, now));
+        try {
+            filterChain.doFilter(request, write ? pinningResponse : response);
+        } finally {
+            ReadReplicaRouting.setPrimaryRequired(false);
+        }
+        // a response without a body is only committed after the chain
+        if (write && !request.isAsyncStarted() && !response.isCommitted()) {
+            pinningResponse.pinIfSucceeded();
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return EndpointClass.of(request.getMethod(), path) == EndpointClass.WRITE;
+    }
+
+    private static boolean pinned(HttpServletRequest request, long now) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return now < Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Adds the cookie once the status of the write is known, which is when the body is first written or
+     * flushed, as the cookie must be set before the response commits.
+     */
+    private final class PinningResponse extends HttpServletResponseWrapper {
+        private final long until;
+        private boolean decided;
+
+        private PinningResponse(HttpServletResponse response, long until) {
+            super(response);
+            this.until = until;
+        }
+
+        private void pinIfSucceeded() {
+            if (decided) return;
+            decided = true;
+            if (getStatus() < SC_BAD_REQUEST) {
+                addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE_NAME, String.valueOf(until))
+                        .maxAge(window).path("/").httpOnly(true).build().toString());
+            }
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            decided = true;
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            decided = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            pinIfSucceeded();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            pinIfSucceeded();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            pinIfSucceeded();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            pinIfSucceeded();
+            super.flushBuffer();
+        }
+    }
+}
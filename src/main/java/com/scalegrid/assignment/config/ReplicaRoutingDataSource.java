@@ -0,0 +1,132 @@
+package com.scalegrid.assignment.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>ReplicaRoutingDataSource class hands out replica connections to read-only transactions and primary
+ * connections to everything else, including threads pinned by {@link ReadReplicaRouting}.</p>
+ *
+ * <p>The read-only flag is only known once the transaction started, so this data source must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which asks for the connection
+ * on its first statement. A replica failing to give a connection is skipped for the primary.</p>
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final List<AtomicInteger> replicaConnectionsInUse = new ArrayList<>();
+    private final ReadReplicaProperties.Selection selection;
+    private final AtomicLong turn = new AtomicLong();
+
+    /**
+     * Constructs a new {@link ReplicaRoutingDataSource} instance
+     *
+     * @param primary   {@link DataSource} of the primary
+     * @param replicas  {@link List<DataSource>} of the replicas, closed with this data source
+     * @param selection {@link ReadReplicaProperties.Selection}
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    ReadReplicaProperties.Selection selection) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaConnectionsInUse.add(new AtomicInteger());
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routesToReplica()) {
+            return primary.getConnection();
+        }
+        int replica = selectReplica();
+        try {
+            return tracked(replicas.get(replica).getConnection(), replicaConnectionsInUse.get(replica));
+        } catch (SQLException ex) {
+            LOGGER.warn("Replica {} gave no connection, reading from the primary: {}", replica, ex.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * This method returns the number of connections of the replica in use.
+     *
+     * @param replica index of the replica in the configured order
+     * @return connections in use
+     */
+    public int getConnectionsInUse(int replica) {
+        return replicaConnectionsInUse.get(replica).get();
+    }
+
+    /**
+     * This method closes the replica data sources. The primary belongs to its own bean.
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable) {
+                ((Closeable) replica).close();
+            }
+        }
+    }
+
+    private boolean routesToReplica() {
+        return !replicas.isEmpty()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !ReadReplicaRouting.isPrimaryRequired();
+    }
+
+    private int selectReplica() {
+        if (selection == ReadReplicaProperties.Selection.LEAST_CONNECTIONS) {
+            // ties go round-robin, so idle replicas share the load
+            int start = (int) (turn.getAndIncrement() % replicas.size());
+            int selected = start;
+            for (int i = 1; i < replicas.size(); i++) {
+                int candidate = (start + i) % replicas.size();
+                if (replicaConnectionsInUse.get(candidate).get() < replicaConnectionsInUse.get(selected).get()) {
+                    selected = candidate;
+                }
+            }
+            return selected;
+        }
+        return (int) (turn.getAndIncrement() % replicas.size());
+    }
+
+    private static Connection tracked(Connection connection, AtomicInteger inUse) {
+        inUse.incrementAndGet();
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        inUse.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,15 @@
+package com.scalegrid.assignment.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * <p>SchedulingConfig class runs the background tasks, like the user outbox relay, unless
+ * {@code app.scheduling.enabled} is false.</p>
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "app.scheduling", name = "enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,27 @@
+package com.scalegrid.assignment.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * <p>StartupConfig class keeps the beans that must be ready before the first request eager when
+ * {@code spring.main.lazy-initialization} is on, as in the startup profile. Schema migrations run and
+ * Hibernate boots during startup, so an instance never takes traffic on an old schema and its first request
+ * does not wait for them; background tasks start with the application. Everything else, controllers,
+ * services and repositories included, is created when first used.</p>
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(Flyway.class, FlywayMigrationInitializer.class,
+                EntityManagerFactory.class, SchedulingConfigurer.class);
+    }
+}
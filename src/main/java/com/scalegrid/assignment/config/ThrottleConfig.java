@@ -0,0 +1,36 @@
+package com.scalegrid.assignment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalegrid.assignment.user.throttle.LoadShedder;
+import com.scalegrid.assignment.user.throttle.ThrottleFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * <p>ThrottleConfig class puts the per client rate limits and load shedding in front of the user endpoints
+ * unless {@code app.user.throttle.enabled} is false. The filter runs first, so a rejected request costs
+ * nothing else.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.user.throttle", name = "enabled", matchIfMissing = true)
+public class ThrottleConfig {
+
+    @Bean
+    public LoadShedder loadShedder(UserProperties userProperties, MeterRegistry meterRegistry) {
+        return new LoadShedder(userProperties, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ThrottleFilter> throttleFilter(UserProperties userProperties, LoadShedder loadShedder,
+                                                                 ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<ThrottleFilter> registration = new FilterRegistrationBean<>(
+                new ThrottleFilter(userProperties, loadShedder, objectMapper, meterRegistry));
+        registration.addUrlPatterns("/api/v1/users", "/api/v1/users/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,35 @@
+package com.scalegrid.assignment.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>TrainingRun class stops the application as soon as it is ready when {@code app.startup.training-run} is
+ * set. The Docker build starts the application this way once, without a database, to record the classes it
+ * loads into a class data sharing archive that later starts read from instead of loading and verifying
+ * them again.</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.startup", name = "training-run", havingValue = "true")
+public class TrainingRun {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrainingRun.class);
+
+    /**
+     * This method closes the context and exits, before the other listeners of the event reach the database.
+     *
+     * @param event {@link ApplicationReadyEvent}
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void exit(ApplicationReadyEvent event) {
+        LOGGER.info("Training run complete, exiting");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,709 @@
+package com.scalegrid.assignment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>UserProperties class holds the tunables of the user module, bound from {@code app.user.*}.</p>
+ */
+@ConfigurationProperties(prefix = "app.user")
+public class UserProperties {
+    private final Batch batch = new Batch();
+    private final Cache cache = new Cache();
+    private final Import importSettings = new Import();
+    private final Search search = new Search();
+    private final Lookup lookup = new Lookup();
+    private final Outbox outbox = new Outbox();
+    private final Streaming streaming = new Streaming();
+    private final Count count = new Count();
+    private final Throttle throttle = new Throttle();
+    private final Audit audit = new Audit();
+    private final Idempotency idempotency = new Idempotency();
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Import getImport() {
+        return importSettings;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Lookup getLookup() {
+        return lookup;
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public Count getCount() {
+        return count;
+    }
+
+    public Throttle getThrottle() {
+        return throttle;
+    }
+
+    public Audit getAudit() {
+        return audit;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    /**
+     * Settings of the bulk create endpoint
+     */
+    public static class Batch {
+        /**
+         * Number of users written per JDBC batch and transaction
+         */
+        private int size = 100;
+
+        /**
+         * Maximum number of users accepted by one bulk request
+         */
+        private int maxItems = 10000;
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getMaxItems() {
+            return maxItems;
+        }
+
+        public void setMaxItems(int maxItems) {
+            this.maxItems = maxItems;
+        }
+    }
+
+    /**
+     * Settings of the user by email cache
+     */
+    public static class Cache {
+        /**
+         * Maximum number of cached emails, found or not
+         */
+        private long maxSize = 10000;
+
+        /**
+         * Time a found user stays cached
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * Time a miss stays cached
+         */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+        /**
+         * Time after an email is invalidated during which its loads read the primary, so a lagging read
+         * replica's answer is not cached for a whole TTL
+         */
+        private Duration primaryLoadWindow = Duration.ofSeconds(5);
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getNegativeTtl() {
+            return negativeTtl;
+        }
+
+        public void setNegativeTtl(Duration negativeTtl) {
+            this.negativeTtl = negativeTtl;
+        }
+
+        public Duration getPrimaryLoadWindow() {
+            return primaryLoadWindow;
+        }
+
+        public void setPrimaryLoadWindow(Duration primaryLoadWindow) {
+            this.primaryLoadWindow = primaryLoadWindow;
+        }
+    }
+
+    /**
+     * Settings of the streaming import endpoint
+     */
+    public static class Import {
+        /**
+         * Number of rows staged and merged per statement and transaction
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Maximum number of rejected rows listed in the import result, all of them are counted
+         */
+        private int maxErrors = 100;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getMaxErrors() {
+            return maxErrors;
+        }
+
+        public void setMaxErrors(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+    }
+
+    /**
+     * Settings of the search endpoint
+     */
+    public static class Search {
+        /**
+         * Maximum number of users per search page
+         */
+        private int maxPageSize = 100;
+
+        /**
+         * Maximum number of users reachable by paging through one search, narrower filters are needed past it
+         */
+        private int maxResults = 1000;
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public int getMaxResults() {
+            return maxResults;
+        }
+
+        public void setMaxResults(int maxResults) {
+            this.maxResults = maxResults;
+        }
+    }
+
+    /**
+     * Settings of the batch lookup endpoint
+     */
+    public static class Lookup {
+        /**
+         * Number of emails plus ids resolved per query
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Maximum number of emails plus ids accepted by one lookup request
+         */
+        private int maxItems = 10000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getMaxItems() {
+            return maxItems;
+        }
+
+        public void setMaxItems(int maxItems) {
+            this.maxItems = maxItems;
+        }
+    }
+
+    /**
+     * Settings of the streamed user list endpoint
+     */
+    public static class Streaming {
+        /**
+         * Maximum number of users per streamed page, memory use does not depend on it
+         */
+        private int maxPageSize = 100000;
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+    }
+
+    /**
+     * Settings of the cached user count
+     */
+    public static class Count {
+        /**
+         * Pause between two exact counts, writes adjust the cached count in between
+         */
+        private Duration refreshInterval = Duration.ofMinutes(5);
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+    }
+
+    /**
+     * Settings of the user change outbox, its relay and the change feed
+     */
+    public static class Outbox {
+        /**
+         * Pause between two relay runs, each publishes every committed change
+         */
+        private Duration relayInterval = Duration.ofSeconds(1);
+
+        /**
+         * Number of changes published per sink call and transaction
+         */
+        private int batchSize = 500;
+
+        /**
+         * Where changes are published: in-process (Spring application events) or file (NDJSON)
+         */
+        private String sink = "in-process";
+
+        /**
+         * File the file sink appends to
+         */
+        private String file = "user-changes.ndjson";
+
+        /**
+         * Time a published change stays readable from the change feed
+         */
+        private Duration retention = Duration.ofDays(7);
+
+        /**
+         * Maximum number of changes per change feed page
+         */
+        private int maxPageSize = 1000;
+
+        /**
+         * Maximum time a change feed request waits for a change
+         */
+        private Duration maxWait = Duration.ofSeconds(30);
+
+        public Duration getRelayInterval() {
+            return relayInterval;
+        }
+
+        public void setRelayInterval(Duration relayInterval) {
+            this.relayInterval = relayInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public String getSink() {
+            return sink;
+        }
+
+        public void setSink(String sink) {
+            this.sink = sink;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    /**
+     * Settings of the per client rate limits and of load shedding in front of the user endpoints
+     */
+    public static class Throttle {
+        /**
+         * Apply rate limits and load shedding
+         */
+        private boolean enabled = true;
+
+        /**
+         * Header holding the client's API key, clients without one are told apart by address
+         */
+        private String apiKeyHeader = "X-API-Key";
+
+        /**
+         * API keys whose clients get buckets of their own, any other key is ignored and its client told apart by
+         * address, since keys are not authenticated
+         */
+        private Set<String> knownApiKeys = new HashSet<>();
+
+        /**
+         * Maximum number of clients whose buckets are kept, per endpoint class
+         */
+        private long maxClients = 100000;
+
+        /**
+         * Limit of each client on writes
+         */
+        private final Limit write = new Limit(50, 100);
+
+        /**
+         * Limit of each client on user lists, searches, exports and lookups
+         */
+        private final Limit list = new Limit(200, 400);
+
+        /**
+         * Limit of each client on single users by email
+         */
+        private final Limit user = new Limit(1000, 2000);
+
+        /**
+         * Recent mean wait for a pooled connection above which requests start to be shed, all of them at twice it
+         */
+        private Duration poolWaitThreshold = Duration.ofMillis(500);
+
+        /**
+         * Maximum number of requests in progress at once, 0 for no limit
+         */
+        private int maxInFlight = 0;
+
+        /**
+         * Pause between two samples of the connection pool wait
+         */
+        private Duration sampleInterval = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getApiKeyHeader() {
+            return apiKeyHeader;
+        }
+
+        public void setApiKeyHeader(String apiKeyHeader) {
+            this.apiKeyHeader = apiKeyHeader;
+        }
+
+        public Set<String> getKnownApiKeys() {
+            return knownApiKeys;
+        }
+
+        public void setKnownApiKeys(Set<String> knownApiKeys) {
+            this.knownApiKeys = knownApiKeys;
+        }
+
+        public long getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(long maxClients) {
+            this.maxClients = maxClients;
+        }
+
+        public Limit getWrite() {
+            return write;
+        }
+
+        public Limit getList() {
+            return list;
+        }
+
+        public Limit getUser() {
+            return user;
+        }
+
+        public Duration getPoolWaitThreshold() {
+            return poolWaitThreshold;
+        }
+
+        public void setPoolWaitThreshold(Duration poolWaitThreshold) {
+            this.poolWaitThreshold = poolWaitThreshold;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public Duration getSampleInterval() {
+            return sampleInterval;
+        }
+
+        public void setSampleInterval(Duration sampleInterval) {
+            this.sampleInterval = sampleInterval;
+        }
+
+        /**
+         * Token bucket of one client on one endpoint class
+         */
+        public static class Limit {
+            /**
+             * Requests per second, 0 for no limit
+             */
+            private double rate;
+
+            /**
+             * Requests a client may send at once after being idle
+             */
+            private int burst;
+
+            public Limit() {
+            }
+
+            public Limit(double rate, int burst) {
+                this.rate = rate;
+                this.burst = burst;
+            }
+
+            public double getRate() {
+                return rate;
+            }
+
+            public void setRate(double rate) {
+                this.rate = rate;
+            }
+
+            public int getBurst() {
+                return burst;
+            }
+
+            public void setBurst(int burst) {
+                this.burst = burst;
+            }
+        }
+    }
+
+    /**
+     * Settings of the user audit log
+     */
+    public static class Audit {
+        /**
+         * Record user writes in the audit log
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of records waiting to be written, rounded up to a power of two of at least 2
+         */
+        private int capacity = 8192;
+
+        /**
+         * Number of records written per batch
+         */
+        private int batchSize = 500;
+
+        /**
+         * Pause between two writer runs, each writes every waiting record
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * What a write does when the buffer is full: drop (the record is counted and lost) or block (the write
+         * waits for room up to block-timeout, then drops)
+         */
+        private OverflowPolicy overflow = OverflowPolicy.DROP;
+
+        /**
+         * Maximum time a write waits for room in the buffer with the block policy
+         */
+        private Duration blockTimeout = Duration.ofSeconds(1);
+
+        /**
+         * Header naming the client in audit records, recorded as {@code key:} and the first 16 hex digits of
+         * its SHA-256 so an API key is never stored; clients without one are recorded by address
+         */
+        private String actorHeader = "X-API-Key";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public OverflowPolicy getOverflow() {
+            return overflow;
+        }
+
+        public void setOverflow(OverflowPolicy overflow) {
+            this.overflow = overflow;
+        }
+
+        public Duration getBlockTimeout() {
+            return blockTimeout;
+        }
+
+        public void setBlockTimeout(Duration blockTimeout) {
+            this.blockTimeout = blockTimeout;
+        }
+
+        public String getActorHeader() {
+            return actorHeader;
+        }
+
+        public void setActorHeader(String actorHeader) {
+            this.actorHeader = actorHeader;
+        }
+
+        /**
+         * What a write does when the audit buffer is full
+         */
+        public enum OverflowPolicy {
+            DROP, BLOCK
+        }
+    }
+
+    /**
+     * Settings of idempotency keys on user creation
+     */
+    public static class Idempotency {
+        /**
+         * Where responses are kept by key: in-process (bounded cache of this instance) or database (shared by
+         * all instances)
+         */
+        private String store = "in-process";
+
+        /**
+         * Time a key's response is replayed after the first request
+         */
+        private Duration ttl = Duration.ofHours(24);
+
+        /**
+         * Maximum number of keys kept by the in-process store
+         */
+        private long maxKeys = 100000;
+
+        /**
+         * Pause between two purges of expired keys by the database store
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+
+        public String getStore() {
+            return store;
+        }
+
+        public void setStore(String store) {
+            this.store = store;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(long maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        public Duration getPurgeInterval() {
+            return purgeInterval;
+        }
+
+        public void setPurgeInterval(Duration purgeInterval) {
+            this.purgeInterval = purgeInterval;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.scalegrid.assignment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>VirtualThreadConfig class serves requests on virtual threads when {@code app.threads.virtual.enabled}
+ * is set. The project is built for Java 17, so the virtual thread executor is looked up at runtime and the
+ * mode fails fast on older JVMs. Database access is bounded by {@link ConcurrencyLimitingDataSource}, wrapped
+ * around the application's pool only: {@code dataSource}, or {@code primaryDataSource} when read replicas are
+ * routed. Replica pools are not beans and stay unbounded, their own pool wait is their only limit.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.threads.virtual", name = "enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+    // Hikari applies its default pool size only when the pool starts
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+    private static final Set<String> LIMITED_POOLS = Set.of("dataSource", "primaryDataSource");
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("app.threads.virtual.enabled needs Java 21 or later, running on "
+                    .concat(System.getProperty("java.version")), ex);
+        }
+    }
+
+    // the executor above keeps Spring Boot from creating its application task executor, so stand in for it
+    @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public TaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor,
+                                                ObjectProvider<TaskDecorator> taskDecorator) {
+        TaskExecutorAdapter taskExecutor = new TaskExecutorAdapter(virtualThreadExecutor);
+        taskDecorator.ifUnique(taskExecutor::setTaskDecorator);
+        return taskExecutor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(
+            ExecutorService virtualThreadExecutor) {
+        LOGGER.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(
+            ObjectProvider<VirtualThreadProperties> virtualThreadProperties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof HikariDataSource) || !LIMITED_POOLS.contains(beanName)) {
+                    return bean;
+                }
+                HikariDataSource dataSource = (HikariDataSource) bean;
+                VirtualThreadProperties properties = virtualThreadProperties.getObject();
+                int poolSize = dataSource.getMaximumPoolSize() > 0
+                        ? dataSource.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+                int permits = properties.getDbPermits() > 0 ? properties.getDbPermits() : poolSize;
+                LOGGER.info("Limiting access to {} to {} concurrent connections", beanName, permits);
+                return new ConcurrencyLimitingDataSource(dataSource, permits, properties.getDbAcquireTimeout());
+            }
+        };
+    }
+}
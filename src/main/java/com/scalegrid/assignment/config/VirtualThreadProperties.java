@@ -0,0 +1,51 @@
+package com.scalegrid.assignment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * <p>VirtualThreadProperties class holds the settings of the virtual thread request mode,
+ * bound from {@code app.threads.virtual.*}.</p>
+ */
+@ConfigurationProperties(prefix = "app.threads.virtual")
+public class VirtualThreadProperties {
+    /**
+     * Serve requests on virtual threads, needs Java 21
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of connections in use at once, 0 means the size of the connection pool
+     */
+    private int dbPermits = 0;
+
+    /**
+     * Time a request waits for a database permit before failing
+     */
+    private Duration dbAcquireTimeout = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getDbPermits() {
+        return dbPermits;
+    }
+
+    public void setDbPermits(int dbPermits) {
+        this.dbPermits = dbPermits;
+    }
+
+    public Duration getDbAcquireTimeout() {
+        return dbAcquireTimeout;
+    }
+
+    public void setDbAcquireTimeout(Duration dbAcquireTimeout) {
+        this.dbAcquireTimeout = dbAcquireTimeout;
+    }
+}
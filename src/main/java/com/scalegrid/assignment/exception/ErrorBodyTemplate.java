@@ -0,0 +1,91 @@
+package com.scalegrid.assignment.exception;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * <p>ErrorBodyTemplate class writes the JSON of an {@link ErrorResponse} of one status without building it or
+ * going through Jackson's object mapper. The constant parts are serialized once, the timestamp once per second,
+ * and only the message is escaped per call. The output is the same bytes Jackson writes for the
+ * {@link ErrorResponse}.</p>
+ */
+public class ErrorBodyTemplate {
+    // the pattern of ErrorResponse.createdAt
+    private static final DateTimeFormatter CREATED_AT = DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm:ss");
+    private static final byte[] MESSAGE = "\",\"message\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+    private static final byte QUOTE = '"';
+    private static final byte END = '}';
+    private final byte[] prefix;
+    private final Clock clock;
+    private volatile CreatedAt createdAt = new CreatedAt(Long.MIN_VALUE, new byte[0]);
+
+    /**
+     * Constructs a new {@link ErrorBodyTemplate} instance
+     *
+     * @param httpStatus {@link HttpStatus} of the error
+     * @param clock      {@link Clock} in the zone {@link ErrorResponse} timestamps are written in
+     */
+    public ErrorBodyTemplate(HttpStatus httpStatus, Clock clock) {
+        this.prefix = ("{\"httpStatus\":\"" + httpStatus.name() + "\",\"createdAt\":\"")
+                .getBytes(StandardCharsets.UTF_8);
+        this.clock = clock;
+    }
+
+    /**
+     * This method writes the error body holding the given message, created now.
+     *
+     * @param message error message, may be null
+     * @return UTF-8 JSON
+     */
+    public byte[] render(String message) {
+        byte[] timestamp = createdAt(clock.millis() / 1000);
+        byte[] escaped = message == null ? NULL : JsonStringEncoder.getInstance().quoteAsUTF8(message);
+        int quotes = message == null ? 0 : 2;
+        byte[] body = new byte[prefix.length + timestamp.length + MESSAGE.length + escaped.length + quotes + 1];
+        int offset = append(body, 0, prefix);
+        offset = append(body, offset, timestamp);
+        offset = append(body, offset, MESSAGE);
+        if (message != null) {
+            body[offset++] = QUOTE;
+        }
+        offset = append(body, offset, escaped);
+        if (message != null) {
+            body[offset++] = QUOTE;
+        }
+        body[offset] = END;
+        return body;
+    }
+
+    private byte[] createdAt(long epochSecond) {
+        CreatedAt current = createdAt;
+        if (current.epochSecond != epochSecond) {
+            String formatted = CREATED_AT.format(LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond),
+                    clock.getZone()));
+            current = new CreatedAt(epochSecond, formatted.getBytes(StandardCharsets.UTF_8));
+            createdAt = current;
+        }
+        return current.bytes;
+    }
+
+    private static int append(byte[] target, int offset, byte[] bytes) {
+        System.arraycopy(bytes, 0, target, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    private static final class CreatedAt {
+        private final long epochSecond;
+        private final byte[] bytes;
+
+        private CreatedAt(long epochSecond, byte[] bytes) {
+            this.epochSecond = epochSecond;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -30,7 +30,7 @@ public class ErrorResponse {
     /**
      * This class is responsible for creating {@link ErrorResponse} object
      */
-    static class Builder {
+    public static class Builder {
         private HttpStatus httpStatus;
         private String message;
         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy hh:mm:ss")
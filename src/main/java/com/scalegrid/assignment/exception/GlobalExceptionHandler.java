@@ -1,22 +1,64 @@
 package com.scalegrid.assignment.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.ValidationException;
+import java.time.Clock;
+import java.util.List;
 
 /**
- * <p>GlobalExceptionHandler class handles exceptions globally.</p>
+ * <p>GlobalExceptionHandler class handles exceptions globally. Each exception type logs at most
+ * {@value #LOG_LINES_PER_SECOND} lines per second, the others are counted and reported with the next line;
+ * the {@code users.api.errors} counters see every exception.</p>
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+    private static final String ERROR_COUNTER = "users.api.errors";
+    private static final int LOG_LINES_PER_SECOND = 10;
+    private static final HttpHeaders JSON_HEADERS = jsonHeaders();
+    private final Counter methodNotSupportedCounter;
+    private final Counter resourceNotFoundCounter;
+    private final Counter invalidRequestCounter;
+    private final Counter preconditionFailedCounter;
+    private final Counter constraintViolationCounter;
+    private final Counter validationCounter;
+    private final LogSampler methodNotSupportedLog = new LogSampler(LOG_LINES_PER_SECOND);
+    private final LogSampler resourceNotFoundLog = new LogSampler(LOG_LINES_PER_SECOND);
+    private final LogSampler invalidRequestLog = new LogSampler(LOG_LINES_PER_SECOND);
+    private final LogSampler preconditionFailedLog = new LogSampler(LOG_LINES_PER_SECOND);
+    private final LogSampler constraintViolationLog = new LogSampler(LOG_LINES_PER_SECOND);
+    private final LogSampler validationLog = new LogSampler(LOG_LINES_PER_SECOND);
+    private final ErrorBodyTemplate notFoundBody = new ErrorBodyTemplate(HttpStatus.NOT_FOUND,
+            Clock.systemDefaultZone());
+
+    /**
+     * Constructs a new {@link GlobalExceptionHandler} instance. Counters are registered once here
+     * so that handling an exception only costs an increment.
+     *
+     * @param meterRegistry {@link MeterRegistry}
+     */
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.methodNotSupportedCounter = errorCounter(meterRegistry, HttpRequestMethodNotSupportedException.class);
+        this.resourceNotFoundCounter = errorCounter(meterRegistry, ResourceNotFoundException.class);
+        this.invalidRequestCounter = errorCounter(meterRegistry, InvalidRequestException.class);
+        this.preconditionFailedCounter = errorCounter(meterRegistry, PreconditionFailedException.class);
+        this.constraintViolationCounter = errorCounter(meterRegistry, ConstraintViolationException.class);
+        this.validationCounter = errorCounter(meterRegistry, ValidationException.class);
+    }
 
     /**
      * This method handle method not found exception.
@@ -26,7 +68,8 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     public ResponseEntity handleMethodNotSupported(Exception ex) {
-        LOGGER.error(prepareErrorMsg(ex));
+        methodNotSupportedCounter.increment();
+        logError(methodNotSupportedLog, ex);
         ErrorResponse errorResponse = new ErrorResponse.
                 Builder()
                 .withMessage(ex.getMessage())
@@ -37,14 +80,20 @@ public class GlobalExceptionHandler {
     }
 
     /**
-     * This method handle resource not found exception.
+     * This method handle resource not found exception. JSON bodies are written from a template, without
+     * building an {@link ErrorResponse}.
      *
-     * @param ex {@link Exception}
+     * @param ex      {@link Exception}
+     * @param request {@link HttpServletRequest}
      * @return {@link ResponseEntity}
      */
     @ExceptionHandler(ResourceNotFoundException.class)
-    public ResponseEntity<Object> handleEntityNotFoundException(Exception ex) {
-        LOGGER.error(prepareErrorMsg(ex));
+    public ResponseEntity<Object> handleEntityNotFoundException(Exception ex, HttpServletRequest request) {
+        resourceNotFoundCounter.increment();
+        logError(resourceNotFoundLog, ex);
+        if (prefersJson(request)) {
+            return new ResponseEntity<>(notFoundBody.render(ex.getMessage()), JSON_HEADERS, HttpStatus.NOT_FOUND);
+        }
         ErrorResponse errorResponse = new ErrorResponse.
                 Builder()
                 .withMessage(ex.getMessage())
@@ -55,6 +104,46 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, errorResponse.getHttpStatus());
     }
 
+    /**
+     * This method handle invalid request exception.
+     *
+     * @param ex {@link Exception}
+     * @return {@link ResponseEntity}
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<Object> handleInvalidRequestException(Exception ex) {
+        invalidRequestCounter.increment();
+        logError(invalidRequestLog, ex);
+        ErrorResponse errorResponse = new ErrorResponse.
+                Builder()
+                .withMessage(ex.getMessage())
+                .withHttpStatus(HttpStatus.BAD_REQUEST)
+                .withCreatedAt()
+                .build();
+
+        return new ResponseEntity<>(errorResponse, errorResponse.getHttpStatus());
+    }
+
+    /**
+     * This method handle precondition failed exception.
+     *
+     * @param ex {@link Exception}
+     * @return {@link ResponseEntity}
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Object> handlePreconditionFailedException(Exception ex) {
+        preconditionFailedCounter.increment();
+        logError(preconditionFailedLog, ex);
+        ErrorResponse errorResponse = new ErrorResponse.
+                Builder()
+                .withMessage(ex.getMessage())
+                .withHttpStatus(HttpStatus.PRECONDITION_FAILED)
+                .withCreatedAt()
+                .build();
+
+        return new ResponseEntity<>(errorResponse, errorResponse.getHttpStatus());
+    }
+
     /**
      * This method handle method constrain violation exception.
      *
@@ -63,8 +152,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<Object> handleConstraintViolationException(Exception ex) {
+        constraintViolationCounter.increment();
         String msg = ex.getCause().getCause().getMessage();
-        LOGGER.error(prepareErrorMsg(msg));
+        logError(constraintViolationLog, msg);
         ErrorResponse errorResponse = new ErrorResponse.
                 Builder()
                 .withMessage(msg)
@@ -83,8 +173,14 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<Object> handleValidationException(Exception ex) {
-        String msg = ex.getCause().getCause().getMessage();
-        LOGGER.error(prepareErrorMsg(msg));
+        validationCounter.increment();
+        // thrown at flush, or on commit wrapped in the transaction exception
+        Throwable cause = ex;
+        while (!(cause instanceof ValidationException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        String msg = cause.getMessage();
+        logError(validationLog, msg);
         ErrorResponse errorResponse = new ErrorResponse.
                 Builder()
                 .withMessage(msg)
@@ -95,7 +191,43 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, errorResponse.getHttpStatus());
     }
 
-    private <T> String prepareErrorMsg(T ex) {
-        return new StringBuilder().append(ex).toString();
+    private static Counter errorCounter(MeterRegistry meterRegistry, Class<? extends Exception> type) {
+        return Counter.builder(ERROR_COUNTER)
+                .description("Exceptions handled by GlobalExceptionHandler")
+                .tag("exception", type.getSimpleName())
+                .register(meterRegistry);
+    }
+
+    private static void logError(LogSampler sampler, Object error) {
+        if (!LOGGER.isErrorEnabled() || !sampler.sample()) {
+            return;
+        }
+        long suppressed = sampler.takeSuppressed();
+        if (suppressed > 0) {
+            LOGGER.error("{} ({} more not logged)", String.valueOf(error), suppressed);
+        } else {
+            LOGGER.error(String.valueOf(error));
+        }
+    }
+
+    private static boolean prefersJson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isEmpty() || "*/*".equals(accept)
+                || MediaType.APPLICATION_JSON_VALUE.equals(accept)) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            return mediaTypes.isEmpty() || mediaTypes.get(0).includes(MediaType.APPLICATION_JSON);
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return HttpHeaders.readOnlyHttpHeaders(headers);
     }
 }
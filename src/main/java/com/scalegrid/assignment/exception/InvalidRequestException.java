@@ -0,0 +1,27 @@
+package com.scalegrid.assignment.exception;
+
+/**
+ * <p>This custom exception class handles invalid client request exception.</p>
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    private String message;
+
+    /**
+     * Constructs a new {@link InvalidRequestException} instance
+     * @param message {@link String}
+     */
+    public InvalidRequestException(String message){
+        this.message = message;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.scalegrid.assignment.exception;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>LogSampler class lets at most a given number of log lines through per second and counts the others, so a
+ * burst of one error does not turn into a burst of log writes. It takes no lock.</p>
+ */
+public class LogSampler {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final int perSecond;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger logged = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * Constructs a new {@link LogSampler} instance
+     *
+     * @param perSecond log lines let through per second
+     */
+    public LogSampler(int perSecond) {
+        this.perSecond = perSecond;
+    }
+
+    /**
+     * This method tells whether a line may be logged now, counting it as suppressed otherwise.
+     *
+     * @return whether to log
+     */
+    public boolean sample() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            logged.set(0);
+        }
+        if (logged.incrementAndGet() <= perSecond) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    /**
+     * This method returns the number of lines suppressed since the last call.
+     *
+     * @return suppressed lines
+     */
+    public long takeSuppressed() {
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,27 @@
+package com.scalegrid.assignment.exception;
+
+/**
+ * <p>This custom exception class handles a failed request precondition, like a stale If-Match version.</p>
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    private String message;
+
+    /**
+     * Constructs a new {@link PreconditionFailedException} instance
+     * @param message {@link String}
+     */
+    public PreconditionFailedException(String message){
+        this.message = message;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+}
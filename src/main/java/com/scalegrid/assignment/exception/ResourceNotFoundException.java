@@ -1,7 +1,8 @@
 package com.scalegrid.assignment.exception;
 
 /**
- * <p>This custom exception class handles resource not found exception.</p>
+ * <p>This custom exception class handles resource not found exception. Misses are an expected outcome of
+ * lookups, so the exception captures no stack trace, which would cost more than the lookup itself.</p>
  */
 public class ResourceNotFoundException extends RuntimeException {
 
@@ -12,6 +13,7 @@ public class ResourceNotFoundException extends RuntimeException {
      * @param message {@link String}
      */
     public ResourceNotFoundException(String message){
+        super(message, null, false, false);
         this.message = message;
     }
 
@@ -0,0 +1,114 @@
+package com.scalegrid.assignment.user.audit;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>AuditRingBuffer class is a bounded, lock-free queue of many producers and a single consumer.</p>
+ *
+ * <p>Each slot carries a sequence telling whose turn it is: a producer claims the next position with one CAS
+ * when the slot's sequence equals it, stores the element and publishes it by advancing the sequence; the
+ * consumer takes the element once the sequence is one past the position and hands the slot to the next lap.
+ * A full buffer refuses the element instead of waiting, the caller decides what to do.</p>
+ *
+ * @param <T> type of the elements
+ */
+public class AuditRingBuffer<T> {
+    private static final int MAX_CAPACITY = 1 << 30;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // only advanced by the consumer
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Constructs a new {@link AuditRingBuffer} instance
+     *
+     * @param capacity maximum number of elements, rounded up to a power of two of at least 2
+     */
+    public AuditRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        // with a single slot a published element would look like a free slot of the next lap
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * This method appends the element unless the buffer is full. Safe to call from any thread.
+     *
+     * @param element element to append
+     * @return whether the element was appended
+     */
+    public boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long sequence = sequences.getAcquire(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.setPlain(index, element);
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                // the slot still holds the element of the previous lap
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * This method moves at most {@code max} elements, oldest first, to the target. Only one thread may drain
+     * at a time.
+     *
+     * @param target collection the elements are added to
+     * @param max    maximum number of elements moved
+     * @return number of elements moved
+     */
+    public int drainTo(Collection<? super T> target, int max) {
+        long position = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.getAcquire(index) != position + 1) break;
+            target.add(elements.getPlain(index));
+            elements.setPlain(index, null);
+            sequences.setRelease(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head.setRelease(position);
+        return drained;
+    }
+
+    /**
+     * This method returns the number of elements waiting, exact only while nobody appends or drains.
+     *
+     * @return number of elements
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * This method returns the maximum number of elements.
+     *
+     * @return capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
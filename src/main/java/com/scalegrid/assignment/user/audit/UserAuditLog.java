@@ -0,0 +1,210 @@
+package com.scalegrid.assignment.user.audit;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.UserAudit;
+import com.scalegrid.assignment.user.repository.UserAuditRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>UserAuditLog class records who created, modified or removed which user, with the values before and
+ * after, without writing to the database on the request path.</p>
+ *
+ * <p>A write appends an immutable {@link UserAuditRecord} to a bounded {@link AuditRingBuffer}, after its
+ * transaction commits when there is one. Every {@code app.user.audit.flush-interval} the writer drains the
+ * buffer and appends the records to {@code user_audit} in batches. A batch that fails is kept and written
+ * again on the next run; meanwhile the buffer fills up and {@code app.user.audit.overflow} applies, so memory
+ * stays bounded by the buffer capacity plus one batch. Records still waiting on shutdown are written
+ * before the data source closes.</p>
+ */
+@Component
+public class UserAuditLog implements SchedulingConfigurer, DisposableBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserAuditLog.class);
+    private static final String SYSTEM_ACTOR = "system";
+    private static final int MAX_ACTOR_LENGTH = 128;
+    private static final String KEY_ACTOR_PREFIX = "key:";
+    // 64 bits of the key's SHA-256 tell clients apart without making the key recoverable
+    private static final int KEY_ACTOR_HASH_BYTES = 8;
+    private static final long BLOCK_PARK_NANOS = 100_000;
+    private final UserAuditRepository userAuditRepository;
+    private final UserProperties.Audit properties;
+    private final AuditRingBuffer<UserAuditRecord> buffer;
+    private final boolean block;
+    private final long blockTimeoutNanos;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    // only touched by the writer, under its lock
+    private final List<UserAuditRecord> pending;
+
+    /**
+     * Constructs a new {@link UserAuditLog} instance
+     *
+     * @param userAuditRepository {@link UserAuditRepository}
+     * @param userProperties      {@link UserProperties}
+     * @param meterRegistry       {@link MeterRegistry}
+     */
+    public UserAuditLog(UserAuditRepository userAuditRepository, UserProperties userProperties,
+                        MeterRegistry meterRegistry) {
+        this.userAuditRepository = userAuditRepository;
+        this.properties = userProperties.getAudit();
+        this.buffer = new AuditRingBuffer<>(properties.getCapacity());
+        this.block = properties.getOverflow() == UserProperties.Audit.OverflowPolicy.BLOCK;
+        this.blockTimeoutNanos = properties.getBlockTimeout().toNanos();
+        this.pending = new ArrayList<>(properties.getBatchSize());
+        this.writtenCounter = Counter.builder("users.audit.records")
+                .tag("outcome", "written")
+                .description("User audit records written or dropped")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("users.audit.records")
+                .tag("outcome", "dropped")
+                .description("User audit records written or dropped")
+                .register(meterRegistry);
+        Gauge.builder("users.audit.backlog", buffer, AuditRingBuffer::size)
+                .description("User audit records waiting to be written")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (properties.isEnabled()) {
+            taskRegistrar.addFixedDelayTask(this::run, properties.getFlushInterval().toMillis());
+        }
+    }
+
+    /**
+     * This method records the creation of a user.
+     *
+     * @param userId  id of the user
+     * @param created values of the created user
+     */
+    public void created(Long userId, UserAuditRecord.Values created) {
+        record(UserAudit.Operation.CREATE, userId, null, created);
+    }
+
+    /**
+     * This method records the modification of a user.
+     *
+     * @param userId   id of the user
+     * @param previous values before the write, null when unknown
+     * @param modified values after the write
+     */
+    public void modified(Long userId, UserAuditRecord.Values previous, UserAuditRecord.Values modified) {
+        record(UserAudit.Operation.MODIFY, userId, previous, modified);
+    }
+
+    /**
+     * This method records the removal of a user.
+     *
+     * @param userId  id of the user
+     * @param removed values of the removed user
+     */
+    public void removed(Long userId, UserAuditRecord.Values removed) {
+        record(UserAudit.Operation.REMOVE, userId, removed, null);
+    }
+
+    /**
+     * This method writes every waiting record, batch by batch. Failures are logged and the failed batch is
+     * written again on the next run.
+     */
+    public synchronized void run() {
+        try {
+            int batchSize = properties.getBatchSize();
+            do {
+                if (pending.isEmpty()) {
+                    buffer.drainTo(pending, batchSize);
+                }
+                if (pending.isEmpty()) return;
+                userAuditRepository.appendAll(pending);
+                writtenCounter.increment(pending.size());
+                pending.clear();
+            } while (buffer.size() > 0);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("User audit write of {} records failed, retrying in {}", pending.size(),
+                    properties.getFlushInterval(), ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (properties.isEnabled()) {
+            run();
+        }
+    }
+
+    private void record(UserAudit.Operation operation, Long userId, UserAuditRecord.Values previous,
+                        UserAuditRecord.Values current) {
+        if (!properties.isEnabled()) return;
+        UserAuditRecord record = new UserAuditRecord(System.currentTimeMillis(), operation, actor(), userId,
+                previous, current);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(record);
+                }
+            });
+        } else {
+            append(record);
+        }
+    }
+
+    private void append(UserAuditRecord record) {
+        if (buffer.offer(record)) return;
+        if (block) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (buffer.offer(record)) return;
+            }
+        }
+        droppedCounter.increment();
+    }
+
+    private String actor() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return SYSTEM_ACTOR;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        String key = request.getHeader(properties.getActorHeader());
+        if (key != null && !key.isEmpty()) {
+            return keyActor(key);
+        }
+        String actor = request.getRemoteAddr();
+        if (actor == null) {
+            return SYSTEM_ACTOR;
+        }
+        return actor.length() > MAX_ACTOR_LENGTH ? actor.substring(0, MAX_ACTOR_LENGTH) : actor;
+    }
+
+    // the header usually holds a secret API key, which must not end up in the audit table or in logs
+    private static String keyActor(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return KEY_ACTOR_PREFIX.concat(HexFormat.of().formatHex(hash, 0, KEY_ACTOR_HASH_BYTES));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
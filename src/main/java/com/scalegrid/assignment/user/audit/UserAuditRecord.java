@@ -0,0 +1,101 @@
+package com.scalegrid.assignment.user.audit;
+
+import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.UserAudit;
+import com.scalegrid.assignment.user.repository.UserRow;
+
+import java.time.LocalDate;
+
+/**
+ * <p>UserAuditRecord class is an audited user write waiting in the audit buffer. It is immutable and only
+ * holds references to the written values, so recording one costs an allocation and no copying.</p>
+ */
+public final class UserAuditRecord {
+    private final long occurredAtMillis;
+    private final UserAudit.Operation operation;
+    private final String actor;
+    private final Long userId;
+    private final Values previous;
+    private final Values current;
+
+    UserAuditRecord(long occurredAtMillis, UserAudit.Operation operation, String actor, Long userId,
+                    Values previous, Values current) {
+        this.occurredAtMillis = occurredAtMillis;
+        this.operation = operation;
+        this.actor = actor;
+        this.userId = userId;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public long getOccurredAtMillis() {
+        return occurredAtMillis;
+    }
+
+    public UserAudit.Operation getOperation() {
+        return operation;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return values before the write, null for a create
+     */
+    public Values getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return values after the write, null for a remove
+     */
+    public Values getCurrent() {
+        return current;
+    }
+
+    /**
+     * Values of a user at one point in time
+     */
+    public static final class Values {
+        private final String name;
+        private final String email;
+        private final LocalDate birthDate;
+        private final Long version;
+
+        public Values(String name, String email, LocalDate birthDate, Long version) {
+            this.name = name;
+            this.email = email;
+            this.birthDate = birthDate;
+            this.version = version;
+        }
+
+        public static Values of(User user) {
+            return new Values(user.getName(), user.getEmail(), user.getBirthDate(), user.getVersion());
+        }
+
+        public static Values of(UserRow row) {
+            return new Values(row.getName(), row.getEmail(), row.getBirthDate(), row.getVersion());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+    }
+}
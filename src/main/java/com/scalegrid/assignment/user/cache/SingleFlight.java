@@ -0,0 +1,93 @@
+package com.scalegrid.assignment.user.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * <p>SingleFlight class coalesces concurrent calls for the same key: the first caller runs the loader and
+ * callers arriving while it runs wait for and share its result or exception.</p>
+ *
+ * <p>Calls in flight are registered in a {@link ConcurrentHashMap} with {@code putIfAbsent}, so no lock is
+ * held while a loader runs and calls for unrelated keys never wait for each other.</p>
+ *
+ * @param <K> key type
+ * @param <V> result type
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * This method returns the result of the loader for the key, sharing the call already in flight for it.
+     *
+     * @param key    key of the call
+     * @param loader {@link Function} run by the first caller only
+     * @return the loader result
+     */
+    public V execute(K key, Function<K, V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            coalesced.increment();
+            return join(inFlight);
+        }
+        executions.increment();
+        try {
+            V value = loader.apply(key);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * This method lets later callers of the key start a new call instead of joining the one in flight,
+     * whose result may predate a write. Callers that already joined it still get its result.
+     *
+     * @param key key of the call
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    /**
+     * This method returns the number of loader runs.
+     *
+     * @return execution count
+     */
+    public long executions() {
+        return executions.sum();
+    }
+
+    /**
+     * This method returns the number of calls served by another caller's loader run.
+     *
+     * @return coalesced call count
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException ex) {
+            // rethrow what the loader threw, as the caller that ran it got it
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
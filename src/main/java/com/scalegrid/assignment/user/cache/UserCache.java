@@ -0,0 +1,260 @@
+package com.scalegrid.assignment.user.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.scalegrid.assignment.config.ReadReplicaRouting;
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.util.EmailNormalizer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * <p>UserCache class is an in-process, size and TTL bounded read-through cache of users by email.
+ * Misses are cached too, with their own shorter TTL.</p>
+ *
+ * <p>Concurrent misses of one email share a single database lookup through {@link SingleFlight}; loads
+ * run outside any cache lock, so neither other emails nor invalidations wait for them. Each load notes the
+ * invalidation stamp of its email before reading and drops its value if the stamp moved meanwhile.
+ * Writers invalidate after their transaction commits, which means no value read before a committed
+ * update survives it.</p>
+ */
+@Component
+public class UserCache implements MeterBinder {
+    private static final String CACHE_NAME = "users.by-email";
+    private static final String LOADS_METER = "cache.single-flight.loads";
+    private static final String COALESCED_METER = "cache.single-flight.coalesced";
+    private static final String CACHE_TAG = "cache";
+    private static final int STAMP_STRIPES = 1024;
+    private final Cache<String, Optional<User>> cache;
+    private final SingleFlight<String, Optional<User>> lookups = new SingleFlight<>();
+    private final AtomicLongArray invalidationStamps = new AtomicLongArray(STAMP_STRIPES);
+    private final AtomicLongArray invalidationTimes = new AtomicLongArray(STAMP_STRIPES);
+    private final long primaryLoadWindowMillis;
+
+    /**
+     * Constructs a new {@link UserCache} instance
+     *
+     * @param userProperties {@link UserProperties}
+     */
+    public UserCache(UserProperties userProperties) {
+        UserProperties.Cache properties = userProperties.getCache();
+        this.primaryLoadWindowMillis = properties.getPrimaryLoadWindow().toMillis();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfter(new PresenceExpiry(properties.getTtl(), properties.getNegativeTtl()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * This method returns the cached lookup result for the email, loading it on a miss. Concurrent misses
+     * of the email share one load and its result or exception.
+     *
+     * @param email  {@link String}
+     * @param loader {@link Function} database lookup of the normalized email
+     * @return {@link Optional<User>} empty when the user does not exist
+     */
+    public Optional<User> get(String email, Function<String, Optional<User>> loader) {
+        String key = EmailNormalizer.normalize(email);
+        Optional<User> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        return lookups.execute(key, k -> load(k, loader));
+    }
+
+    /**
+     * This method returns the cached lookup results for the emails, loading all misses with one call of
+     * the loader. Loaded results, misses included, are cached like those of {@link #get}.
+     *
+     * @param emails {@link Collection<String>}
+     * @param loader {@link Function} database lookup of normalized emails, returning the found users by email
+     * @return {@link Map} lookup result by normalized email, empty when the user does not exist
+     */
+    public Map<String, Optional<User>> getAll(Collection<String> emails,
+                                              Function<Set<String>, Map<String, User>> loader) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String email : emails) {
+            keys.add(EmailNormalizer.normalize(email));
+        }
+        Map<String, Optional<User>> results = new HashMap<>(cache.getAllPresent(keys));
+        Set<String> misses = new LinkedHashSet<>(keys);
+        misses.removeAll(results.keySet());
+        if (misses.isEmpty()) {
+            return results;
+        }
+
+        Map<String, Long> stamps = new HashMap<>();
+        for (String key : misses) {
+            stamps.put(key, invalidationStamps.get(stripe(key)));
+        }
+        Map<String, User> found = misses.stream().anyMatch(this::recentlyInvalidated)
+                ? ReadReplicaRouting.onPrimary(() -> loader.apply(misses)) : loader.apply(misses);
+        for (String key : misses) {
+            Optional<User> user = Optional.ofNullable(found.get(key));
+            cache.put(key, user);
+            if (invalidationStamps.get(stripe(key)) != stamps.get(key)) {
+                cache.invalidate(key);
+            }
+            results.put(key, user);
+        }
+        return results;
+    }
+
+    /**
+     * This method drops the entries of the given emails once the current transaction commits,
+     * or right away when no transaction is active.
+     *
+     * @param emails {@link String}
+     */
+    public void invalidate(String... emails) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(emails);
+                }
+            });
+        } else {
+            invalidateNow(emails);
+        }
+    }
+
+    /**
+     * This method returns hit, miss and eviction counters of the cache.
+     *
+     * @return {@link CacheStats}
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * This method returns the number of lookups that ran a database load.
+     *
+     * @return load count
+     */
+    public long loads() {
+        return lookups.executions();
+    }
+
+    /**
+     * This method returns the number of lookups served by a load another lookup ran.
+     *
+     * @return coalesced lookup count
+     */
+    public long coalescedLoads() {
+        return lookups.coalesced();
+    }
+
+    /**
+     * This method publishes hit, miss, eviction and size metrics of the cache, plus the loads run and the
+     * lookups coalesced into them; their ratio shows how many queries single-flight saves.
+     *
+     * @param registry {@link MeterRegistry}
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        FunctionCounter.builder(LOADS_METER, lookups, SingleFlight::executions)
+                .description("Lookups that ran a database load")
+                .tag(CACHE_TAG, CACHE_NAME)
+                .register(registry);
+        FunctionCounter.builder(COALESCED_METER, lookups, SingleFlight::coalesced)
+                .description("Lookups that shared a load already in flight for the same email")
+                .tag(CACHE_TAG, CACHE_NAME)
+                .register(registry);
+    }
+
+    /**
+     * This method returns the approximate number of cached entries.
+     *
+     * @return entry count
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    private Optional<User> load(String key, Function<String, Optional<User>> loader) {
+        int stripe = stripe(key);
+        long stamp = invalidationStamps.get(stripe);
+        Optional<User> user = recentlyInvalidated(key)
+                ? ReadReplicaRouting.onPrimary(() -> loader.apply(key)) : loader.apply(key);
+        cache.put(key, user);
+        // an invalidation raced the load: it either sees the value just put or is seen here
+        if (invalidationStamps.get(stripe) != stamp) {
+            cache.invalidate(key);
+        }
+        return user;
+    }
+
+    private void invalidateNow(String... emails) {
+        for (String email : emails) {
+            if (email != null) {
+                String key = EmailNormalizer.normalize(email);
+                invalidationTimes.set(stripe(key), System.currentTimeMillis());
+                invalidationStamps.incrementAndGet(stripe(key));
+                lookups.forget(key);
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    private boolean recentlyInvalidated(String key) {
+        return System.currentTimeMillis() - invalidationTimes.get(stripe(key)) < primaryLoadWindowMillis;
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % STAMP_STRIPES;
+    }
+
+    /**
+     * Expires found users after the TTL and misses after the negative TTL.
+     */
+    private static class PresenceExpiry implements Expiry<String, Optional<User>> {
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        PresenceExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<User> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<User> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<User> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.scalegrid.assignment.user.cache;
+
+import com.scalegrid.assignment.config.ReadReplicaRouting;
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.dto.UserCount;
+import com.scalegrid.assignment.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.IntervalTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>UserCountCache class serves the number of users without counting the table per request. An exact
+ * {@code count(*)} runs on the first request and then every {@code app.user.count.refresh-interval} in the
+ * background; in between, creates and deletes of this instance adjust the cached count once committed.</p>
+ *
+ * <p>A count reads a snapshot of the primary taken between two reads of the adjusted writes, and is taken
+ * again while writes commit in between, so each write of this instance is either in the count or added to it;
+ * only when writes keep committing through five attempts are those of the last attempt counted twice. Writes of other instances are only reflected by the next count, so the cached count may drift by that
+ * much.</p>
+ */
+@Component
+public class UserCountCache implements SchedulingConfigurer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserCountCache.class);
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 5;
+    private final UserRepository userRepository;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final long refreshIntervalMillis;
+    // writes committed since startup, never reset: a count remembers its sum when its snapshot was taken
+    private final LongAdder delta = new LongAdder();
+    private volatile Counted counted;
+
+    /**
+     * Constructs a new {@link UserCountCache} instance
+     *
+     * @param userRepository     {@link UserRepository}
+     * @param userProperties     {@link UserProperties}
+     * @param transactionManager {@link PlatformTransactionManager}
+     */
+    public UserCountCache(UserRepository userRepository, UserProperties userProperties,
+                          PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransactionTemplate.setReadOnly(true);
+        this.refreshIntervalMillis = userProperties.getCount().getRefreshInterval().toMillis();
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        // the first count runs on demand, so an unused count never scans the table
+        taskRegistrar.addFixedDelayTask(new IntervalTask(this::refreshIfCounted, refreshIntervalMillis,
+                refreshIntervalMillis));
+    }
+
+    /**
+     * This method returns the cached count adjusted by the writes committed since, counting first if it never
+     * counted.
+     *
+     * @return {@link UserCount}
+     */
+    public UserCount get() {
+        Counted current = counted;
+        if (current == null) {
+            refresh();
+            current = counted;
+        }
+        return new UserCount(current.users + delta.sum() - current.deltaBefore, false, current.at);
+    }
+
+    /**
+     * This method returns the planner's estimate of the number of users, which costs a catalog lookup. Before
+     * the table is first analyzed the cached count is returned instead.
+     *
+     * @return {@link UserCount}
+     */
+    public UserCount estimate() {
+        Long estimate = userRepository.estimateCount();
+        if (estimate == null || estimate < 0) {
+            return get();
+        }
+        return new UserCount(estimate, true, null);
+    }
+
+    /**
+     * This method adjusts the cached count by the given number of created (positive) or deleted (negative)
+     * users, after the current transaction commits when there is one.
+     *
+     * @param users number of created or deleted users
+     */
+    public void add(long users) {
+        if (users == 0) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delta.add(users);
+                }
+            });
+        } else {
+            delta.add(users);
+        }
+    }
+
+    /**
+     * This method counts the users exactly and replaces the cached count.
+     */
+    public synchronized void refresh() {
+        long start = System.nanoTime();
+        // the delta is read right before and after the snapshot, on the primary where the writes commit
+        Counted count = ReadReplicaRouting.onPrimary(() -> {
+            for (int attempt = 1; ; attempt++) {
+                boolean lastAttempt = attempt == MAX_SNAPSHOT_ATTEMPTS;
+                Counted attempted = snapshotTransactionTemplate.execute(status -> {
+                    long deltaBefore = delta.sum();
+                    userRepository.takeSnapshot();
+                    // writes adjusted in between may or may not be in the snapshot, the last attempt counts
+                    // them twice rather than never finishing
+                    if (delta.sum() != deltaBefore && !lastAttempt) {
+                        return null;
+                    }
+                    // writes adjusted before the snapshot are in it, later ones are added to the count
+                    return new Counted(userRepository.count(), deltaBefore, Instant.now());
+                });
+                if (attempted != null) {
+                    return attempted;
+                }
+            }
+        });
+        counted = count;
+        LOGGER.debug("Counted {} users in {} ms", count.users, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void refreshIfCounted() {
+        Counted current = counted;
+        if (current == null) return;
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("User count refresh failed, keeping the count of {}", current.at, ex);
+        }
+    }
+
+    // one count, published at once so readers never combine a new count with the writes it already has
+    private static final class Counted {
+        private final long users;
+        private final long deltaBefore;
+        private final Instant at;
+
+        private Counted(long users, long deltaBefore, Instant at) {
+            this.users = users;
+            this.deltaBefore = deltaBefore;
+            this.at = at;
+        }
+    }
+}
@@ -1,21 +1,47 @@
 package com.scalegrid.assignment.user.controller;
 
 import com.scalegrid.assignment.exception.GlobalExceptionHandler;
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.exception.PreconditionFailedException;
 import com.scalegrid.assignment.exception.ResourceNotFoundException;
+import com.scalegrid.assignment.user.export.UserExportFormat;
+import com.scalegrid.assignment.user.export.UserStream;
+import com.scalegrid.assignment.user.export.UserStreamFormat;
+import com.scalegrid.assignment.user.idempotency.IdempotentUserCreation;
+import com.scalegrid.assignment.user.importer.UserImportFormat;
 import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.dto.UserBatchResult;
+import com.scalegrid.assignment.user.model.dto.UserCount;
+import com.scalegrid.assignment.user.model.dto.UserCursorPage;
 import com.scalegrid.assignment.user.model.dto.UserDto;
+import com.scalegrid.assignment.user.model.dto.UserImportResult;
+import com.scalegrid.assignment.user.model.dto.UserLookupRequest;
+import com.scalegrid.assignment.user.model.dto.UserLookupResult;
+import com.scalegrid.assignment.user.model.dto.UserSearchCriteria;
+import com.scalegrid.assignment.user.model.dto.UserSearchPage;
+import com.scalegrid.assignment.user.repository.UserWriteResult;
 import com.scalegrid.assignment.user.service.IUserService;
+import com.scalegrid.assignment.user.util.UserETag;
+import io.micrometer.core.annotation.Timed;
 import io.swagger.annotations.ApiOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.constraints.Email;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>Controller class for managing user related operations.</p>
@@ -24,30 +50,112 @@ import java.util.List;
 @RequestMapping("/api/v1/users")
 public class UserController {
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+    private static final String REQUEST_TIMER = "users.api.requests";
+    private static final String OPERATION = "operation";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
     private final IUserService userService;
+    private final IdempotentUserCreation idempotentUserCreation;
 
     /**
      * Constructs a new {@link UserController} instance
      *
-     * @param userService {@link IUserService}
+     * @param userService            {@link IUserService}
+     * @param idempotentUserCreation {@link IdempotentUserCreation}
      */
-    public UserController(IUserService userService) {
+    public UserController(IUserService userService, IdempotentUserCreation idempotentUserCreation) {
         this.userService = userService;
+        this.idempotentUserCreation = idempotentUserCreation;
     }
 
     /**
      * This end point creates new user
      *
-     * @param userDto {@link UserDto}
+     * @param userDto        {@link UserDto}
+     * @param idempotencyKey {@link String} optional key making retries of the creation safe
      * @return {@link ResponseEntity}
+     * @throws {@link InvalidRequestException} If the idempotency key is invalid or was used for another user.
      */
-    @ApiOperation(value = "This API creates new user and for duplicate email it throws exception")
+    @ApiOperation(value = "This API creates new user and for duplicate email it throws exception. With an " +
+            "Idempotency-Key, retries of the request return the user created first instead of creating another")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "createUser"}, histogram = true)
     @PostMapping
-    public ResponseEntity createUser(@RequestBody UserDto userDto) {
+    public ResponseEntity createUser(@RequestBody UserDto userDto,
+                                     @RequestHeader(value = IdempotentUserCreation.HEADER, required = false)
+                                     String idempotencyKey) {
         LOGGER.debug("User creation started: {}", userDto.toString());
-        User user = userService.createUser(userDto);
-        LOGGER.debug("User creation end successfully: {}", user.toString());
-        return new ResponseEntity(user, HttpStatus.CREATED);
+        if (idempotencyKey == null) {
+            User user = userService.createUser(userDto);
+            LOGGER.debug("User creation end successfully: {}", user.toString());
+            return new ResponseEntity(user, eTagHeaders(user), HttpStatus.CREATED);
+        }
+        IdempotentUserCreation.Result result = idempotentUserCreation.createUser(idempotencyKey, userDto,
+                userService::createUser);
+        User user = result.getUser();
+        LOGGER.debug("User creation end successfully: {}, replayed: {}", user.toString(), result.isReplayed());
+        HttpHeaders headers = eTagHeaders(user);
+        if (result.isReplayed()) {
+            headers.set(IDEMPOTENT_REPLAYED, "true");
+        }
+        return new ResponseEntity(user, headers, HttpStatus.CREATED);
+    }
+
+    /**
+     * This end point creates many users in JDBC batches
+     *
+     * @param userDtos {@link List<UserDto>}
+     * @return {@link ResponseEntity}
+     */
+    @ApiOperation(value = "This API creates many users at once and reports duplicate " +
+            "or invalid items per item without failing the whole batch")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "createUsers"}, histogram = true)
+    @PostMapping("/batch")
+    public ResponseEntity createUsers(@RequestBody List<UserDto> userDtos) {
+        LOGGER.debug("Batch user creation of {} users started", userDtos.size());
+        List<UserBatchResult> results = userService.createUsers(userDtos);
+        LOGGER.debug("Batch user creation of {} users end successfully", userDtos.size());
+        return new ResponseEntity(results, HttpStatus.OK);
+    }
+
+    /**
+     * This end point resolves many users by email and/or id in one call
+     *
+     * @param request {@link UserLookupRequest}
+     * @return {@link ResponseEntity}
+     * @throws {@link InvalidRequestException} If the request holds too many emails and ids.
+     */
+    @ApiOperation(value = "This API resolves many users by email and/or id at once and lists " +
+            "the emails and ids no user has")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "lookupUsers"}, histogram = true)
+    @PostMapping("/lookup")
+    public ResponseEntity lookupUsers(@RequestBody UserLookupRequest request) {
+        LOGGER.debug("User lookup: {} started", request);
+        UserLookupResult result = userService.lookupUsers(request);
+        LOGGER.debug("User lookup: {} end successfully: {} found", request, result.getUsers().size());
+        return new ResponseEntity(result, HttpStatus.OK);
+    }
+
+    /**
+     * This end point imports users from a streamed CSV or NDJSON upload
+     *
+     * @param format      {@link String} ndjson or csv
+     * @param update      whether users with an existing email are updated instead of skipped
+     * @param inputStream {@link InputStream} request body
+     * @return {@link ResponseEntity}
+     * @throws {@link InvalidRequestException} If the format is unknown or the CSV header is invalid.
+     */
+    @ApiOperation(value = "This API imports users from a CSV or NDJSON request body read as it arrives. " +
+            "Invalid records and duplicate emails are counted in the summary without failing the import")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "importUsers"}, histogram = true)
+    @PostMapping("/import")
+    public ResponseEntity importUsers(@RequestParam(defaultValue = "ndjson") String format,
+                                      @RequestParam(defaultValue = "false") boolean update,
+                                      InputStream inputStream) throws IOException {
+        UserImportFormat importFormat = UserImportFormat.of(format);
+        LOGGER.debug("User import as {} started", importFormat);
+        UserImportResult result = userService.importUsers(importFormat, update, inputStream);
+        LOGGER.debug("User import as {} end successfully: {} received, {} created", importFormat,
+                result.getReceived(), result.getCreated());
+        return new ResponseEntity(result, HttpStatus.OK);
     }
 
     /**
@@ -55,32 +163,60 @@ public class UserController {
      *
      * @param userDto {@link UserDto}
      * @param id      {@link Long}
+     * @param ifMatch {@link String} optional ETag the user must still have
      * @return {@link ResponseEntity}
      * @throws {@link ResourceNotFoundException} If the user is not found.
+     * @throws {@link PreconditionFailedException} If the user does not match the If-Match ETag.
      */
     @ApiOperation(value = "This API modifies existing user and " +
-            "if user not found for the given id, it throws exception")
+            "if user not found for the given id, it throws exception. With If-Match, a user modified " +
+            "since that ETag is left unchanged and 412 is returned")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "modifyUser"}, histogram = true)
     @PutMapping("/{id}")
-    public ResponseEntity modifyUser(@RequestBody UserDto userDto, @PathVariable Long id) {
+    public ResponseEntity modifyUser(@RequestBody UserDto userDto, @PathVariable Long id,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         LOGGER.debug("User with id: {} modification started", id);
-        User user = userService.modifyUser(userDto, id);
+        User user = userService.modifyUser(userDto, id, UserETag.expectedVersion(ifMatch, id));
         LOGGER.debug("User with id: {} modification end successfully", id);
-        return new ResponseEntity(user, HttpStatus.OK);
+        return new ResponseEntity(user, eTagHeaders(user), HttpStatus.OK);
+    }
+
+    /**
+     * This end point creates user or updates the user with the same email
+     *
+     * @param userDto {@link UserDto}
+     * @return {@link ResponseEntity}
+     */
+    @ApiOperation(value = "This API creates user or, if the email exists, updates name and birthdate " +
+            "of that user. It is idempotent")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "upsertUser"}, histogram = true)
+    @PutMapping
+    public ResponseEntity upsertUser(@RequestBody UserDto userDto) {
+        LOGGER.debug("User upsert started: {}", userDto.toString());
+        UserWriteResult result = userService.upsertUser(userDto);
+        LOGGER.debug("User upsert end successfully: {}", result.getId());
+        User user = result.toUser();
+        return new ResponseEntity(user, eTagHeaders(user), result.getInserted() ? HttpStatus.CREATED : HttpStatus.OK);
     }
 
     /**
      * This end point deletes user
      *
-     * @param id {@link Long}
+     * @param id      {@link Long}
+     * @param ifMatch {@link String} optional ETag the user must still have
      * @return {@link ResponseEntity}
      * @throws {@link ResourceNotFoundException} If the user is not found.
+     * @throws {@link PreconditionFailedException} If the user does not match the If-Match ETag.
      */
     @ApiOperation(value = "This API deletes user and" +
-            " if user not found for the given id, it throws exception")
+            " if user not found for the given id, it throws exception. With If-Match, a user modified " +
+            "since that ETag is kept and 412 is returned")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "removeUser"}, histogram = true)
     @DeleteMapping("/{id}")
-    public ResponseEntity removeUser(@PathVariable Long id) {
+    public ResponseEntity removeUser(@PathVariable Long id,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         LOGGER.debug("User with id: {} deletion started", id);
-        userService.removeUser(id);
+        userService.removeUser(id, UserETag.expectedVersion(ifMatch, id));
         LOGGER.debug("User with id: {} deletion end successfully", id);
         return new ResponseEntity(HttpEntity.EMPTY, HttpStatus.NO_CONTENT);
     }
@@ -92,6 +228,7 @@ public class UserController {
      * @return {@link ResponseEntity}
      */
     @ApiOperation(value = "This API gets list of users with or without pagination")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "getUsers"}, histogram = true)
     @GetMapping
     public ResponseEntity getUsers(Pageable pageable) {
         LOGGER.debug("Getting user list with pagination started");
@@ -101,13 +238,152 @@ public class UserController {
     }
 
     /**
-     * This end point get user by email
+     * This end point gets the number of users
+     *
+     * @param estimate whether the planner's estimate is enough
+     * @return {@link ResponseEntity}
+     */
+    @ApiOperation(value = "This API gets the number of users: the cached count, adjusted by the writes since it " +
+            "was taken, or with estimate=true the database's statistics estimate. Neither counts the table")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "countUsers"}, histogram = true)
+    @GetMapping("/count")
+    public ResponseEntity countUsers(@RequestParam(defaultValue = "false") boolean estimate) {
+        LOGGER.debug("Counting users started");
+        UserCount userCount = userService.countUsers(estimate);
+        LOGGER.debug("Counting users end successfully");
+        return new ResponseEntity(userCount, HttpStatus.OK);
+    }
+
+    /**
+     * This end point streams one page of the user list as a JSON array or as Server-Sent Events
+     *
+     * @param page   zero-based page number
+     * @param size   page size
+     * @param accept {@link String} text/event-stream for events, a JSON array otherwise
+     * @return {@link ResponseEntity}
+     * @throws {@link InvalidRequestException} If the page or the size is invalid.
+     */
+    @ApiOperation(value = "This API streams one page of users ordered by id, written as they are read. " +
+            "Memory use and time to the first user do not depend on the page size")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "streamUsers"}, histogram = true)
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(defaultValue = "0") int page,
+                                                             @RequestParam(defaultValue = "20") int size,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT,
+                                                                     required = false) String accept) {
+        UserStreamFormat streamFormat = UserStreamFormat.of(accept);
+        UserStream users = userService.streamUserList(page, size);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(streamFormat.getMediaType());
+        StreamingResponseBody body = outputStream -> {
+            LOGGER.debug("Streaming user list page: {} as {} started", page, streamFormat);
+            long count = users.writeTo(streamFormat.writer(outputStream));
+            LOGGER.debug("Streaming user list page: {} as {} end successfully: {} users", page, streamFormat, count);
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * This end point get user list with keyset (cursor) pagination
+     *
+     * @param after {@link String} cursor returned with the previous page
+     * @param size  page size
+     * @return {@link ResponseEntity}
+     */
+    @ApiOperation(value = "This API gets list of users ordered by id after the given cursor, " +
+            "deep pages cost the same as the first one")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "getUsersAfter"}, histogram = true)
+    @GetMapping("/cursor")
+    public ResponseEntity getUsersAfter(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "20") int size) {
+        LOGGER.debug("Getting user list after cursor: {} started", after);
+        UserCursorPage userPage = userService.getUserList(after, size);
+        LOGGER.debug("Getting user list after cursor: {} end successfully", after);
+        return new ResponseEntity(userPage, HttpStatus.OK);
+    }
+
+    /**
+     * This end point searches users by name, email prefix and birthdate range
+     *
+     * @param criteria {@link UserSearchCriteria}
+     * @param page     zero-based page number
+     * @param size     page size
+     * @return {@link ResponseEntity}
+     * @throws {@link InvalidRequestException} If a filter, the page or the size is invalid.
+     */
+    @ApiOperation(value = "This API searches users by name prefix or part, email prefix and birthdate range, " +
+            "all optional and combined, in pages ordered by id")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "searchUsers"}, histogram = true)
+    @GetMapping("/search")
+    public ResponseEntity searchUsers(UserSearchCriteria criteria,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size) {
+        LOGGER.debug("User search: {} started", criteria);
+        UserSearchPage userPage = userService.searchUsers(criteria, page, size);
+        LOGGER.debug("User search: {} end successfully", criteria);
+        return new ResponseEntity(userPage, HttpStatus.OK);
+    }
+
+    /**
+     * This end point streams every user as NDJSON or CSV
+     *
+     * @param format {@link String} ndjson or csv
+     * @return {@link ResponseEntity}
+     * @throws {@link InvalidRequestException} If the format is unknown.
+     */
+    @ApiOperation(value = "This API streams all users ordered by id as NDJSON or CSV, " +
+            "memory use does not depend on the number of users")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "exportUsers"}, histogram = true)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format) {
+        UserExportFormat exportFormat = UserExportFormat.of(format);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(exportFormat.getMediaType());
+        headers.setContentDisposition(ContentDisposition.attachment().filename(exportFormat.getFileName()).build());
+        StreamingResponseBody body = outputStream -> {
+            LOGGER.debug("User export as {} started", exportFormat);
+            long count = userService.exportUsers(exportFormat, outputStream);
+            LOGGER.debug("User export as {} end successfully: {} users", exportFormat, count);
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * This end point long-polls the user change feed
+     *
+     * @param since position of the last change the client has seen
+     * @param limit maximum number of changes
+     * @param wait  seconds to wait for a change when there is none yet
+     * @return {@link CompletableFuture} of {@link ResponseEntity}
+     * @throws {@link InvalidRequestException} If the limit or the wait is invalid, or since is not retained.
+     */
+    @ApiOperation(value = "This API returns the user creations, updates and deletions published after the since " +
+            "position, in order. When there is none it waits up to wait seconds for one; send next as since " +
+            "with the following request")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "getChanges"}, histogram = true)
+    @GetMapping("/changes")
+    public CompletableFuture<ResponseEntity> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                        @RequestParam(defaultValue = "100") int limit,
+                                                        @RequestParam(defaultValue = "0") long wait) {
+        LOGGER.debug("Getting user changes since: {} started", since);
+        return userService.getChanges(since, limit, Duration.ofSeconds(wait)).thenApply(page -> {
+            LOGGER.debug("Getting user changes since: {} end successfully: {} changes", since,
+                    page.getChanges().size());
+            return new ResponseEntity(page, HttpStatus.OK);
+        });
+    }
+
+    /**
+     * This end point get user by email. The response carries the user's ETag; when If-None-Match holds it,
+     * 304 Not Modified is returned without serializing the user.
      *
      * @param email {@link String}
      * @return {@link ResponseEntity}
      * @throws {@link ResourceNotFoundException} If the user is not found.
      */
-    @ApiOperation(value = "This API get user by email and if user not found, it throws exception")
+    @ApiOperation(value = "This API get user by email and if user not found, it throws exception. " +
+            "Send the returned ETag as If-None-Match to get 304 Not Modified while the user is unchanged")
+    @Timed(value = REQUEST_TIMER, extraTags = {OPERATION, "getUserWithEmail"}, histogram = true)
     @GetMapping("/{email}")
     public ResponseEntity getUserWithEmail(
             @Email(message = "Invalid email format")
@@ -115,6 +391,15 @@ public class UserController {
         LOGGER.debug("Getting user with email: {} started", email);
         User user = userService.getUser(email);
         LOGGER.debug("Getting user with email: {} end successfully", email);
-        return new ResponseEntity(user, HttpStatus.OK);
+        // Spring answers 304 itself, before writing the body, when If-None-Match holds this ETag
+        return new ResponseEntity(user, eTagHeaders(user), HttpStatus.OK);
+    }
+
+    private static HttpHeaders eTagHeaders(User user) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(UserETag.of(user));
+        headers.setCacheControl(CacheControl.noCache());
+        headers.setVary(List.of(HttpHeaders.ACCEPT));
+        return headers;
     }
 }
@@ -0,0 +1,51 @@
+package com.scalegrid.assignment.user.export;
+
+import com.scalegrid.assignment.user.repository.UserRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Writes RFC 4180 CSV with a header line. Values holding a comma, a quote or a line break are quoted.</p>
+ */
+class CsvUserExportWriter implements UserExportWriter {
+    private static final String HEADER = "id,name,email,birthDate\r\n";
+    private final Writer writer;
+
+    CsvUserExportWriter(OutputStream outputStream) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.writer.write(HEADER);
+    }
+
+    @Override
+    public void write(UserRow row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writeValue(row.getName());
+        writer.write(',');
+        writeValue(row.getEmail());
+        writer.write(',');
+        writeValue(row.getBirthDate() == null ? null : row.getBirthDate().toString());
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeValue(String value) throws IOException {
+        if (value == null) return;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
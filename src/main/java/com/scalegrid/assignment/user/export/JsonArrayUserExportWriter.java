@@ -0,0 +1,39 @@
+package com.scalegrid.assignment.user.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.scalegrid.assignment.user.repository.UserRow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>Writes one JSON array, element by element, holding the same objects as the list endpoints. The array is
+ * closed by {@link #finish()}.</p>
+ */
+class JsonArrayUserExportWriter implements UserExportWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final JsonGenerator generator;
+
+    JsonArrayUserExportWriter(OutputStream outputStream) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(outputStream);
+        this.generator.writeStartArray();
+    }
+
+    @Override
+    public void write(UserRow row) throws IOException {
+        UserRowJson.write(generator, row);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.writeEndArray();
+        generator.flush();
+    }
+}
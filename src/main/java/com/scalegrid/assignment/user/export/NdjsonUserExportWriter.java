@@ -0,0 +1,39 @@
+package com.scalegrid.assignment.user.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.scalegrid.assignment.user.repository.UserRow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>Writes one JSON object per line, with the same fields as the {@link com.scalegrid.assignment.user.model.User}
+ * JSON of the other endpoints.</p>
+ */
+class NdjsonUserExportWriter implements UserExportWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final JsonGenerator generator;
+
+    NdjsonUserExportWriter(OutputStream outputStream) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(outputStream);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void write(UserRow row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", row.getId());
+        generator.writeStringField("name", row.getName());
+        generator.writeStringField("email", row.getEmail());
+        generator.writeStringField("birthDate", row.getBirthDate() == null ? null : row.getBirthDate().toString());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,45 @@
+package com.scalegrid.assignment.user.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.scalegrid.assignment.user.repository.UserRow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>Writes Server-Sent Events: one {@code user} event per row, with the user id as event id and the user
+ * JSON as data, and a closing {@code end} event. {@code EventSource} clients must close on {@code end},
+ * otherwise they reconnect and read the page again.</p>
+ */
+class SseUserExportWriter implements UserExportWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final String END_EVENT = "event: end\ndata:\n\n";
+    private final JsonGenerator generator;
+
+    SseUserExportWriter(OutputStream outputStream) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(outputStream);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void write(UserRow row) throws IOException {
+        generator.writeRaw("event: user\nid: ");
+        generator.writeRaw(String.valueOf(row.getId()));
+        generator.writeRaw("\ndata: ");
+        UserRowJson.write(generator, row);
+        generator.writeRaw("\n\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.writeRaw(END_EVENT);
+        generator.flush();
+    }
+}
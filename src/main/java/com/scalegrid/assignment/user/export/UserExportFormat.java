@@ -0,0 +1,67 @@
+package com.scalegrid.assignment.user.export;
+
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * <p>Formats of the user export.</p>
+ */
+public enum UserExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "users.ndjson") {
+        @Override
+        public UserExportWriter writer(OutputStream outputStream) throws IOException {
+            return new NdjsonUserExportWriter(outputStream);
+        }
+    },
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "users.csv") {
+        @Override
+        public UserExportWriter writer(OutputStream outputStream) throws IOException {
+            return new CsvUserExportWriter(outputStream);
+        }
+    };
+
+    private static final String INVALID_FORMAT = "Export format must be ndjson or csv: ";
+    private final MediaType mediaType;
+    private final String fileName;
+
+    UserExportFormat(MediaType mediaType, String fileName) {
+        this.mediaType = mediaType;
+        this.fileName = fileName;
+    }
+
+    /**
+     * This method creates a writer of this format on top of the given stream.
+     *
+     * @param outputStream {@link OutputStream}
+     * @return {@link UserExportWriter}
+     * @throws IOException If the stream can not be written.
+     */
+    public abstract UserExportWriter writer(OutputStream outputStream) throws IOException;
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * This method resolves the format from its case-insensitive name.
+     *
+     * @param name {@link String}
+     * @return {@link UserExportFormat}
+     * @throws InvalidRequestException If the name is not a known format.
+     */
+    public static UserExportFormat of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            throw new InvalidRequestException(INVALID_FORMAT.concat(String.valueOf(name)));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.scalegrid.assignment.user.export;
+
+import com.scalegrid.assignment.user.repository.UserRow;
+
+import java.io.IOException;
+
+/**
+ * <p>Writes exported users one row at a time. Implementations buffer their output and never close
+ * the underlying stream.</p>
+ */
+public interface UserExportWriter {
+    /**
+     * This method writes one user.
+     *
+     * @param row {@link UserRow}
+     * @throws IOException If the client went away.
+     */
+    void write(UserRow row) throws IOException;
+
+    /**
+     * This method writes what is still buffered to the underlying stream.
+     *
+     * @throws IOException If the client went away.
+     */
+    void flush() throws IOException;
+
+    /**
+     * This method ends the output, like closing a JSON array, and writes what is still buffered to the
+     * underlying stream.
+     *
+     * @throws IOException If the client went away.
+     */
+    default void finish() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,30 @@
+package com.scalegrid.assignment.user.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.scalegrid.assignment.user.repository.UserRow;
+
+import java.io.IOException;
+
+/**
+ * <p>Writes a row as the same JSON object as a {@link com.scalegrid.assignment.user.model.User} returned by
+ * the list endpoints, version included.</p>
+ */
+final class UserRowJson {
+
+    private UserRowJson() {
+    }
+
+    static void write(JsonGenerator generator, UserRow row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", row.getId());
+        generator.writeStringField("name", row.getName());
+        generator.writeStringField("email", row.getEmail());
+        generator.writeStringField("birthDate", row.getBirthDate() == null ? null : row.getBirthDate().toString());
+        if (row.getVersion() == null) {
+            generator.writeNullField("version");
+        } else {
+            generator.writeNumberField("version", row.getVersion());
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,19 @@
+package com.scalegrid.assignment.user.export;
+
+import java.io.IOException;
+
+/**
+ * <p>Users read on demand: nothing is read before {@link #writeTo(UserExportWriter)} runs, and rows are
+ * written as they arrive from the database.</p>
+ */
+@FunctionalInterface
+public interface UserStream {
+    /**
+     * This method reads the users and writes them one at a time, then finishes the writer.
+     *
+     * @param writer {@link UserExportWriter}
+     * @return number of written users
+     * @throws IOException If the client went away.
+     */
+    long writeTo(UserExportWriter writer) throws IOException;
+}
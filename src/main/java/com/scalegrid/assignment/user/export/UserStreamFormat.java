@@ -0,0 +1,62 @@
+package com.scalegrid.assignment.user.export;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>Formats of the streamed user list, chosen by the {@code Accept} header.</p>
+ */
+public enum UserStreamFormat {
+    JSON(MediaType.APPLICATION_JSON) {
+        @Override
+        public UserExportWriter writer(OutputStream outputStream) throws IOException {
+            return new JsonArrayUserExportWriter(outputStream);
+        }
+    },
+    SSE(MediaType.TEXT_EVENT_STREAM) {
+        @Override
+        public UserExportWriter writer(OutputStream outputStream) throws IOException {
+            return new SseUserExportWriter(outputStream);
+        }
+    };
+
+    private final MediaType mediaType;
+
+    UserStreamFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * This method creates a writer of this format on top of the given stream.
+     *
+     * @param outputStream {@link OutputStream}
+     * @return {@link UserExportWriter}
+     * @throws IOException If the stream can not be written.
+     */
+    public abstract UserExportWriter writer(OutputStream outputStream) throws IOException;
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * This method resolves the format from an {@code Accept} header: events when they are asked for
+     * explicitly, a JSON array otherwise.
+     *
+     * @param accept {@link String} header value, may be null
+     * @return {@link UserStreamFormat}
+     */
+    public static UserStreamFormat of(String accept) {
+        if (accept == null) return JSON;
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM)
+                            && mediaType.getQualityValue() > 0) ? SSE : JSON;
+        } catch (InvalidMediaTypeException ex) {
+            return JSON;
+        }
+    }
+}
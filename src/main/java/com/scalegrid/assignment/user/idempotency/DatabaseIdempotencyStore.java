@@ -0,0 +1,84 @@
+package com.scalegrid.assignment.user.idempotency;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.repository.UserIdempotencyKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * <p>Keeps responses in the {@code user_idempotency_key} table, shared by all instances.</p>
+ *
+ * <p>A key is looked up and its request run in one transaction holding the key's advisory lock, and the
+ * request joins that transaction. The user and the key's response therefore commit together, and a
+ * duplicate sent to another instance waits for the lock and then replays the response. Expired keys are
+ * purged every {@code app.user.idempotency.purge-interval}.</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.user.idempotency", name = "store", havingValue = "database")
+public class DatabaseIdempotencyStore implements IdempotencyStore, SchedulingConfigurer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseIdempotencyStore.class);
+    private static final int PURGE_LIMIT = 10000;
+    private final UserIdempotencyKeyRepository userIdempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UserProperties.Idempotency properties;
+
+    /**
+     * Constructs a new {@link DatabaseIdempotencyStore} instance
+     *
+     * @param userIdempotencyKeyRepository {@link UserIdempotencyKeyRepository}
+     * @param transactionManager           {@link PlatformTransactionManager}
+     * @param userProperties               {@link UserProperties}
+     */
+    public DatabaseIdempotencyStore(UserIdempotencyKeyRepository userIdempotencyKeyRepository,
+                                    PlatformTransactionManager transactionManager, UserProperties userProperties) {
+        this.userIdempotencyKeyRepository = userIdempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = userProperties.getIdempotency();
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::purge, properties.getPurgeInterval().toMillis());
+    }
+
+    @Override
+    public IdempotentResponse execute(String key, Supplier<IdempotentResponse> request) {
+        return transactionTemplate.execute(status -> {
+            userIdempotencyKeyRepository.lock(key);
+            return userIdempotencyKeyRepository.findByKeyAndCreatedAtAfter(key, Instant.now().minus(properties.getTtl()))
+                    .map(stored -> new IdempotentResponse(stored.getFingerprint(), stored.getUserId(), stored.getName(),
+                            stored.getEmail(), stored.getBirthDate(), stored.getVersion()))
+                    .orElseGet(() -> {
+                        IdempotentResponse response = request.get();
+                        userIdempotencyKeyRepository.store(key, response.getFingerprint(), response.getId(),
+                                response.getName(), response.getEmail(), response.getBirthDate(), response.getVersion());
+                        return response;
+                    });
+        });
+    }
+
+    /**
+     * This method deletes the keys past their time to live. Failures are logged and retried on the next run.
+     */
+    public void purge() {
+        try {
+            Instant before = Instant.now().minus(properties.getTtl());
+            Integer purged;
+            do {
+                purged = transactionTemplate.execute(status ->
+                        userIdempotencyKeyRepository.deleteCreatedBefore(before, PURGE_LIMIT));
+            } while (purged != null && purged == PURGE_LIMIT);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Idempotency key purge failed, retrying in {}", properties.getPurgeInterval(), ex);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.scalegrid.assignment.user.idempotency;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>IdempotencyStore keeps the response of each idempotency key for {@code app.user.idempotency.ttl}. The
+ * store is selected with {@code app.user.idempotency.store}.</p>
+ *
+ * <p>Only successful responses are stored: a request that fails leaves its key unused, so a retry runs
+ * again.</p>
+ */
+public interface IdempotencyStore {
+
+    /**
+     * This method returns the stored response of the key, or runs the request and stores its response. Calls
+     * for one key must not overlap on one instance.
+     *
+     * @param key     idempotency key
+     * @param request {@link Supplier} run when the key has no response
+     * @return {@link IdempotentResponse}
+     */
+    IdempotentResponse execute(String key, Supplier<IdempotentResponse> request);
+}
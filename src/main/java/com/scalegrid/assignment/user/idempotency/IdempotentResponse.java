@@ -0,0 +1,67 @@
+package com.scalegrid.assignment.user.idempotency;
+
+import com.scalegrid.assignment.user.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * <p>IdempotentResponse class is what a key replays: the user created by the key's first request, as it was
+ * then, and the fingerprint of that request.</p>
+ */
+public final class IdempotentResponse {
+    private final String fingerprint;
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final LocalDate birthDate;
+    private final Long version;
+
+    public IdempotentResponse(String fingerprint, Long id, String name, String email, LocalDate birthDate,
+                              Long version) {
+        this.fingerprint = fingerprint;
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.birthDate = birthDate;
+        this.version = version;
+    }
+
+    public static IdempotentResponse of(String fingerprint, User user) {
+        return new IdempotentResponse(fingerprint, user.getId(), user.getName(), user.getEmail(), user.getBirthDate(),
+                user.getVersion());
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a new {@link User} holding the created user's values
+     */
+    public User toUser() {
+        User user = new User(name, email, birthDate);
+        user.setId(id);
+        user.setVersion(version);
+        return user;
+    }
+}
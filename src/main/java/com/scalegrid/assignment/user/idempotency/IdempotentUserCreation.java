@@ -0,0 +1,135 @@
+package com.scalegrid.assignment.user.idempotency;
+
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.user.cache.SingleFlight;
+import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.dto.UserDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * <p>IdempotentUserCreation class makes user creation safe to retry with an {@code Idempotency-Key}: the first
+ * request of a key creates the user, later requests of the key replay the created user without creating
+ * anything, for as long as the {@link IdempotencyStore} keeps the key.</p>
+ *
+ * <p>Requests of one key arriving while its first request runs wait for it through {@link SingleFlight} and
+ * share its outcome, so they also share its exception when it fails; a failed key is not stored and its
+ * next request runs again. A key sent with another user than its first request is rejected.</p>
+ */
+@Component
+public class IdempotentUserCreation {
+    /**
+     * Request header holding the idempotency key
+     */
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String INVALID_KEY = "Idempotency key must have between 1 and " + MAX_KEY_LENGTH
+            + " characters";
+    private static final String KEY_REUSED = "Idempotency key was already used to create another user: ";
+    private final IdempotencyStore idempotencyStore;
+    private final SingleFlight<String, Outcome> inFlight = new SingleFlight<>();
+    private final Counter executedCounter;
+    private final Counter replayedCounter;
+
+    /**
+     * Constructs a new {@link IdempotentUserCreation} instance
+     *
+     * @param idempotencyStore {@link IdempotencyStore}
+     * @param meterRegistry    {@link MeterRegistry}
+     */
+    public IdempotentUserCreation(IdempotencyStore idempotencyStore, MeterRegistry meterRegistry) {
+        this.idempotencyStore = idempotencyStore;
+        this.executedCounter = Counter.builder("users.idempotency.requests")
+                .tag("outcome", "executed")
+                .description("User creations with an idempotency key, run or replayed")
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("users.idempotency.requests")
+                .tag("outcome", "replayed")
+                .description("User creations with an idempotency key, run or replayed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * This method creates the user once per key.
+     *
+     * @param key     idempotency key
+     * @param userDto {@link UserDto}
+     * @param create  {@link Function} creating the user, run by the first request of the key only
+     * @return {@link Result} created user and whether it was replayed
+     * @throws InvalidRequestException If the key is blank or too long, or was used with another user.
+     */
+    public Result createUser(String key, UserDto userDto, Function<UserDto, User> create) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException(INVALID_KEY);
+        }
+        String fingerprint = fingerprint(userDto);
+        Thread caller = Thread.currentThread();
+        Outcome outcome = inFlight.execute(key, ignored -> {
+            boolean[] executed = new boolean[1];
+            IdempotentResponse response = idempotencyStore.execute(key, () -> {
+                executed[0] = true;
+                return IdempotentResponse.of(fingerprint, create.apply(userDto));
+            });
+            return new Outcome(response, executed[0] ? caller : null);
+        });
+        if (!outcome.response.getFingerprint().equals(fingerprint)) {
+            throw new InvalidRequestException(KEY_REUSED.concat(key));
+        }
+        boolean replayed = outcome.executor != caller;
+        (replayed ? replayedCounter : executedCounter).increment();
+        return new Result(outcome.response.toUser(), replayed);
+    }
+
+    private static String fingerprint(UserDto userDto) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(userDto.getName()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(userDto.getEmail()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(userDto.getDateOfBirth()).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Created user of a request, and whether it was replayed from an earlier request of the key
+     */
+    public static final class Result {
+        private final User user;
+        private final boolean replayed;
+
+        public Result(User user, boolean replayed) {
+            this.user = user;
+            this.replayed = replayed;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    private static final class Outcome {
+        private final IdempotentResponse response;
+        // the thread whose request created the user, null when the store replayed it
+        private final Thread executor;
+
+        private Outcome(IdempotentResponse response, Thread executor) {
+            this.response = response;
+            this.executor = executor;
+        }
+    }
+}
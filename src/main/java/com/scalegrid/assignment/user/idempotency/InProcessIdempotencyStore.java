@@ -0,0 +1,53 @@
+package com.scalegrid.assignment.user.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scalegrid.assignment.config.UserProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>Keeps responses in a Caffeine cache of this instance, bounded by {@code app.user.idempotency.max-keys}
+ * and expired after {@code app.user.idempotency.ttl}. A key evicted early, or sent to another instance, runs
+ * its request again. This is the default store.</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.user.idempotency", name = "store", havingValue = "in-process",
+        matchIfMissing = true)
+public class InProcessIdempotencyStore implements IdempotencyStore {
+    private final Cache<String, IdempotentResponse> responses;
+
+    /**
+     * Constructs a new {@link InProcessIdempotencyStore} instance
+     *
+     * @param userProperties {@link UserProperties}
+     */
+    public InProcessIdempotencyStore(UserProperties userProperties) {
+        UserProperties.Idempotency properties = userProperties.getIdempotency();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxKeys())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    @Override
+    public IdempotentResponse execute(String key, Supplier<IdempotentResponse> request) {
+        IdempotentResponse stored = responses.getIfPresent(key);
+        if (stored != null) return stored;
+        IdempotentResponse response = request.get();
+        responses.put(key, response);
+        return response;
+    }
+
+    /**
+     * This method returns the number of stored keys, after running pending evictions.
+     *
+     * @return number of keys
+     */
+    public long size() {
+        responses.cleanUp();
+        return responses.estimatedSize();
+    }
+}
@@ -0,0 +1,114 @@
+package com.scalegrid.assignment.user.importer;
+
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.user.model.dto.UserDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>Reads RFC 4180 CSV. The header line names the columns: {@code name}, {@code email} and
+ * {@code dateOfBirth} or {@code birthDate}, in any order; other columns, like the {@code id} of a CSV
+ * export, are ignored. Quoted values may hold commas, quotes and line breaks.</p>
+ */
+class CsvUserImportReader implements UserImportReader {
+    private static final String MISSING_COLUMNS = "CSV header must name the columns name, email and dateOfBirth";
+    private final Reader reader;
+    private final int nameColumn;
+    private final int emailColumn;
+    private final int birthDateColumn;
+    private int line;
+    private boolean ended;
+
+    CsvUserImportReader(InputStream inputStream) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<String> header = readRecord();
+        int name = -1, email = -1, birthDate = -1;
+        for (int i = 0; header != null && i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (column.equals("name")) name = i;
+            else if (column.equals("email")) email = i;
+            else if (column.equals("dateofbirth") || column.equals("birthdate")) birthDate = i;
+        }
+        if (name < 0 || email < 0 || birthDate < 0) {
+            throw new InvalidRequestException(MISSING_COLUMNS);
+        }
+        this.nameColumn = name;
+        this.emailColumn = email;
+        this.birthDateColumn = birthDate;
+    }
+
+    @Override
+    public UserImportRecord next() throws IOException {
+        List<String> values;
+        do {
+            values = readRecord();
+            if (values == null) return null;
+        } while (values.size() == 1 && values.get(0).isEmpty());
+        line++;
+        if (values.size() <= Math.max(nameColumn, Math.max(emailColumn, birthDateColumn))) {
+            return UserImportRecord.malformed(line, "Record has fewer columns than the header");
+        }
+        try {
+            return UserImportRecord.parsed(line, new UserDto(emptyToNull(values.get(nameColumn)),
+                    emptyToNull(values.get(emailColumn)),
+                    UserImportFormat.parseDate(emptyToNull(values.get(birthDateColumn)))));
+        } catch (IllegalArgumentException ex) {
+            return UserImportRecord.malformed(line, ex.getMessage());
+        }
+    }
+
+    private List<String> readRecord() throws IOException {
+        if (ended) return null;
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        int c = reader.read();
+        if (c < 0) {
+            ended = true;
+            return null;
+        }
+        while (true) {
+            if (c < 0) {
+                ended = true;
+                break;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                value.append((char) c);
+            }
+            c = reader.read();
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
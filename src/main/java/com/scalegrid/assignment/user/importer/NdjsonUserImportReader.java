@@ -0,0 +1,71 @@
+package com.scalegrid.assignment.user.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.scalegrid.assignment.user.model.dto.UserDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Reads one JSON object per line with the fields of {@link UserDto}. The birthdate is also accepted as
+ * {@code birthDate}, so an NDJSON export can be imported again. Unknown fields are ignored.</p>
+ */
+class NdjsonUserImportReader implements UserImportReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private final BufferedReader reader;
+    private int line;
+
+    NdjsonUserImportReader(InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public UserImportRecord next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) return null;
+        } while (text.isBlank());
+        line++;
+        try (JsonParser parser = JSON_FACTORY.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return UserImportRecord.malformed(line, "Line is not a JSON object");
+            }
+            UserDto user = new UserDto();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String string = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                switch (field) {
+                    case "name":
+                        user.setName(string);
+                        break;
+                    case "email":
+                        user.setEmail(string);
+                        break;
+                    case "dateOfBirth":
+                    case "birthDate":
+                        user.setDateOfBirth(UserImportFormat.parseDate(string));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return UserImportRecord.parsed(line, user);
+        } catch (JsonProcessingException ex) {
+            return UserImportRecord.malformed(line, "Line is not valid JSON: ".concat(ex.getOriginalMessage()));
+        } catch (IllegalArgumentException ex) {
+            return UserImportRecord.malformed(line, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.scalegrid.assignment.user.importer;
+
+import com.scalegrid.assignment.exception.InvalidRequestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * <p>Formats of the user import.</p>
+ */
+public enum UserImportFormat {
+    NDJSON {
+        @Override
+        public UserImportReader reader(InputStream inputStream) {
+            return new NdjsonUserImportReader(inputStream);
+        }
+    },
+    CSV {
+        @Override
+        public UserImportReader reader(InputStream inputStream) throws IOException {
+            return new CsvUserImportReader(inputStream);
+        }
+    };
+
+    private static final String INVALID_FORMAT = "Import format must be ndjson or csv: ";
+    private static final String INVALID_DATE = "Birthdate must be formatted as yyyy-MM-dd: ";
+
+    /**
+     * This method creates a reader of this format on top of the given stream.
+     *
+     * @param inputStream {@link InputStream}
+     * @return {@link UserImportReader}
+     * @throws IOException             If the stream can not be read.
+     * @throws InvalidRequestException If the upload does not start as expected by the format.
+     */
+    public abstract UserImportReader reader(InputStream inputStream) throws IOException;
+
+    /**
+     * This method resolves the format from its case-insensitive name.
+     *
+     * @param name {@link String}
+     * @return {@link UserImportFormat}
+     * @throws InvalidRequestException If the name is not a known format.
+     */
+    public static UserImportFormat of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            throw new InvalidRequestException(INVALID_FORMAT.concat(String.valueOf(name)));
+        }
+    }
+
+    static LocalDate parseDate(String value) {
+        if (value == null) return null;
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException(INVALID_DATE.concat(value));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.scalegrid.assignment.user.importer;
+
+import java.io.IOException;
+
+/**
+ * <p>Reads an uploaded user file one record at a time, so the upload is never buffered as a whole.</p>
+ */
+public interface UserImportReader {
+    /**
+     * This method reads the next record. A record that can not be parsed is returned with its error
+     * and reading goes on with the following one.
+     *
+     * @return {@link UserImportRecord}, null at the end of the upload
+     * @throws IOException If the upload can not be read.
+     */
+    UserImportRecord next() throws IOException;
+}
@@ -0,0 +1,41 @@
+package com.scalegrid.assignment.user.importer;
+
+import com.scalegrid.assignment.user.model.dto.UserDto;
+
+/**
+ * <p>One record of an import: the parsed user, or the reason the record could not be parsed.</p>
+ */
+public class UserImportRecord {
+    private final int line;
+    private final UserDto user;
+    private final String error;
+
+    private UserImportRecord(int line, UserDto user, String error) {
+        this.line = line;
+        this.user = user;
+        this.error = error;
+    }
+
+    public static UserImportRecord parsed(int line, UserDto user) {
+        return new UserImportRecord(line, user, null);
+    }
+
+    public static UserImportRecord malformed(int line, String error) {
+        return new UserImportRecord(line, null, error);
+    }
+
+    /**
+     * @return position of the record in the upload, starting at 1 and not counting a header
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public UserDto getUser() {
+        return user;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
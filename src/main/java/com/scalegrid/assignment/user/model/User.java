@@ -11,16 +11,20 @@ import java.util.Objects;
 @Table(name = "users")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Name is required")
     @Column(nullable = false)
     private String name;
 
+    /**
+     * Stored normalized, unique through the index on {@code lower(email)} of the schema migrations
+     */
     @NotBlank(message = "Email is required")
     @Email(message = "Email format is invalid")
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
 
@@ -28,6 +32,13 @@ public class User {
     @Column(nullable = false)
     private LocalDate birthDate;
 
+    /**
+     * Bumped by every write, native statements included; the ETag of the user is built from id and version
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     public User() {
     }
 
@@ -69,6 +80,14 @@ public class User {
         this.birthDate = birthDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -90,6 +109,7 @@ public class User {
         sb.append(", name='").append(name);
         sb.append("', email='").append(email);
         sb.append("', birthDate=").append(birthDate);
+        sb.append(", version=").append(version);
         sb.append(')');
         return sb.toString();
     }
@@ -0,0 +1,172 @@
+package com.scalegrid.assignment.user.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * <p>UserAudit entity is one row of the user audit log: who wrote which user, with the user's values before
+ * and after the write. Values before a create and after a remove are null.</p>
+ *
+ * <p>Rows are appended in batches by the audit writer with plain JDBC and never through JPA.</p>
+ */
+@Entity
+@Table(name = "user_audit", indexes = @Index(name = "user_audit_user_id_idx", columnList = "userId"))
+public class UserAudit {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, columnDefinition = "timestamp with time zone")
+    private Instant occurredAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+
+    @Column(nullable = false, length = 128)
+    private String actor;
+
+    private Long userId;
+
+    private String previousName;
+
+    private String previousEmail;
+
+    private LocalDate previousBirthDate;
+
+    private Long previousVersion;
+
+    private String name;
+
+    private String email;
+
+    private LocalDate birthDate;
+
+    private Long version;
+
+    public UserAudit() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(Instant occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public void setActor(String actor) {
+        this.actor = actor;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getPreviousName() {
+        return previousName;
+    }
+
+    public void setPreviousName(String previousName) {
+        this.previousName = previousName;
+    }
+
+    public String getPreviousEmail() {
+        return previousEmail;
+    }
+
+    public void setPreviousEmail(String previousEmail) {
+        this.previousEmail = previousEmail;
+    }
+
+    public LocalDate getPreviousBirthDate() {
+        return previousBirthDate;
+    }
+
+    public void setPreviousBirthDate(LocalDate previousBirthDate) {
+        this.previousBirthDate = previousBirthDate;
+    }
+
+    public Long getPreviousVersion() {
+        return previousVersion;
+    }
+
+    public void setPreviousVersion(Long previousVersion) {
+        this.previousVersion = previousVersion;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public void setBirthDate(LocalDate birthDate) {
+        this.birthDate = birthDate;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "UserAudit{" +
+                "id=" + id +
+                ", operation=" + operation +
+                ", actor='" + actor + '\'' +
+                ", userId=" + userId +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+
+    /**
+     * Kind of audited user write
+     */
+    public enum Operation {
+        CREATE, MODIFY, REMOVE
+    }
+}
@@ -0,0 +1,147 @@
+package com.scalegrid.assignment.user.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * <p>UserChange entity is one row of the user outbox: a user write recorded in the transaction of the write,
+ * with the user as written, or as it was when deleted.</p>
+ *
+ * <p>Rows are inserted by the writing statements themselves and never through JPA. The relay gives each
+ * committed row its {@code position}, strictly increasing in the order changes are published; the change
+ * feed is read by position.</p>
+ */
+@Entity
+@Table(name = "user_outbox", indexes = @Index(name = "user_outbox_position_key", columnList = "position", unique = true))
+public class UserChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Null until the change is published
+     */
+    private Long position;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    private String name;
+
+    private String email;
+
+    private LocalDate birthDate;
+
+    private Long version;
+
+    @Column(nullable = false, columnDefinition = "timestamp with time zone default now()")
+    private Instant occurredAt;
+
+    public UserChange() {
+    }
+
+    public UserChange(Long userId, Type type, String name, String email, LocalDate birthDate, Long version) {
+        this.userId = userId;
+        this.type = type;
+        this.name = name;
+        this.email = email;
+        this.birthDate = birthDate;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public void setPosition(Long position) {
+        this.position = position;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public void setBirthDate(LocalDate birthDate) {
+        this.birthDate = birthDate;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(Instant occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "UserChange{" +
+                "id=" + id +
+                ", position=" + position +
+                ", userId=" + userId +
+                ", type=" + type +
+                ", email='" + email + '\'' +
+                ", version=" + version +
+                '}';
+    }
+
+    /**
+     * Kind of user write
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
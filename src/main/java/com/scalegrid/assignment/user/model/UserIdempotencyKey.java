@@ -0,0 +1,113 @@
+package com.scalegrid.assignment.user.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * <p>UserIdempotencyKey entity is the response of one idempotency key of user creation, kept by the database
+ * idempotency store: the fingerprint of the key's first request and the user it created, as it was then.</p>
+ *
+ * <p>Rows are inserted in the transaction that created the user and never through JPA.</p>
+ */
+@Entity
+@Table(name = "user_idempotency_key", indexes = @Index(name = "user_idempotency_key_created_at_idx",
+        columnList = "createdAt"))
+public class UserIdempotencyKey {
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    private String name;
+
+    private String email;
+
+    private LocalDate birthDate;
+
+    private Long version;
+
+    @Column(nullable = false, columnDefinition = "timestamp with time zone")
+    private Instant createdAt;
+
+    public UserIdempotencyKey() {
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public void setBirthDate(LocalDate birthDate) {
+        this.birthDate = birthDate;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "UserIdempotencyKey{" +
+                "key='" + key + '\'' +
+                ", userId=" + userId +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
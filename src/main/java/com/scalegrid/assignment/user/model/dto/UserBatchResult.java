@@ -0,0 +1,74 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import com.scalegrid.assignment.user.model.User;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel("UserBatchResult model is used to report the outcome of one item of a bulk create")
+public class UserBatchResult {
+    @ApiModelProperty("Position of the item in the request")
+    private int index;
+
+    @ApiModelProperty("Outcome of the item")
+    private Status status;
+
+    @ApiModelProperty("Created user, only for created items")
+    private User user;
+
+    @ApiModelProperty("Reason of the failure, only for rejected items")
+    private String message;
+
+    public UserBatchResult() {
+    }
+
+    public UserBatchResult(int index, Status status, User user, String message) {
+        this.index = index;
+        this.status = status;
+        this.user = user;
+        this.message = message;
+    }
+
+    public static UserBatchResult created(int index, User user) {
+        return new UserBatchResult(index, Status.CREATED, user, null);
+    }
+
+    public static UserBatchResult rejected(int index, Status status, String message) {
+        return new UserBatchResult(index, status, null, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID
+    }
+}
@@ -0,0 +1,40 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import com.scalegrid.assignment.user.model.UserChange;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+@ApiModel("UserChangePage model is used to return the user changes published after a position")
+public class UserChangePage {
+    @ApiModelProperty("Changes ordered by position, empty when none was published before the wait ended")
+    private List<UserChange> changes;
+
+    @ApiModelProperty("Position to send as since with the next request")
+    private long next;
+
+    public UserChangePage() {
+    }
+
+    public UserChangePage(List<UserChange> changes, long next) {
+        this.changes = changes;
+        this.next = next;
+    }
+
+    public List<UserChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<UserChange> changes) {
+        this.changes = changes;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public void setNext(long next) {
+        this.next = next;
+    }
+}
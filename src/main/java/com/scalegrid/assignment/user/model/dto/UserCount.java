@@ -0,0 +1,51 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.time.Instant;
+
+@ApiModel("UserCount model is used to return the total number of users")
+public class UserCount {
+    @ApiModelProperty("Number of users")
+    private long count;
+
+    @ApiModelProperty("Whether the count is the planner's estimate instead of the cached count")
+    private boolean estimated;
+
+    @ApiModelProperty("Time of the last exact count, writes since then are added to it; null for estimates")
+    private Instant countedAt;
+
+    public UserCount() {
+    }
+
+    public UserCount(long count, boolean estimated, Instant countedAt) {
+        this.count = count;
+        this.estimated = estimated;
+        this.countedAt = countedAt;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public boolean isEstimated() {
+        return estimated;
+    }
+
+    public void setEstimated(boolean estimated) {
+        this.estimated = estimated;
+    }
+
+    public Instant getCountedAt() {
+        return countedAt;
+    }
+
+    public void setCountedAt(Instant countedAt) {
+        this.countedAt = countedAt;
+    }
+}
@@ -0,0 +1,40 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import com.scalegrid.assignment.user.model.User;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+@ApiModel("UserCursorPage model is used to return one page of users in keyset order")
+public class UserCursorPage {
+    @ApiModelProperty("Users of the page ordered by id")
+    private List<User> content;
+
+    @ApiModelProperty("Opaque cursor of the next page, null on the last page")
+    private String nextCursor;
+
+    public UserCursorPage() {
+    }
+
+    public UserCursorPage(List<User> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<User> getContent() {
+        return content;
+    }
+
+    public void setContent(List<User> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
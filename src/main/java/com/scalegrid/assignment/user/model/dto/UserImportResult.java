@@ -0,0 +1,88 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ApiModel("UserImportResult model is used to summarize a streaming import")
+public class UserImportResult {
+    @ApiModelProperty("Number of records read from the upload")
+    private long received;
+
+    @ApiModelProperty("Number of users created")
+    private long created;
+
+    @ApiModelProperty("Number of existing users updated, only when updating is requested")
+    private long updated;
+
+    @ApiModelProperty("Number of existing users that already had the record's name and birthdate, only when " +
+            "updating is requested")
+    private long unchanged;
+
+    @ApiModelProperty("Number of records skipped because their email exists or repeats an earlier record")
+    private long duplicates;
+
+    @ApiModelProperty("Number of records that could not be parsed or failed validation")
+    private long invalid;
+
+    @ApiModelProperty("First rejected records, index is the record position in the upload")
+    private List<UserBatchResult> rejected = new ArrayList<>();
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(long unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(long duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+
+    public List<UserBatchResult> getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(List<UserBatchResult> rejected) {
+        this.rejected = rejected;
+    }
+}
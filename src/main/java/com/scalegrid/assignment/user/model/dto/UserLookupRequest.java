@@ -0,0 +1,49 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ApiModel("UserLookupRequest model is used to resolve many users by email and/or id in one call")
+public class UserLookupRequest {
+    @ApiModelProperty("Emails to resolve, in any case")
+    private List<String> emails = new ArrayList<>();
+
+    @ApiModelProperty("Ids to resolve")
+    private List<Long> ids = new ArrayList<>();
+
+    public UserLookupRequest() {
+    }
+
+    public UserLookupRequest(List<String> emails, List<Long> ids) {
+        this.emails = emails;
+        this.ids = ids;
+    }
+
+    public List<String> getEmails() {
+        return emails;
+    }
+
+    public void setEmails(List<String> emails) {
+        this.emails = emails;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer();
+        sb.append("(emails=").append(emails == null ? 0 : emails.size());
+        sb.append(", ids=").append(ids == null ? 0 : ids.size());
+        sb.append(')');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import com.scalegrid.assignment.user.model.User;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ApiModel("UserLookupResult model is used to return the users a lookup found and the emails and ids it did not")
+public class UserLookupResult {
+    @ApiModelProperty("Users found, in request order, emails first; a user asked for twice is listed once")
+    private List<User> users = new ArrayList<>();
+
+    @ApiModelProperty("Normalized emails no user has")
+    private List<String> missingEmails = new ArrayList<>();
+
+    @ApiModelProperty("Ids no user has")
+    private List<Long> missingIds = new ArrayList<>();
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<User> users) {
+        this.users = users;
+    }
+
+    public List<String> getMissingEmails() {
+        return missingEmails;
+    }
+
+    public void setMissingEmails(List<String> missingEmails) {
+        this.missingEmails = missingEmails;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
@@ -0,0 +1,90 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@ApiModel("UserSearchCriteria model holds the filters of a user search, all optional and combined with and")
+public class UserSearchCriteria {
+    @ApiModelProperty("Case-insensitive name prefix")
+    private String name;
+
+    @ApiModelProperty("Case-insensitive part of the name, at least 3 characters")
+    private String nameContains;
+
+    @ApiModelProperty("Case-insensitive email prefix")
+    private String email;
+
+    @ApiModelProperty("Earliest birthdate, inclusive, as yyyy-MM-dd")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate bornFrom;
+
+    @ApiModelProperty("Latest birthdate, inclusive, as yyyy-MM-dd")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate bornTo;
+
+    public UserSearchCriteria() {
+    }
+
+    public UserSearchCriteria(String name, String nameContains, String email, LocalDate bornFrom, LocalDate bornTo) {
+        this.name = name;
+        this.nameContains = nameContains;
+        this.email = email;
+        this.bornFrom = bornFrom;
+        this.bornTo = bornTo;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNameContains() {
+        return nameContains;
+    }
+
+    public void setNameContains(String nameContains) {
+        this.nameContains = nameContains;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getBornFrom() {
+        return bornFrom;
+    }
+
+    public void setBornFrom(LocalDate bornFrom) {
+        this.bornFrom = bornFrom;
+    }
+
+    public LocalDate getBornTo() {
+        return bornTo;
+    }
+
+    public void setBornTo(LocalDate bornTo) {
+        this.bornTo = bornTo;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer();
+        sb.append("(name='").append(name);
+        sb.append("', nameContains='").append(nameContains);
+        sb.append("', email='").append(email);
+        sb.append("', bornFrom=").append(bornFrom);
+        sb.append(", bornTo=").append(bornTo);
+        sb.append(')');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.scalegrid.assignment.user.model.dto;
+
+import com.scalegrid.assignment.user.model.User;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+@ApiModel("UserSearchPage model is used to return one page of search results in id order")
+public class UserSearchPage {
+    @ApiModelProperty("Users of the page ordered by id")
+    private List<User> content;
+
+    @ApiModelProperty("Zero-based page number")
+    private int page;
+
+    @ApiModelProperty("Requested page size")
+    private int size;
+
+    @ApiModelProperty("Whether another page follows, the total is not counted")
+    private boolean hasNext;
+
+    public UserSearchPage() {
+    }
+
+    public UserSearchPage(List<User> content, int page, int size, boolean hasNext) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public List<User> getContent() {
+        return content;
+    }
+
+    public void setContent(List<User> content) {
+        this.content = content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
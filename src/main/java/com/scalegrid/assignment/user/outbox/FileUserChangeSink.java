@@ -0,0 +1,52 @@
+package com.scalegrid.assignment.user.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.UserChange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * <p>Appends every change as one JSON line to {@code app.user.outbox.file}. Each batch is written with one
+ * call and forced to disk before its transaction commits, so a published position is never lost from the
+ * file; a retried batch may append its changes a second time.</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.user.outbox", name = "sink", havingValue = "file")
+public class FileUserChangeSink implements UserChangeSink {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileUserChangeSink(ObjectMapper objectMapper, UserProperties userProperties) {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(userProperties.getOutbox().getFile());
+    }
+
+    @Override
+    public void publish(List<UserChange> changes) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream(changes.size() * 192);
+            for (UserChange change : changes) {
+                lines.write(objectMapper.writeValueAsBytes(change));
+                lines.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("User changes could not be appended to " + file, ex);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.scalegrid.assignment.user.outbox;
+
+import com.scalegrid.assignment.user.model.UserChange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * <p>Publishes every change as a Spring application event, received with
+ * {@code @EventListener void on(UserChange change)}. Listeners run synchronously on the relay thread,
+ * inside the publishing transaction. This is the default sink.</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.user.outbox", name = "sink", havingValue = "in-process", matchIfMissing = true)
+public class InProcessUserChangeSink implements UserChangeSink {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InProcessUserChangeSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void publish(List<UserChange> changes) {
+        changes.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,74 @@
+package com.scalegrid.assignment.user.outbox;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>UserChangeFeed class parks change feed requests that are up to date until a later change is published
+ * or their wait ends, so clients long-poll instead of polling the outbox.</p>
+ *
+ * <p>{@link UserOutboxRelay} advances the feed after every run with the last published position, read from
+ * the database, so changes published by the relay of another instance wake waiters too.</p>
+ */
+@Component
+public class UserChangeFeed {
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLong latestPosition = new AtomicLong();
+
+    /**
+     * This method returns a future completed once a change after the position is published, or when the
+     * timeout elapses, whichever comes first.
+     *
+     * @param position {@link Long} last position the caller has seen
+     * @param timeout  {@link Duration} maximum wait
+     * @return {@link CompletableFuture} completed without a value
+     */
+    public CompletableFuture<Void> awaitAfter(long position, Duration timeout) {
+        Waiter waiter = new Waiter(position);
+        waiters.add(waiter);
+        waiter.future.whenComplete((ignored, ex) -> waiters.remove(waiter));
+        // a position published between the caller's read and the registration above must not be waited for
+        if (latestPosition.get() > position) {
+            waiter.future.complete(null);
+        }
+        return waiter.future.completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method records the last published position and wakes the waiters behind it.
+     *
+     * @param position {@link Long} last published position
+     */
+    public void advance(long position) {
+        if (latestPosition.accumulateAndGet(position, Math::max) != position) return;
+        for (Waiter waiter : waiters) {
+            if (waiter.position < position) {
+                waiter.future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * This method returns the number of parked requests.
+     *
+     * @return waiter count
+     */
+    public int waiting() {
+        return waiters.size();
+    }
+
+    private static final class Waiter {
+        private final long position;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(long position) {
+            this.position = position;
+        }
+    }
+}
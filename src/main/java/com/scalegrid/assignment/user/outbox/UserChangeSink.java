@@ -0,0 +1,23 @@
+package com.scalegrid.assignment.user.outbox;
+
+import com.scalegrid.assignment.user.model.UserChange;
+
+import java.util.List;
+
+/**
+ * <p>UserChangeSink is where {@link UserOutboxRelay} publishes committed user changes. The sink is selected
+ * with {@code app.user.outbox.sink}.</p>
+ *
+ * <p>Changes arrive in position order, in batches, at least once: a batch whose transaction fails after it
+ * was published is published again, with the same change ids. A sink that throws fails the batch, which is
+ * retried on the next relay run.</p>
+ */
+public interface UserChangeSink {
+
+    /**
+     * This method publishes a batch of changes, in position order.
+     *
+     * @param changes {@link List<UserChange>} positioned changes
+     */
+    void publish(List<UserChange> changes);
+}
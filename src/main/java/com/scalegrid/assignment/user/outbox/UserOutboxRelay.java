@@ -0,0 +1,137 @@
+package com.scalegrid.assignment.user.outbox;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.UserChange;
+import com.scalegrid.assignment.user.repository.UserChangeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * <p>UserOutboxRelay class publishes committed user changes from the outbox to the {@link UserChangeSink},
+ * in batches, every {@code app.user.outbox.relay-interval}.</p>
+ *
+ * <p>Each batch is positioned and published in one transaction holding a database advisory lock, so of all
+ * instances a single relay publishes at a time. Changes only get a position once committed and positions
+ * are handed out after the last published one, which is why the change feed never skips a change committed
+ * late by a slow transaction. A failed batch is rolled back and published again on the next run.</p>
+ */
+@Component
+public class UserOutboxRelay implements SchedulingConfigurer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserOutboxRelay.class);
+    /**
+     * Advisory lock key of the relay, shared by all instances
+     */
+    static final long RELAY_LOCK = 0x7573657273L;
+    private static final int PURGE_LIMIT = 10000;
+    private static final String PUBLISHED_METER = "users.outbox.published";
+    private static final String WAITING_METER = "users.outbox.feed.waiting";
+    private final UserChangeRepository userChangeRepository;
+    private final UserChangeSink userChangeSink;
+    private final UserChangeFeed userChangeFeed;
+    private final TransactionTemplate transactionTemplate;
+    private final UserProperties.Outbox properties;
+    private final Counter publishedCounter;
+
+    /**
+     * Constructs a new {@link UserOutboxRelay} instance
+     *
+     * @param userChangeRepository {@link UserChangeRepository}
+     * @param userChangeSink       {@link UserChangeSink}
+     * @param userChangeFeed       {@link UserChangeFeed}
+     * @param transactionManager   {@link PlatformTransactionManager}
+     * @param userProperties       {@link UserProperties}
+     * @param meterRegistry        {@link MeterRegistry}
+     */
+    public UserOutboxRelay(UserChangeRepository userChangeRepository, UserChangeSink userChangeSink,
+                           UserChangeFeed userChangeFeed, PlatformTransactionManager transactionManager,
+                           UserProperties userProperties, MeterRegistry meterRegistry) {
+        this.userChangeRepository = userChangeRepository;
+        this.userChangeSink = userChangeSink;
+        this.userChangeFeed = userChangeFeed;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = userProperties.getOutbox();
+        this.publishedCounter = Counter.builder(PUBLISHED_METER)
+                .description("User changes published from the outbox")
+                .register(meterRegistry);
+        Gauge.builder(WAITING_METER, userChangeFeed, UserChangeFeed::waiting)
+                .description("Change feed requests waiting for a change")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::run, properties.getRelayInterval().toMillis());
+    }
+
+    /**
+     * This method publishes every committed change, then wakes the change feed waiters and purges the
+     * changes past their retention. Failures are logged and retried on the next run.
+     */
+    public void run() {
+        try {
+            int published;
+            do {
+                published = relay();
+            } while (published == properties.getBatchSize());
+            Long latestPosition = userChangeRepository.findLatestPosition();
+            if (latestPosition != null) {
+                userChangeFeed.advance(latestPosition);
+            }
+            purge();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("User outbox relay failed, retrying in {}", properties.getRelayInterval(), ex);
+        }
+    }
+
+    /**
+     * This method positions and publishes one batch of committed changes, oldest first.
+     *
+     * @return number of published changes, 0 when none is pending or another relay holds the lock
+     */
+    public int relay() {
+        Integer published = transactionTemplate.execute(status -> {
+            if (!userChangeRepository.tryLock(RELAY_LOCK)) return 0;
+            List<UserChange> changes = userChangeRepository.findUnpublished(
+                    PageRequest.of(0, properties.getBatchSize()));
+            if (changes.isEmpty()) return 0;
+            Long latestPosition = userChangeRepository.findLatestPosition();
+            long position = latestPosition == null ? 0 : latestPosition;
+            for (UserChange change : changes) {
+                change.setPosition(++position);
+            }
+            // positions are flushed on commit, after the sink accepted the batch
+            userChangeSink.publish(changes);
+            return changes.size();
+        });
+        if (published != null && published > 0) {
+            publishedCounter.increment(published);
+            LOGGER.debug("User outbox relay published {} changes", published);
+        }
+        return published == null ? 0 : published;
+    }
+
+    /**
+     * This method deletes published changes older than the retention, keeping the last one.
+     *
+     * @return number of deleted changes
+     */
+    public int purge() {
+        Integer purged = transactionTemplate.execute(status -> userChangeRepository.tryLock(RELAY_LOCK)
+                ? userChangeRepository.deletePublishedBefore(Instant.now().minus(properties.getRetention()),
+                PURGE_LIMIT)
+                : 0);
+        return purged == null ? 0 : purged;
+    }
+}
@@ -0,0 +1,17 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.audit.UserAuditRecord;
+
+import java.util.List;
+
+/**
+ * <p>Batched appends of {@link UserAuditRepository}, implemented with plain JDBC.</p>
+ */
+public interface UserAuditBatchRepository {
+    /**
+     * Appends the records to {@code user_audit} in one JDBC batch and transaction.
+     *
+     * @param records records to append, in order
+     */
+    void appendAll(List<UserAuditRecord> records);
+}
@@ -0,0 +1,50 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.audit.UserAuditRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * <p>JDBC implementation of {@link UserAuditBatchRepository}. With {@code reWriteBatchedInserts} the driver
+ * sends a batch as multi-row inserts.</p>
+ */
+class UserAuditBatchRepositoryImpl implements UserAuditBatchRepository {
+    private static final String APPEND = "insert into user_audit (occurred_at, operation, actor, user_id, " +
+            "previous_name, previous_email, previous_birth_date, previous_version, name, email, birth_date, version) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private final JdbcTemplate jdbcTemplate;
+
+    UserAuditBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void appendAll(List<UserAuditRecord> records) {
+        if (records.isEmpty()) return;
+        jdbcTemplate.batchUpdate(APPEND, records, records.size(), (statement, record) -> {
+            statement.setTimestamp(1, new Timestamp(record.getOccurredAtMillis()));
+            statement.setString(2, record.getOperation().name());
+            statement.setString(3, record.getActor());
+            statement.setObject(4, record.getUserId(), Types.BIGINT);
+            setValues(statement, 5, record.getPrevious());
+            setValues(statement, 9, record.getCurrent());
+        });
+    }
+
+    private static void setValues(PreparedStatement statement, int index, UserAuditRecord.Values values)
+            throws SQLException {
+        statement.setString(index, values == null ? null : values.getName());
+        statement.setString(index + 1, values == null ? null : values.getEmail());
+        statement.setDate(index + 2, values == null || values.getBirthDate() == null ? null
+                : Date.valueOf(values.getBirthDate()));
+        statement.setObject(index + 3, values == null ? null : values.getVersion(), Types.BIGINT);
+    }
+}
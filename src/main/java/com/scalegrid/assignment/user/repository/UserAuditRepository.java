@@ -0,0 +1,14 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.UserAudit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface UserAuditRepository extends JpaRepository<UserAudit, Long>, UserAuditBatchRepository {
+
+    /**
+     * The audit records of one user, oldest first.
+     */
+    List<UserAudit> findByUserIdOrderByIdAsc(Long userId);
+}
@@ -0,0 +1,66 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.UserChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    /**
+     * Records the creation of the given, already flushed, users in the outbox. Must run in the transaction
+     * that inserted them.
+     */
+    @Modifying
+    @Query(value = "insert into user_outbox (user_id, type, name, email, birth_date, version, occurred_at) " +
+            "select id, 'CREATED', name, email, birth_date, version, now() from users where id in :ids order by id",
+            nativeQuery = true)
+    int insertCreated(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Takes the relay lock until the end of the transaction, false when another relay holds it.
+     */
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    /**
+     * The committed changes not published yet, oldest first, limited by the page size of {@code pageable}.
+     * Served by the partial index on unpublished rows of the schema migrations.
+     */
+    @Query("select c from UserChange c where c.position is null order by c.id")
+    List<UserChange> findUnpublished(Pageable pageable);
+
+    /**
+     * The position of the last published change, null when none is retained.
+     */
+    @Query("select max(c.position) from UserChange c")
+    Long findLatestPosition();
+
+    /**
+     * The position of the first retained published change, null when none is retained.
+     */
+    @Query("select min(c.position) from UserChange c")
+    Long findEarliestPosition();
+
+    /**
+     * The published changes after the given position in position order, limited by the page size of
+     * {@code pageable}.
+     */
+    List<UserChange> findByPositionGreaterThanOrderByPositionAsc(Long position, Pageable pageable);
+
+    /**
+     * Deletes at most {@code limit} published changes that occurred before the given instant. The last
+     * published change is always kept, so positions keep increasing after a purge.
+     */
+    @Modifying
+    @Query(value = "delete from user_outbox where id in (select id from user_outbox " +
+            "where position < (select max(position) from user_outbox) and occurred_at < :before " +
+            "order by position limit :limit)", nativeQuery = true)
+    int deletePublishedBefore(@Param("before") Instant before, @Param("limit") int limit);
+}
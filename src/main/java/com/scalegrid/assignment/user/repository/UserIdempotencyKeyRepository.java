@@ -0,0 +1,47 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.UserIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface UserIdempotencyKeyRepository extends JpaRepository<UserIdempotencyKey, String> {
+
+    /**
+     * Takes the lock of the key until the end of the transaction, waiting for the transaction holding it.
+     */
+    @Query(value = "select cast(pg_advisory_xact_lock(hashtextextended(:key, 0)) as varchar)", nativeQuery = true)
+    String lock(@Param("key") String key);
+
+    /**
+     * The response of the key, unless it was stored before the given instant.
+     */
+    Optional<UserIdempotencyKey> findByKeyAndCreatedAtAfter(String key, Instant after);
+
+    /**
+     * Stores the response of the key, replacing an expired one.
+     */
+    @Modifying
+    @Query(value = "insert into user_idempotency_key (idempotency_key, fingerprint, user_id, name, email, " +
+            "birth_date, version, created_at) values (:key, :fingerprint, :userId, :name, :email, :birthDate, " +
+            ":version, now()) on conflict (idempotency_key) do update set fingerprint = excluded.fingerprint, " +
+            "user_id = excluded.user_id, name = excluded.name, email = excluded.email, " +
+            "birth_date = excluded.birth_date, version = excluded.version, created_at = excluded.created_at",
+            nativeQuery = true)
+    int store(@Param("key") String key, @Param("fingerprint") String fingerprint, @Param("userId") Long userId,
+              @Param("name") String name, @Param("email") String email, @Param("birthDate") LocalDate birthDate,
+              @Param("version") Long version);
+
+    /**
+     * Deletes at most {@code limit} keys stored before the given instant.
+     */
+    @Modifying
+    @Query(value = "delete from user_idempotency_key where idempotency_key in (select idempotency_key " +
+            "from user_idempotency_key where created_at < :before limit :limit)", nativeQuery = true)
+    int deleteCreatedBefore(@Param("before") Instant before, @Param("limit") int limit);
+}
@@ -0,0 +1,22 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+
+import java.util.List;
+
+/**
+ * <p>Bulk writes of {@link UserRepository} that go through a staging table, implemented with plain JDBC.</p>
+ */
+public interface UserImportRepository {
+    /**
+     * Stages the users with multi-row inserts, then merges them into {@code users} with one statement,
+     * in one transaction. Of users sharing an email only the first one is merged. A user whose email
+     * already exists is skipped, or updates that user when {@code update} is true and the name or birthdate
+     * differ.
+     *
+     * @param users  users to merge, ids are ignored
+     * @param update whether existing users get the name and birthdate of the merged ones
+     * @return {@link UserMergeResult}
+     */
+    UserMergeResult mergeUsers(List<User> users, boolean update);
+}
@@ -0,0 +1,81 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * <p>JDBC implementation of {@link UserImportRepository}. The staging table is temporary, so each
+ * connection has its own, and its rows are dropped on commit. Rows are staged in statements of at most
+ * {@value #MAX_STAGED_ROWS}, since a statement binds at most 32767 parameters. The merge records every written
+ * user in the outbox within the same statement; existing users that already have the name and birthdate are
+ * not written.</p>
+ */
+class UserImportRepositoryImpl implements UserImportRepository {
+    private static final String CREATE_STAGING_TABLE = "create temporary table if not exists users_import " +
+            "(line int not null, name varchar(255), email varchar(255), birth_date date) on commit delete rows";
+    private static final String STAGE_USERS = "insert into users_import (line, name, email, birth_date) values ";
+    private static final String STAGED_ROW = "(?, ?, ?, ?)";
+    private static final int STAGED_ROW_PARAMETERS = 4;
+    private static final int MAX_STAGED_ROWS = Short.MAX_VALUE / STAGED_ROW_PARAMETERS;
+    private static final String MERGE_USERS = "with merged as (insert into users (id, name, email, birth_date) " +
+            "select nextval('users_seq'), name, email, birth_date from " +
+            "(select distinct on (email) line, name, email, birth_date from users_import order by email, line) staged " +
+            "order by line on conflict ((lower(email))) do ";
+    private static final String SKIP_EXISTING = "nothing";
+    private static final String UPDATE_EXISTING = "update set name = excluded.name, birth_date = excluded.birth_date, " +
+            "version = users.version + 1 " +
+            "where (users.name, users.birth_date) is distinct from (excluded.name, excluded.birth_date)";
+    private static final String RETURNING = " returning id, name, email, birth_date, version, (xmax = 0) as inserted), " +
+            "change as (insert into user_outbox (user_id, type, name, email, birth_date, version, occurred_at) " +
+            "select id, case when inserted then 'CREATED' else 'UPDATED' end, name, email, birth_date, version, " +
+            "now() from merged order by id) " +
+            "select id, name, email, birth_date, version, inserted from merged";
+    private final JdbcTemplate jdbcTemplate;
+
+    UserImportRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public UserMergeResult mergeUsers(List<User> users, boolean update) {
+        UserMergeResult result = new UserMergeResult();
+        if (users.isEmpty()) return result;
+
+        jdbcTemplate.execute(CREATE_STAGING_TABLE);
+        for (int from = 0; from < users.size(); from += MAX_STAGED_ROWS) {
+            stageUsers(users, from, Math.min(from + MAX_STAGED_ROWS, users.size()));
+        }
+
+        jdbcTemplate.query(MERGE_USERS + (update ? UPDATE_EXISTING : SKIP_EXISTING) + RETURNING, resultSet -> {
+            boolean inserted = resultSet.getBoolean("inserted");
+            User user = new User(resultSet.getString("name"), resultSet.getString("email"),
+                    resultSet.getObject("birth_date", LocalDate.class));
+            user.setId(resultSet.getLong("id"));
+            user.setVersion(resultSet.getLong("version"));
+            (inserted ? result.getInsertedEmails() : result.getUpdatedEmails()).add(user.getEmail());
+            (inserted ? result.getInsertedUsers() : result.getUpdatedUsers()).add(user);
+        });
+        return result;
+    }
+
+    private void stageUsers(List<User> users, int from, int to) {
+        StringBuilder sql = new StringBuilder(STAGE_USERS.length() + (to - from) * (STAGED_ROW.length() + 2))
+                .append(STAGE_USERS);
+        Object[] args = new Object[(to - from) * STAGED_ROW_PARAMETERS];
+        for (int i = from; i < to; i++) {
+            User user = users.get(i);
+            int arg = (i - from) * STAGED_ROW_PARAMETERS;
+            sql.append(i == from ? "" : ", ").append(STAGED_ROW);
+            args[arg] = i;
+            args[arg + 1] = user.getName();
+            args[arg + 2] = user.getEmail();
+            args[arg + 3] = user.getBirthDate();
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+}
@@ -0,0 +1,23 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>Bulk reads of {@link UserRepository} that bind whole key lists as single array parameters,
+ * implemented with plain JDBC.</p>
+ */
+public interface UserLookupRepository {
+    /**
+     * Finds the users having one of the ids or one of the normalized emails with one
+     * {@code id = any(?) or lower(email) = any(?)} statement, whatever the number of keys, so the
+     * statement text, and its plan, stays the same. Both indexes serve it.
+     *
+     * @param ids    ids, may be empty
+     * @param emails normalized emails, may be empty
+     * @return {@link List<User>} found users, in no particular order
+     */
+    List<User> findAllByIdsOrEmails(Collection<Long> ids, Collection<String> emails);
+}
@@ -0,0 +1,46 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>JDBC implementation of {@link UserLookupRepository}.</p>
+ */
+class UserLookupRepositoryImpl implements UserLookupRepository {
+    private static final String FIND_BY_IDS_OR_EMAILS = "select id, name, email, birth_date, version from users " +
+            "where id = any(?) or lower(email) = any(?)";
+    private static final RowMapper<User> USER_ROW_MAPPER = (resultSet, rowNum) -> {
+        User user = new User(resultSet.getString("name"), resultSet.getString("email"),
+                resultSet.getObject("birth_date", LocalDate.class));
+        user.setId(resultSet.getLong("id"));
+        user.setVersion(resultSet.getLong("version"));
+        return user;
+    };
+    private final JdbcTemplate jdbcTemplate;
+
+    UserLookupRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<User> findAllByIdsOrEmails(Collection<Long> ids, Collection<String> emails) {
+        if (ids.isEmpty() && emails.isEmpty()) return Collections.emptyList();
+
+        return jdbcTemplate.query(connection -> {
+            Array idArray = connection.createArrayOf("bigint", ids.toArray());
+            Array emailArray = connection.createArrayOf("text", emails.toArray());
+            PreparedStatement statement = connection.prepareStatement(FIND_BY_IDS_OR_EMAILS);
+            statement.setArray(1, idArray);
+            statement.setArray(2, emailArray);
+            return statement;
+        }, USER_ROW_MAPPER);
+    }
+}
@@ -0,0 +1,33 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Emails, and users as written, by {@link UserImportRepository#mergeUsers}, split by whether the row was
+ * inserted or updated. Skipped users, and existing users left unchanged, are in none of the lists.</p>
+ */
+public class UserMergeResult {
+    private final List<String> insertedEmails = new ArrayList<>();
+    private final List<String> updatedEmails = new ArrayList<>();
+    private final List<User> insertedUsers = new ArrayList<>();
+    private final List<User> updatedUsers = new ArrayList<>();
+
+    public List<String> getInsertedEmails() {
+        return insertedEmails;
+    }
+
+    public List<String> getUpdatedEmails() {
+        return updatedEmails;
+    }
+
+    public List<User> getInsertedUsers() {
+        return insertedUsers;
+    }
+
+    public List<User> getUpdatedUsers() {
+        return updatedUsers;
+    }
+}
@@ -1,10 +1,153 @@
 package com.scalegrid.assignment.user.repository;
 
 import com.scalegrid.assignment.user.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UserRepository  extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface UserRepository  extends JpaRepository<User, Long>, UserImportRepository, UserSearchRepository,
+        UserLookupRepository {
+    int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Finds the user by normalized email through the unique index on {@code lower(email)}, so users stored
+     * before emails were normalized are found too. Read-only, so it reads a replica when they are configured.
+     */
+    @Transactional(readOnly = true)
+    @Query("select u from User u where lower(u.email) = :email")
+    Optional<User> findByEmail(@Param("email") String email);
+
+    /**
+     * One page of users in the order of {@code pageable}. One extra row is read to tell whether another page
+     * follows; unlike {@code findAll(Pageable)} no count query runs.
+     */
+    Slice<User> findAllBy(Pageable pageable);
+
+    /**
+     * The planner's estimate of the number of users, kept up to date by (auto)vacuum and analyze. Negative or
+     * null when the table was never analyzed.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select cast(reltuples as bigint) from pg_class where oid = cast('users' as regclass)",
+            nativeQuery = true)
+    Long estimateCount();
+
+    /**
+     * Runs a statement that reads nothing, which takes the snapshot of a repeatable read transaction; its later
+     * statements read that snapshot.
+     */
+    @Query(value = "select 1", nativeQuery = true)
+    int takeSnapshot();
+
+    /**
+     * Keyset (seek) query: the rows after the given id in id order, limited by the page size of
+     * {@code pageable}. Returning a {@link List} keeps Spring Data from issuing a count query.
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Streams every user in id order through a server-side cursor, {@value #STREAM_FETCH_SIZE} rows per
+     * round trip. Rows are projections, so the persistence context stays empty however many rows are read.
+     * Must be consumed and closed inside a transaction.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select u.id as id, u.name as name, u.email as email, u.birthDate as birthDate, u.version as version " +
+            "from User u order by u.id")
+    Stream<UserRow> streamAllRows();
+
+    /**
+     * Streams one page of users in id order, like {@link #streamAllRows()}, limited by {@code pageable}.
+     * Must be consumed and closed inside a transaction.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select u.id as id, u.name as name, u.email as email, u.birthDate as birthDate, u.version as version " +
+            "from User u order by u.id")
+    Stream<UserRow> streamRows(Pageable pageable);
+
+    @Query("select lower(u.email) from User u where lower(u.email) in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Updates the user in one statement, bumps its version and records the change in the outbox. The row is
+     * locked before it is read, so the previous values are the ones the update replaced. A non null version
+     * must be the current one. Empty when no user has the id or the version does not match.
+     */
+    @Transactional
+    @Query(value = "with previous as (select id, name, email, birth_date, version from users where id = :id " +
+            "and (cast(:version as bigint) is null or version = cast(:version as bigint)) for update), " +
+            "updated as (update users u set name = :name, email = :email, birth_date = :birthDate, " +
+            "version = u.version + 1 from previous where u.id = previous.id " +
+            "returning u.id, u.name, u.email, u.birth_date, u.version, previous.name as previous_name, " +
+            "previous.email as previous_email, previous.birth_date as previous_birth_date, " +
+            "previous.version as previous_version), " +
+            "change as (insert into user_outbox (user_id, type, name, email, birth_date, version, occurred_at) " +
+            "select id, 'UPDATED', name, email, birth_date, version, now() from updated) " +
+            "select id as id, name as name, email as email, birth_date as \"birthDate\", version as version, " +
+            "previous_name as \"previousName\", previous_email as \"previousEmail\", " +
+            "previous_birth_date as \"previousBirthDate\", previous_version as \"previousVersion\", " +
+            "false as inserted from updated", nativeQuery = true)
+    Optional<UserWriteResult> updateUser(@Param("id") Long id, @Param("version") Long version,
+                                         @Param("name") String name, @Param("email") String email,
+                                         @Param("birthDate") LocalDate birthDate);
+
+    /**
+     * Deletes the user in one statement and records the change, with the deleted user, in the outbox. A non
+     * null version must be the current one. Returns the deleted user, empty when no user has the id or the
+     * version does not match.
+     */
+    @Transactional
+    @Query(value = "with deleted as (delete from users where id = :id " +
+            "and (cast(:version as bigint) is null or version = cast(:version as bigint)) " +
+            "returning id, name, email, birth_date, version), " +
+            "change as (insert into user_outbox (user_id, type, name, email, birth_date, version, occurred_at) " +
+            "select id, 'DELETED', name, email, birth_date, version, now() from deleted) " +
+            "select id as id, name as name, email as email, birth_date as \"birthDate\", version as version " +
+            "from deleted", nativeQuery = true)
+    Optional<UserRow> deleteUser(@Param("id") Long id, @Param("version") Long version);
+
+    /**
+     * Inserts the user, or updates name and birth date of the user holding the email in any case and bumps its
+     * version, and records the change in the outbox, in one statement. A user already holding the values is
+     * left as it is, without a new version or outbox row, and returned with its version as previous version.
+     * The previous values are read from the statement's snapshot, without locking the row, so a concurrent
+     * update may be missing from them. Returns empty only when a concurrent transaction inserted the email with
+     * the same values after the snapshot was taken.
+     */
+    @Transactional
+    @Query(value = "with previous as (select id, name, email, birth_date, version from users " +
+            "where lower(email) = :email), " +
+            "upserted as (insert into users (id, name, email, birth_date) " +
+            "values (nextval('users_seq'), :name, :email, :birthDate) " +
+            "on conflict ((lower(email))) do update set name = excluded.name, birth_date = excluded.birth_date, " +
+            "version = users.version + 1 " +
+            "where (users.name, users.birth_date) is distinct from (excluded.name, excluded.birth_date) " +
+            "returning id, name, email, birth_date, version, (xmax = 0) as inserted), " +
+            "change as (insert into user_outbox (user_id, type, name, email, birth_date, version, occurred_at) " +
+            "select id, case when inserted then 'CREATED' else 'UPDATED' end, name, email, birth_date, version, " +
+            "now() from upserted) " +
+            "select u.id as id, u.name as name, u.email as email, u.birth_date as \"birthDate\", " +
+            "u.version as version, p.name as \"previousName\", cast(null as varchar) as \"previousEmail\", " +
+            "p.birth_date as \"previousBirthDate\", p.version as \"previousVersion\", u.inserted as inserted " +
+            "from upserted u left join previous p on p.id = u.id and not u.inserted " +
+            "union all " +
+            "select id, name, email, birth_date, version, name, cast(null as varchar), birth_date, version, false " +
+            "from previous where not exists (select 1 from upserted)", nativeQuery = true)
+    Optional<UserWriteResult> upsertUser(@Param("name") String name, @Param("email") String email,
+                                         @Param("birthDate") LocalDate birthDate);
 }
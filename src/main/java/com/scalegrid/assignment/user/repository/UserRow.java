@@ -0,0 +1,19 @@
+package com.scalegrid.assignment.user.repository;
+
+import java.time.LocalDate;
+
+/**
+ * <p>Read-only view of a user row. Rows are not entities, so Hibernate does not keep them in the
+ * persistence context while they are streamed.</p>
+ */
+public interface UserRow {
+    Long getId();
+
+    String getName();
+
+    String getEmail();
+
+    LocalDate getBirthDate();
+
+    Long getVersion();
+}
@@ -0,0 +1,21 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * <p>Specification queries of {@link UserRepository} that page without counting.</p>
+ */
+public interface UserSearchRepository {
+    /**
+     * Finds one page of the users matching the specification, ordered by id. One extra row is read to
+     * tell whether another page follows; unlike {@code findAll(Specification, Pageable)} no count query runs.
+     *
+     * @param specification {@link Specification}, null for all users
+     * @param pageable      {@link Pageable} page and size, its sort is ignored
+     * @return {@link Slice}
+     */
+    Slice<User> search(Specification<User> specification, Pageable pageable);
+}
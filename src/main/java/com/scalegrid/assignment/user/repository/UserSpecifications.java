@@ -0,0 +1,64 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * <p>Search predicates on {@link User}. Each one matches an index of the schema migrations in
+ * {@code db/migration}; text predicates are case-insensitive.</p>
+ */
+public final class UserSpecifications {
+    private static final String NAME = "name";
+    private static final String EMAIL = "email";
+    private static final String BIRTH_DATE = "birthDate";
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * Name starts with the prefix, served by the {@code text_pattern_ops} index on {@code upper(name)}. Upper
+     * case keeps the trigram index on {@code lower(name)} out of prefix plans.
+     */
+    public static Specification<User> nameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(cb.upper(root.get(NAME)),
+                escapeLike(prefix.toUpperCase(Locale.ROOT)) + "%");
+    }
+
+    /**
+     * Name contains the text, served by the trigram index on {@code lower(name)} from 3 characters on.
+     */
+    public static Specification<User> nameContains(String text) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get(NAME)),
+                "%" + escapeLike(text.toLowerCase(Locale.ROOT)) + "%");
+    }
+
+    /**
+     * Email starts with the prefix, served by the unique {@code text_pattern_ops} index on {@code lower(email)}.
+     */
+    public static Specification<User> emailStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get(EMAIL)),
+                escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%");
+    }
+
+    /**
+     * Born on or after the date, served by the index on {@code birth_date}.
+     */
+    public static Specification<User> bornOnOrAfter(LocalDate date) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get(BIRTH_DATE), date);
+    }
+
+    /**
+     * Born on or before the date, served by the index on {@code birth_date}.
+     */
+    public static Specification<User> bornOnOrBefore(LocalDate date) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get(BIRTH_DATE), date);
+    }
+
+    // backslash is the default escape character of like in PostgreSQL
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,50 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.user.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * <p>Row returned by the single-statement writes of {@link UserRepository}: the written user plus what
+ * the statement knows about the row before the write.</p>
+ */
+public interface UserWriteResult extends UserRow {
+    /**
+     * @return name of the row before an update, null when the row was inserted
+     */
+    String getPreviousName();
+
+    /**
+     * @return email of the row before an update, null for upserts
+     */
+    String getPreviousEmail();
+
+    /**
+     * @return birthdate of the row before an update, null when the row was inserted
+     */
+    LocalDate getPreviousBirthDate();
+
+    /**
+     * @return version of the row before an update, null when the row was inserted
+     */
+    Long getPreviousVersion();
+
+    /**
+     * @return true when an upsert inserted the row, false when it updated it or left it unchanged
+     */
+    Boolean getInserted();
+
+    /**
+     * @return true when an upsert found the row holding the values already and left it as it was
+     */
+    default boolean isUnchanged() {
+        return Boolean.FALSE.equals(getInserted()) && getVersion().equals(getPreviousVersion());
+    }
+
+    default User toUser() {
+        User user = new User(getName(), getEmail(), getBirthDate());
+        user.setId(getId());
+        user.setVersion(getVersion());
+        return user;
+    }
+}
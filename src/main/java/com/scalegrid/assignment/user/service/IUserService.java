@@ -1,11 +1,31 @@
 package com.scalegrid.assignment.user.service;
 
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.exception.PreconditionFailedException;
 import com.scalegrid.assignment.exception.ResourceNotFoundException;
+import com.scalegrid.assignment.user.export.UserExportFormat;
+import com.scalegrid.assignment.user.export.UserStream;
+import com.scalegrid.assignment.user.importer.UserImportFormat;
 import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.dto.UserBatchResult;
+import com.scalegrid.assignment.user.model.dto.UserChangePage;
+import com.scalegrid.assignment.user.model.dto.UserCount;
+import com.scalegrid.assignment.user.model.dto.UserCursorPage;
 import com.scalegrid.assignment.user.model.dto.UserDto;
+import com.scalegrid.assignment.user.model.dto.UserImportResult;
+import com.scalegrid.assignment.user.model.dto.UserLookupRequest;
+import com.scalegrid.assignment.user.model.dto.UserLookupResult;
+import com.scalegrid.assignment.user.model.dto.UserSearchCriteria;
+import com.scalegrid.assignment.user.model.dto.UserSearchPage;
+import com.scalegrid.assignment.user.repository.UserWriteResult;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>Interface for managing user service related operations.</p>
@@ -21,22 +41,49 @@ public interface IUserService {
     User createUser(UserDto userDto);
 
     /**
-     * This method modifies user info based on user id.
+     * This method creates many users using JDBC batches. Duplicate or invalid items are
+     * reported in their result and do not fail the other items.
+     *
+     * @param userDtos {@link List<UserDto>}
+     * @return {@link List<UserBatchResult>} one result per item, in request order
+     * @throws InvalidRequestException If the request holds too many items.
+     */
+    List<UserBatchResult> createUsers(List<UserDto> userDtos);
+
+    /**
+     * This method modifies user info based on user id with a single update statement. When a version is
+     * given the user is only modified if it still has that version.
      *
      * @param userDto {@link UserDto}
      * @param id      {@link Long}
+     * @param version {@link Long} expected version, null to modify whatever the version
      * @return {@link User}
      * @throws ResourceNotFoundException
+     * @throws InvalidRequestException     If the user is invalid.
+     * @throws PreconditionFailedException If the user has another version.
      */
-    User modifyUser(UserDto userDto, Long id);
+    User modifyUser(UserDto userDto, Long id, Long version);
 
     /**
-     * This method deletes user info based on user id.
+     * This method deletes user info based on user id with a single delete statement. When a version is
+     * given the user is only deleted if it still has that version.
      *
-     * @param id {@link Long}
+     * @param id      {@link Long}
+     * @param version {@link Long} expected version, null to delete whatever the version
      * @throws ResourceNotFoundException
+     * @throws PreconditionFailedException If the user has another version.
      */
-    void removeUser(Long id);
+    void removeUser(Long id, Long version);
+
+    /**
+     * This method creates the user, or updates the user holding the same email, in one statement. A user
+     * holding the values already is returned as it is, without being written or audited.
+     *
+     * @param userDto {@link UserDto}
+     * @return {@link UserWriteResult} written user and whether it was inserted
+     * @throws InvalidRequestException If the user is invalid.
+     */
+    UserWriteResult upsertUser(UserDto userDto);
 
     /**
      * This method gets user info based on email.
@@ -48,7 +95,18 @@ public interface IUserService {
     User getUser(String email);
 
     /**
-     * This method gets user list using paging.
+     * This method resolves many users by email and/or id. Emails are served from the user cache first;
+     * cache misses and ids are resolved together with one {@code = any(?)} query per chunk of keys.
+     *
+     * @param request {@link UserLookupRequest}
+     * @return {@link UserLookupResult} found users in request order and the emails and ids not found
+     * @throws InvalidRequestException If the request holds too many emails and ids.
+     */
+    UserLookupResult lookupUsers(UserLookupRequest request);
+
+    /**
+     * This method gets user list using paging. No count query is issued, see {@link #countUsers(boolean)}
+     * for the total.
      *
      * @param pageable {@link Pageable}
      * @return {@link List<User>}
@@ -56,7 +114,89 @@ public interface IUserService {
     List<User> getUserList(Pageable pageable);
 
     /**
-     * This method converts user dto to entity
+     * This method gets the number of users without counting them per call: either the cached count, adjusted
+     * by the writes committed since it was taken, or the planner's estimate.
+     *
+     * @param estimate whether the planner's estimate is enough
+     * @return {@link UserCount}
+     */
+    UserCount countUsers(boolean estimate);
+
+    /**
+     * This method gets user list using keyset (seek) paging. Each page costs the same
+     * regardless of its depth and no count query is issued.
+     *
+     * @param after {@link String} opaque cursor of the previous page, null for the first page
+     * @param size  page size
+     * @return {@link UserCursorPage}
+     * @throws InvalidRequestException If the cursor or the size is invalid.
+     */
+    UserCursorPage getUserList(String after, int size);
+
+    /**
+     * This method gets one page of users in id order as a {@link UserStream}. Rows are read through a database
+     * cursor and written as they arrive once the stream is written, so neither memory use nor the time to the
+     * first user grows with the page size.
+     *
+     * @param page zero-based page number
+     * @param size page size
+     * @return {@link UserStream} reading the page in a read-only transaction when written
+     * @throws InvalidRequestException If the page or the size is invalid.
+     */
+    UserStream streamUserList(int page, int size);
+
+    /**
+     * This method searches users by the given filters, combined with and, one page at a time in id order.
+     * Every filter is served by an index and the number of users reachable by paging is capped.
+     *
+     * @param criteria {@link UserSearchCriteria}
+     * @param page     zero-based page number
+     * @param size     page size
+     * @return {@link UserSearchPage}
+     * @throws InvalidRequestException If a filter, the page or the size is invalid, or the page is past the cap.
+     */
+    UserSearchPage searchUsers(UserSearchCriteria criteria, int page, int size);
+
+    /**
+     * This method gets the user changes published after the given position from the outbox. When there is
+     * none yet, the returned future completes once one is published or the wait ends, with an empty page then.
+     *
+     * @param since position of the last change the caller has seen, 0 for all retained changes
+     * @param limit maximum number of changes
+     * @param wait  {@link Duration} maximum wait for a change, zero to answer at once
+     * @return {@link CompletableFuture} of {@link UserChangePage}
+     * @throws InvalidRequestException If the limit or the wait is invalid, or changes after since are not
+     *                                 retained anymore.
+     */
+    CompletableFuture<UserChangePage> getChanges(long since, int limit, Duration wait);
+
+    /**
+     * This method imports users from an upload read one record at a time. Records are validated like
+     * {@link User}, then staged and merged into the users table in chunks, one transaction per chunk.
+     * Invalid records and duplicate emails are counted and reported without failing the import.
+     *
+     * @param format      {@link UserImportFormat}
+     * @param update      whether users with an existing email are updated instead of skipped
+     * @param inputStream {@link InputStream} upload
+     * @return {@link UserImportResult}
+     * @throws IOException             If the upload can not be read.
+     * @throws InvalidRequestException If a CSV upload has no valid header.
+     */
+    UserImportResult importUsers(UserImportFormat format, boolean update, InputStream inputStream) throws IOException;
+
+    /**
+     * This method writes every user to the stream in the given format. Rows are read through a
+     * database cursor and written as they arrive, so memory use does not grow with the number of users.
+     *
+     * @param format       {@link UserExportFormat}
+     * @param outputStream {@link OutputStream} left open
+     * @return number of exported users
+     * @throws IOException If the stream can not be written.
+     */
+    long exportUsers(UserExportFormat format, OutputStream outputStream) throws IOException;
+
+    /**
+     * This method converts user dto to entity, normalizing the email
      *
      * @param userDto {@link UserDto}
      * @return {@link User}
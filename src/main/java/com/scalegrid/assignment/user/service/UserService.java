@@ -1,76 +1,255 @@
 package com.scalegrid.assignment.user.service;
 
+import com.scalegrid.assignment.config.ReadReplicaRouting;
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.exception.PreconditionFailedException;
 import com.scalegrid.assignment.exception.ResourceNotFoundException;
+import com.scalegrid.assignment.user.audit.UserAuditLog;
+import com.scalegrid.assignment.user.audit.UserAuditRecord;
+import com.scalegrid.assignment.user.cache.UserCache;
+import com.scalegrid.assignment.user.cache.UserCountCache;
+import com.scalegrid.assignment.user.export.UserExportFormat;
+import com.scalegrid.assignment.user.export.UserExportWriter;
+import com.scalegrid.assignment.user.export.UserStream;
+import com.scalegrid.assignment.user.importer.UserImportFormat;
+import com.scalegrid.assignment.user.importer.UserImportReader;
+import com.scalegrid.assignment.user.importer.UserImportRecord;
 import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.UserChange;
+import com.scalegrid.assignment.user.model.dto.UserBatchResult;
+import com.scalegrid.assignment.user.model.dto.UserChangePage;
+import com.scalegrid.assignment.user.model.dto.UserCount;
+import com.scalegrid.assignment.user.model.dto.UserCursorPage;
 import com.scalegrid.assignment.user.model.dto.UserDto;
+import com.scalegrid.assignment.user.model.dto.UserImportResult;
+import com.scalegrid.assignment.user.model.dto.UserLookupRequest;
+import com.scalegrid.assignment.user.model.dto.UserLookupResult;
+import com.scalegrid.assignment.user.model.dto.UserSearchCriteria;
+import com.scalegrid.assignment.user.model.dto.UserSearchPage;
+import com.scalegrid.assignment.user.outbox.UserChangeFeed;
+import com.scalegrid.assignment.user.repository.UserChangeRepository;
+import com.scalegrid.assignment.user.repository.UserMergeResult;
 import com.scalegrid.assignment.user.repository.UserRepository;
+import com.scalegrid.assignment.user.repository.UserRow;
+import com.scalegrid.assignment.user.repository.UserSpecifications;
+import com.scalegrid.assignment.user.repository.UserWriteResult;
+import com.scalegrid.assignment.user.util.EmailNormalizer;
 import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
 
 /**
  * <p>This service is responsible for user related operations</p>
  */
 @Service
 public class UserService implements IUserService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
     private static final String USER_NOT_FOUND_MODIFY_ID = "While modifying user not found with ID: ";
     private static final String USER_NOT_FOUND_DELETE_ID = "While deleting user not found with ID: ";
     private static final String USER_NOT_FOUND_EMAIL = "User not found with email: ";
+    private static final String UPSERT_NOT_RETURNED = "Upsert returned no user with email: ";
+    private static final String VERSION_MISMATCH = "User was modified concurrently, version is not: ";
+    private static final String INVALID_CURSOR = "Invalid cursor: ";
+    private static final String INVALID_PAGE_SIZE = "Page size must be between 1 and ";
+    private static final String INVALID_PAGE = "Page must not be negative: ";
+    private static final String CURSOR_PREFIX = "id:";
+    private static final String TOO_MANY_ITEMS = "Batch must contain at most items: ";
+    private static final String DUPLICATE_EMAIL = "Email already exists: ";
+    private static final String TOO_MANY_LOOKUPS = "Lookup must contain at most emails and ids: ";
+    private static final String TOO_MANY_RESULTS = "Search can page through at most users: ";
+    private static final String NAME_CONTAINS_TOO_SHORT = "Name part must have at least 3 characters";
+    private static final String INVALID_BIRTH_DATE_RANGE = "Birthdate range must not end before it starts";
+    private static final String INVALID_WAIT = "Wait must be between 0 and seconds: ";
+    private static final String CHANGES_NOT_RETAINED = "Changes are not retained anymore after position: ";
+    private static final int MIN_NAME_CONTAINS_LENGTH = 3;
+    public static final int MAX_CURSOR_PAGE_SIZE = 1000;
     public final UserRepository userRepository;
+    private final Validator validator;
+    private final UserProperties userProperties;
+    private final UserCache userCache;
+    private final UserCountCache userCountCache;
+    private final UserAuditLog userAuditLog;
+    private final UserChangeRepository userChangeRepository;
+    private final UserChangeFeed userChangeFeed;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Executor taskExecutor;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, Validator validator,
+                       UserProperties userProperties, UserCache userCache, UserCountCache userCountCache,
+                       UserAuditLog userAuditLog, UserChangeRepository userChangeRepository, UserChangeFeed userChangeFeed,
+                       PlatformTransactionManager transactionManager,
+                       @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor taskExecutor) {
         this.userRepository = userRepository;
+        this.validator = validator;
+        this.userProperties = userProperties;
+        this.userCache = userCache;
+        this.userCountCache = userCountCache;
+        this.userAuditLog = userAuditLog;
+        this.userChangeRepository = userChangeRepository;
+        this.userChangeFeed = userChangeFeed;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
     }
 
     /**
-     * This method creates new user. For duplicate email it will throw
-     * {@link ConstraintViolationException}
+     * This method creates new user and records the change in the outbox, in one transaction, and in the audit
+     * log once committed. For duplicate email it will throw {@link ConstraintViolationException}
      *
      * @param userDto {@link UserDto}
      * @return {@link User}
      */
     @Override
     public User createUser(UserDto userDto) {
-        return userRepository.save(convertDtoToEntity(userDto));
+        return transactionTemplate.execute(status -> {
+            User user = userRepository.saveAndFlush(convertDtoToEntity(userDto));
+            userChangeRepository.insertCreated(List.of(user.getId()));
+            userCache.invalidate(user.getEmail());
+            userCountCache.add(1);
+            userAuditLog.created(user.getId(), UserAuditRecord.Values.of(user));
+            return user;
+        });
+    }
+
+    /**
+     * This method creates many users using JDBC batches. Duplicate or invalid items are
+     * reported in their result and do not fail the other items.
+     *
+     * @param userDtos {@link List<UserDto>}
+     * @return {@link List<UserBatchResult>} one result per item, in request order
+     * @throws InvalidRequestException If the request holds too many items.
+     */
+    @Override
+    public List<UserBatchResult> createUsers(List<UserDto> userDtos) {
+        int maxItems = userProperties.getBatch().getMaxItems();
+        if (userDtos.size() > maxItems) {
+            throw new InvalidRequestException(TOO_MANY_ITEMS.concat(String.valueOf(maxItems)));
+        }
+        UserBatchResult[] results = new UserBatchResult[userDtos.size()];
+        Set<String> requestEmails = new HashSet<>();
+        int batchSize = userProperties.getBatch().getSize();
+        for (int from = 0; from < userDtos.size(); from += batchSize) {
+            createBatch(userDtos, from, Math.min(from + batchSize, userDtos.size()), requestEmails, results);
+        }
+        return Arrays.asList(results);
     }
 
     /**
-     * This method modifies user info based on user id.
+     * This method modifies user info based on user id with a single update statement. When a version is
+     * given the user is only modified if it still has that version.
      *
      * @param userDto {@link UserDto}
      * @param id      {@link Long}
+     * @param version {@link Long} expected version, null to modify whatever the version
      * @return {@link User}
      * @throws ResourceNotFoundException
+     * @throws InvalidRequestException     If the user is invalid.
+     * @throws PreconditionFailedException If the user has another version.
      */
     @Override
-    public User modifyUser(UserDto userDto, Long id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(USER_NOT_FOUND_MODIFY_ID.concat(String.valueOf(id))));
-
-        user.setName(userDto.getName());
-        user.setEmail(userDto.getEmail());
-        user.setBirthDate(userDto.getDateOfBirth());
-        return userRepository.save(user);
+    public User modifyUser(UserDto userDto, Long id, Long version) {
+        User user = validated(convertDtoToEntity(userDto));
+        UserWriteResult result = userRepository.updateUser(id, version, user.getName(), user.getEmail(),
+                        user.getBirthDate())
+                .orElseThrow(() -> notWritten(USER_NOT_FOUND_MODIFY_ID, id, version));
+        userCache.invalidate(result.getPreviousEmail(), result.getEmail());
+        userAuditLog.modified(id, previousValues(result), UserAuditRecord.Values.of(result));
+        return result.toUser();
     }
 
     /**
-     * This method deletes user info based on user id.
+     * This method deletes user info based on user id with a single delete statement. When a version is
+     * given the user is only deleted if it still has that version.
      *
-     * @param id {@link Long}
+     * @param id      {@link Long}
+     * @param version {@link Long} expected version, null to delete whatever the version
      * @throws ResourceNotFoundException
+     * @throws PreconditionFailedException If the user has another version.
+     */
+    @Override
+    public void removeUser(Long id, Long version) throws ResourceNotFoundException {
+        UserRow deleted = userRepository.deleteUser(id, version)
+                .orElseThrow(() -> notWritten(USER_NOT_FOUND_DELETE_ID, id, version));
+        userCache.invalidate(deleted.getEmail());
+        userCountCache.add(-1);
+        userAuditLog.removed(id, UserAuditRecord.Values.of(deleted));
+    }
+
+    /**
+     * This method creates the user, or updates the user holding the same email, in one statement. A user
+     * holding the values already is returned as it is, without being written or audited.
+     *
+     * @param userDto {@link UserDto}
+     * @return {@link UserWriteResult} written user and whether it was inserted
+     * @throws InvalidRequestException If the user is invalid.
      */
     @Override
-    public void removeUser(Long id) throws ResourceNotFoundException {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(USER_NOT_FOUND_DELETE_ID.concat(String.valueOf(id))));
-        userRepository.delete(user);
+    public UserWriteResult upsertUser(UserDto userDto) {
+        User user = validated(convertDtoToEntity(userDto));
+        // the statement misses an unchanged user inserted concurrently after its snapshot, the next one sees it
+        UserWriteResult result = userRepository.upsertUser(user.getName(), user.getEmail(), user.getBirthDate())
+                .or(() -> userRepository.upsertUser(user.getName(), user.getEmail(), user.getBirthDate()))
+                .orElseThrow(() -> new IllegalStateException(UPSERT_NOT_RETURNED.concat(user.getEmail())));
+        if (result.isUnchanged()) {
+            return result;
+        }
+        userCache.invalidate(result.getEmail());
+        if (Boolean.TRUE.equals(result.getInserted())) {
+            userCountCache.add(1);
+            userAuditLog.created(result.getId(), UserAuditRecord.Values.of(result));
+        } else {
+            userAuditLog.modified(result.getId(), previousValues(result), UserAuditRecord.Values.of(result));
+        }
+        return result;
     }
 
 
     /**
-     * This method gets user info based on email.
+     * This method gets user info based on email. Results, including misses, are served
+     * from {@link UserCache} and written entries are invalidated on every user write.
      *
      * @param email {@link String}
      * @return {@link User}
@@ -78,24 +257,299 @@ public class UserService implements IUserService {
      */
     @Override
     public User getUser(String email) {
-        return userRepository.findByEmail(email)
+        return userCache.get(email, userRepository::findByEmail)
                 .orElseThrow(() -> new ResourceNotFoundException(USER_NOT_FOUND_EMAIL.concat(String.valueOf(email))));
     }
 
 
     /**
-     * This method gets user list using paging.
+     * This method resolves many users by email and/or id. Emails are served from the user cache first;
+     * cache misses and ids are resolved together with one {@code = any(?)} query per chunk of keys.
+     *
+     * @param request {@link UserLookupRequest}
+     * @return {@link UserLookupResult} found users in request order and the emails and ids not found
+     * @throws InvalidRequestException If the request holds too many emails and ids.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public UserLookupResult lookupUsers(UserLookupRequest request) {
+        int maxItems = userProperties.getLookup().getMaxItems();
+        List<String> emails = request.getEmails() == null ? List.of() : request.getEmails();
+        List<Long> ids = request.getIds() == null ? List.of() : request.getIds();
+        if (emails.size() + ids.size() > maxItems) {
+            throw new InvalidRequestException(TOO_MANY_LOOKUPS.concat(String.valueOf(maxItems)));
+        }
+        Set<String> emailKeys = emails.stream().filter(email -> email != null)
+                .map(EmailNormalizer::normalize).collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<Long> idKeys = ids.stream().filter(id -> id != null)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // ids ride along with the query of the emails the cache misses, if there is one
+        Map<Long, User> byId = new HashMap<>();
+        AtomicBoolean idsLoaded = new AtomicBoolean();
+        Map<String, Optional<User>> byEmail = userCache.getAll(emailKeys, misses -> {
+            idsLoaded.set(true);
+            Map<String, User> found = new HashMap<>();
+            for (User user : findAllByIdsOrEmails(idKeys, misses)) {
+                byId.put(user.getId(), user);
+                found.put(EmailNormalizer.normalize(user.getEmail()), user);
+            }
+            return found;
+        });
+        if (!idsLoaded.get()) {
+            findAllByIdsOrEmails(idKeys, Set.of()).forEach(user -> byId.put(user.getId(), user));
+        }
+
+        UserLookupResult result = new UserLookupResult();
+        Map<Long, User> users = new LinkedHashMap<>();
+        for (String email : emailKeys) {
+            Optional<User> user = byEmail.get(email);
+            if (user.isPresent()) {
+                users.putIfAbsent(user.get().getId(), user.get());
+            } else {
+                result.getMissingEmails().add(email);
+            }
+        }
+        for (Long id : idKeys) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.putIfAbsent(id, user);
+            } else {
+                result.getMissingIds().add(id);
+            }
+        }
+        result.setUsers(new ArrayList<>(users.values()));
+        return result;
+    }
+
+    /**
+     * This method gets user list using paging. No count query is issued, see {@link #countUsers(boolean)}
+     * for the total.
      *
      * @param pageable {@link Pageable}
      * @return {@link List<User>}
      */
     @Override
+    @Transactional(readOnly = true)
     public List<User> getUserList(Pageable pageable) {
-        return userRepository.findAll(pageable).getContent();
+        return userRepository.findAllBy(pageable).getContent();
+    }
+
+    /**
+     * This method gets the number of users without counting them per call: either the cached count, adjusted
+     * by the writes committed since it was taken, or the planner's estimate.
+     *
+     * @param estimate whether the planner's estimate is enough
+     * @return {@link UserCount}
+     */
+    @Override
+    public UserCount countUsers(boolean estimate) {
+        return estimate ? userCountCache.estimate() : userCountCache.get();
+    }
+
+    /**
+     * This method gets user list using keyset (seek) paging. Each page costs the same
+     * regardless of its depth and no count query is issued.
+     *
+     * @param after {@link String} opaque cursor of the previous page, null for the first page
+     * @param size  page size
+     * @return {@link UserCursorPage}
+     * @throws InvalidRequestException If the cursor or the size is invalid.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public UserCursorPage getUserList(String after, int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new InvalidRequestException(INVALID_PAGE_SIZE.concat(String.valueOf(MAX_CURSOR_PAGE_SIZE)));
+        }
+        long afterId = after == null || after.isEmpty() ? Long.MIN_VALUE : decodeCursor(after);
+
+        // one extra row tells whether a next page exists without counting
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size + 1));
+        if (users.size() <= size) {
+            return new UserCursorPage(users, null);
+        }
+        List<User> content = new ArrayList<>(users.subList(0, size));
+        return new UserCursorPage(content, encodeCursor(content.get(size - 1).getId()));
+    }
+
+    /**
+     * This method gets one page of users in id order as a {@link UserStream}. Rows are read through a database
+     * cursor and written as they arrive once the stream is written, so neither memory use nor the time to the
+     * first user grows with the page size. The arguments are checked at once, before anything is written.
+     *
+     * @param page zero-based page number
+     * @param size page size
+     * @return {@link UserStream} reading the page in a read-only transaction when written
+     * @throws InvalidRequestException If the page or the size is invalid.
+     */
+    @Override
+    public UserStream streamUserList(int page, int size) {
+        int maxPageSize = userProperties.getStreaming().getMaxPageSize();
+        if (size < 1 || size > maxPageSize) {
+            throw new InvalidRequestException(INVALID_PAGE_SIZE.concat(String.valueOf(maxPageSize)));
+        }
+        if (page < 0) {
+            throw new InvalidRequestException(INVALID_PAGE.concat(String.valueOf(page)));
+        }
+        Pageable pageable = PageRequest.of(page, size);
+        return writer -> {
+            try {
+                return readOnlyTransactionTemplate.execute(status -> writeRows(pageable, writer));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+    }
+
+    /**
+     * This method searches users by the given filters, combined with and, one page at a time in id order.
+     * Every filter is served by an index and the number of users reachable by paging is capped.
+     *
+     * @param criteria {@link UserSearchCriteria}
+     * @param page     zero-based page number
+     * @param size     page size
+     * @return {@link UserSearchPage}
+     * @throws InvalidRequestException If a filter, the page or the size is invalid, or the page is past the cap.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public UserSearchPage searchUsers(UserSearchCriteria criteria, int page, int size) {
+        UserProperties.Search search = userProperties.getSearch();
+        if (size < 1 || size > search.getMaxPageSize()) {
+            throw new InvalidRequestException(INVALID_PAGE_SIZE.concat(String.valueOf(search.getMaxPageSize())));
+        }
+        if (page < 0 || (long) (page + 1) * size > search.getMaxResults()) {
+            throw new InvalidRequestException(TOO_MANY_RESULTS.concat(String.valueOf(search.getMaxResults())));
+        }
+        Specification<User> specification = Specification.where(null);
+        if (hasText(criteria.getName())) {
+            specification = specification.and(UserSpecifications.nameStartsWith(criteria.getName()));
+        }
+        if (hasText(criteria.getNameContains())) {
+            if (criteria.getNameContains().length() < MIN_NAME_CONTAINS_LENGTH) {
+                throw new InvalidRequestException(NAME_CONTAINS_TOO_SHORT);
+            }
+            specification = specification.and(UserSpecifications.nameContains(criteria.getNameContains()));
+        }
+        if (hasText(criteria.getEmail())) {
+            specification = specification.and(UserSpecifications.emailStartsWith(criteria.getEmail().trim()));
+        }
+        if (criteria.getBornFrom() != null && criteria.getBornTo() != null
+                && criteria.getBornFrom().isAfter(criteria.getBornTo())) {
+            throw new InvalidRequestException(INVALID_BIRTH_DATE_RANGE);
+        }
+        if (criteria.getBornFrom() != null) {
+            specification = specification.and(UserSpecifications.bornOnOrAfter(criteria.getBornFrom()));
+        }
+        if (criteria.getBornTo() != null) {
+            specification = specification.and(UserSpecifications.bornOnOrBefore(criteria.getBornTo()));
+        }
+        Slice<User> users = userRepository.search(specification, PageRequest.of(page, size));
+        return new UserSearchPage(users.getContent(), page, size, users.hasNext());
+    }
+
+    /**
+     * This method gets the user changes published after the given position from the outbox. When there is
+     * none yet, the returned future completes once {@link UserChangeFeed} learns one is published or the
+     * wait ends, then the changes are read again, from the primary, on the application task executor.
+     *
+     * @param since position of the last change the caller has seen, 0 for all retained changes
+     * @param limit maximum number of changes
+     * @param wait  {@link Duration} maximum wait for a change, zero to answer at once
+     * @return {@link CompletableFuture} of {@link UserChangePage}
+     * @throws InvalidRequestException If the limit or the wait is invalid, or changes after since are not
+     *                                 retained anymore.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CompletableFuture<UserChangePage> getChanges(long since, int limit, Duration wait) {
+        UserProperties.Outbox outbox = userProperties.getOutbox();
+        if (limit < 1 || limit > outbox.getMaxPageSize()) {
+            throw new InvalidRequestException(INVALID_PAGE_SIZE.concat(String.valueOf(outbox.getMaxPageSize())));
+        }
+        if (wait.isNegative() || wait.compareTo(outbox.getMaxWait()) > 0) {
+            throw new InvalidRequestException(INVALID_WAIT.concat(String.valueOf(outbox.getMaxWait().toSeconds())));
+        }
+        // the last published change is never purged, so a gap before the first retained one means a purge
+        Long earliestPosition = userChangeRepository.findEarliestPosition();
+        if (earliestPosition != null && since < earliestPosition - 1) {
+            throw new InvalidRequestException(CHANGES_NOT_RETAINED.concat(String.valueOf(since)));
+        }
+        UserChangePage page = findChanges(since, limit);
+        if (!page.getChanges().isEmpty() || wait.isZero()) {
+            return CompletableFuture.completedFuture(page);
+        }
+        // the feed completes the wait on the relay's thread, so the read is pinned here rather than by the request
+        return userChangeFeed.awaitAfter(since, wait).thenApplyAsync(ignored -> ReadReplicaRouting.onPrimary(() ->
+                findChanges(since, limit)), taskExecutor);
+    }
+
+    /**
+     * This method imports users from an upload read one record at a time. Records are validated like
+     * {@link User}, then staged and merged into the users table in chunks, one transaction per chunk.
+     * Invalid records and duplicate emails are counted and reported without failing the import.
+     *
+     * @param format      {@link UserImportFormat}
+     * @param update      whether users with an existing email are updated instead of skipped
+     * @param inputStream {@link InputStream} upload
+     * @return {@link UserImportResult}
+     * @throws IOException             If the upload can not be read.
+     * @throws InvalidRequestException If a CSV upload has no valid header.
+     */
+    @Override
+    public UserImportResult importUsers(UserImportFormat format, boolean update, InputStream inputStream)
+            throws IOException {
+        UserImportReader reader = format.reader(inputStream);
+        UserImportResult result = new UserImportResult();
+        int chunkSize = userProperties.getImport().getChunkSize();
+        List<UserImportRecord> chunk = new ArrayList<>(chunkSize);
+        for (UserImportRecord record = reader.next(); record != null; record = reader.next()) {
+            result.setReceived(result.getReceived() + 1);
+            User user = convertDtoToEntity(record.getUser());
+            String violations = record.getError() != null ? record.getError() : validate(user);
+            if (violations != null) {
+                result.setInvalid(result.getInvalid() + 1);
+                reject(result, record.getLine(), UserBatchResult.Status.INVALID, violations);
+                continue;
+            }
+            chunk.add(record);
+            if (chunk.size() == chunkSize) {
+                mergeChunk(chunk, update, result);
+                chunk.clear();
+            }
+        }
+        mergeChunk(chunk, update, result);
+        return result;
+    }
+
+    /**
+     * This method writes every user to the stream in the given format. Rows are read through a
+     * database cursor and written as they arrive, so memory use does not grow with the number of users.
+     *
+     * @param format       {@link UserExportFormat}
+     * @param outputStream {@link OutputStream} left open
+     * @return number of exported users
+     * @throws IOException If the stream can not be written.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportUsers(UserExportFormat format, OutputStream outputStream) throws IOException {
+        UserExportWriter writer = format.writer(outputStream);
+        long count = 0;
+        try (Stream<UserRow> rows = userRepository.streamAllRows()) {
+            Iterator<UserRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
     }
 
     /**
-     * This method converts user dto to entity
+     * This method converts user dto to entity, normalizing the email
      *
      * @param userDto {@link UserDto}
      * @return {@link User}
@@ -103,6 +557,210 @@ public class UserService implements IUserService {
     @Override
     public User convertDtoToEntity(UserDto userDto) {
         if (userDto == null) return null;
-        return new User(userDto.getName(), userDto.getEmail(), userDto.getDateOfBirth());
+        return new User(userDto.getName(), EmailNormalizer.normalize(userDto.getEmail()), userDto.getDateOfBirth());
+    }
+
+    /**
+     * A versioned write that found no row either lost against a concurrent write or targets a missing
+     * user; only this failure path pays the extra lookup telling them apart.
+     */
+    private RuntimeException notWritten(String notFoundMessage, Long id, Long version) {
+        if (version != null && userRepository.existsById(id)) {
+            return new PreconditionFailedException(VERSION_MISMATCH.concat(String.valueOf(version)));
+        }
+        return new ResourceNotFoundException(notFoundMessage.concat(String.valueOf(id)));
+    }
+
+    private static UserAuditRecord.Values previousValues(UserWriteResult result) {
+        if (result.getPreviousVersion() == null) return null;
+        // upserts match on the email, so it did not change
+        String previousEmail = result.getPreviousEmail() != null ? result.getPreviousEmail() : result.getEmail();
+        return new UserAuditRecord.Values(result.getPreviousName(), previousEmail, result.getPreviousBirthDate(),
+                result.getPreviousVersion());
+    }
+
+    private UserChangePage findChanges(long since, int limit) {
+        List<UserChange> changes = userChangeRepository.findByPositionGreaterThanOrderByPositionAsc(since,
+                PageRequest.of(0, limit));
+        return new UserChangePage(changes, changes.isEmpty() ? since : changes.get(changes.size() - 1).getPosition());
+    }
+
+    private long writeRows(Pageable pageable, UserExportWriter writer) {
+        long count = 0;
+        try (Stream<UserRow> rows = userRepository.streamRows(pageable)) {
+            Iterator<UserRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                count++;
+            }
+            writer.finish();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return count;
+    }
+
+    private List<User> findAllByIdsOrEmails(Collection<Long> ids, Collection<String> emails) {
+        int chunkSize = userProperties.getLookup().getChunkSize();
+        List<Long> idList = new ArrayList<>(ids);
+        List<String> emailList = new ArrayList<>(emails);
+        List<User> users = new ArrayList<>();
+        int idFrom = 0;
+        int emailFrom = 0;
+        while (idFrom < idList.size() || emailFrom < emailList.size()) {
+            int idTo = Math.min(idList.size(), idFrom + chunkSize);
+            int emailTo = Math.min(emailList.size(), emailFrom + chunkSize - (idTo - idFrom));
+            users.addAll(userRepository.findAllByIdsOrEmails(idList.subList(idFrom, idTo),
+                    emailList.subList(emailFrom, emailTo)));
+            idFrom = idTo;
+            emailFrom = emailTo;
+        }
+        return users;
+    }
+
+    private void createBatch(List<UserDto> userDtos, int from, int to,
+                             Set<String> requestEmails, UserBatchResult[] results) {
+        List<Integer> indexes = new ArrayList<>(to - from);
+        List<User> users = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            User user = convertDtoToEntity(userDtos.get(i));
+            String violations = user == null ? "User is required" : validate(user);
+            if (violations != null) {
+                results[i] = UserBatchResult.rejected(i, UserBatchResult.Status.INVALID, violations);
+            } else if (!requestEmails.add(user.getEmail())) {
+                results[i] = UserBatchResult.rejected(i, UserBatchResult.Status.DUPLICATE,
+                        DUPLICATE_EMAIL.concat(user.getEmail()));
+            } else {
+                indexes.add(i);
+                users.add(user);
+            }
+        }
+        if (users.isEmpty()) return;
+
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(
+                users.stream().map(User::getEmail).collect(Collectors.toList())));
+        List<Integer> newIndexes = new ArrayList<>(users.size());
+        List<User> newUsers = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (existingEmails.contains(user.getEmail())) {
+                results[indexes.get(i)] = UserBatchResult.rejected(indexes.get(i), UserBatchResult.Status.DUPLICATE,
+                        DUPLICATE_EMAIL.concat(user.getEmail()));
+            } else {
+                newIndexes.add(indexes.get(i));
+                newUsers.add(user);
+            }
+        }
+        if (newUsers.isEmpty()) return;
+
+        try {
+            List<User> saved = transactionTemplate.execute(status -> {
+                List<User> batch = userRepository.saveAllAndFlush(newUsers);
+                userChangeRepository.insertCreated(batch.stream().map(User::getId).collect(Collectors.toList()));
+                return batch;
+            });
+            for (int i = 0; i < saved.size(); i++) {
+                results[newIndexes.get(i)] = UserBatchResult.created(newIndexes.get(i), saved.get(i));
+                userCache.invalidate(saved.get(i).getEmail());
+                userAuditLog.created(saved.get(i).getId(), UserAuditRecord.Values.of(saved.get(i)));
+            }
+            userCountCache.add(saved.size());
+        } catch (DataIntegrityViolationException ex) {
+            // a concurrent writer took one of the emails: fall back to one insert per item
+            for (int i = 0; i < newUsers.size(); i++) {
+                User user = newUsers.get(i);
+                user.setId(null);
+                user.setVersion(null);
+                try {
+                    User saved = transactionTemplate.execute(status -> {
+                        User created = userRepository.saveAndFlush(user);
+                        userChangeRepository.insertCreated(List.of(created.getId()));
+                        return created;
+                    });
+                    results[newIndexes.get(i)] = UserBatchResult.created(newIndexes.get(i), saved);
+                    userCache.invalidate(user.getEmail());
+                    userCountCache.add(1);
+                    userAuditLog.created(saved.getId(), UserAuditRecord.Values.of(saved));
+                } catch (DataIntegrityViolationException duplicate) {
+                    results[newIndexes.get(i)] = UserBatchResult.rejected(newIndexes.get(i),
+                            UserBatchResult.Status.DUPLICATE, DUPLICATE_EMAIL.concat(user.getEmail()));
+                }
+            }
+        }
+    }
+
+    private void mergeChunk(List<UserImportRecord> chunk, boolean update, UserImportResult result) {
+        if (chunk.isEmpty()) return;
+        List<User> users = chunk.stream()
+                .map(record -> convertDtoToEntity(record.getUser()))
+                .collect(Collectors.toList());
+        UserMergeResult merged = userRepository.mergeUsers(users, update);
+        result.setCreated(result.getCreated() + merged.getInsertedEmails().size());
+        result.setUpdated(result.getUpdated() + merged.getUpdatedEmails().size());
+
+        // only the first user of an email is merged, others were skipped as duplicates; a first user not written
+        // existed, so it was skipped as well, or left unchanged when updating
+        Set<String> written = new HashSet<>(merged.getInsertedEmails());
+        written.addAll(merged.getUpdatedEmails());
+        Set<String> merges = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            String email = users.get(i).getEmail();
+            boolean first = merges.add(email);
+            if (first && written.contains(email)) continue;
+            if (first && update) {
+                result.setUnchanged(result.getUnchanged() + 1);
+                continue;
+            }
+            result.setDuplicates(result.getDuplicates() + 1);
+            reject(result, chunk.get(i).getLine(), UserBatchResult.Status.DUPLICATE, DUPLICATE_EMAIL.concat(email));
+        }
+        userCache.invalidate(written.toArray(new String[0]));
+        userCountCache.add(merged.getInsertedEmails().size());
+        // the merge does not read the rows it updates, so their previous values are unknown
+        merged.getInsertedUsers().forEach(user -> userAuditLog.created(user.getId(), UserAuditRecord.Values.of(user)));
+        merged.getUpdatedUsers().forEach(user -> userAuditLog.modified(user.getId(), null,
+                UserAuditRecord.Values.of(user)));
+        LOGGER.debug("User import progress: {} received, {} created, {} updated", result.getReceived(),
+                result.getCreated(), result.getUpdated());
+    }
+
+    private void reject(UserImportResult result, int line, UserBatchResult.Status status, String message) {
+        if (result.getRejected().size() < userProperties.getImport().getMaxErrors()) {
+            result.getRejected().add(UserBatchResult.rejected(line, status, message));
+        }
+    }
+
+    private User validated(User user) {
+        String violations = user == null ? "User is required" : validate(user);
+        if (violations != null) {
+            throw new InvalidRequestException(violations);
+        }
+        return user;
+    }
+
+    private String validate(User user) {
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(CURSOR_PREFIX.concat(String.valueOf(id)).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new InvalidRequestException(INVALID_CURSOR.concat(cursor));
+            }
+            return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException(INVALID_CURSOR.concat(cursor));
+        }
     }
 }
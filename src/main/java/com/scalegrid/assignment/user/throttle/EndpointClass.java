@@ -0,0 +1,54 @@
+package com.scalegrid.assignment.user.throttle;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <p>Classes of user endpoints, each with its own rate limit per client.</p>
+ */
+public enum EndpointClass {
+    /**
+     * Creates, updates, deletes and imports
+     */
+    WRITE,
+    /**
+     * User lists, searches, exports, counts, lookups and the change feed
+     */
+    LIST,
+    /**
+     * Single users by email
+     */
+    USER;
+
+    static final String BASE_PATH = "/api/v1/users";
+    private static final Set<String> LIST_PATHS = Set.of("cursor", "search", "stream", "export", "count", "changes");
+    private static final String LOOKUP_PATH = "lookup";
+
+    /**
+     * This method classifies a request to the user endpoints.
+     *
+     * @param method HTTP method
+     * @param path   request path, without the context path
+     * @return {@link EndpointClass}
+     */
+    public static EndpointClass of(String method, String path) {
+        String rest = path.startsWith(BASE_PATH) ? path.substring(BASE_PATH.length()) : path;
+        if (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return rest.isEmpty() || rest.indexOf('/') >= 0 || LIST_PATHS.contains(rest) ? LIST : USER;
+        }
+        // the lookup is a read sent as POST for its body
+        return "POST".equals(method) && LOOKUP_PATH.equals(rest) ? LIST : WRITE;
+    }
+
+    /**
+     * This method returns the metric tag of this class.
+     *
+     * @return tag value
+     */
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,138 @@
+package com.scalegrid.assignment.user.throttle;
+
+import com.scalegrid.assignment.config.UserProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>LoadShedder class turns requests away before they queue for a database connection or a thread.</p>
+ *
+ * <p>Every {@code app.user.throttle.sample-interval} it samples the mean wait of the connections acquired
+ * since the previous sample from the Hikari pool metrics. While the wait is above {@code pool-wait-threshold}
+ * the share of requests shed grows, while it is below the share shrinks, by at most a tenth per sample and
+ * in proportion to the distance from the threshold. The share settles where the pool keeps up with the
+ * requests let in; setting it from the last sample alone would flip between shedding everything, which
+ * empties the pool queue, and nothing, which floods it again. Independently, at most {@code max-in-flight}
+ * requests are let in at once.</p>
+ */
+public class LoadShedder implements SchedulingConfigurer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadShedder.class);
+    private static final String ACQUIRE_METER = "hikaricp.connections.acquire";
+    private static final String PENDING_METER = "hikaricp.connections.pending";
+    private static final double MAX_STEP = 0.1;
+    private final MeterRegistry meterRegistry;
+    private final long waitThresholdNanos;
+    private final int maxInFlight;
+    private final long sampleIntervalNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double poolWaitNanos;
+    private volatile double shedRatio;
+    // only touched by the sampling thread
+    private long lastAcquired;
+    private double lastWaitedNanos;
+
+    /**
+     * Constructs a new {@link LoadShedder} instance
+     *
+     * @param userProperties {@link UserProperties}
+     * @param meterRegistry  {@link MeterRegistry}
+     */
+    public LoadShedder(UserProperties userProperties, MeterRegistry meterRegistry) {
+        UserProperties.Throttle properties = userProperties.getThrottle();
+        this.meterRegistry = meterRegistry;
+        this.waitThresholdNanos = properties.getPoolWaitThreshold().toNanos();
+        this.maxInFlight = properties.getMaxInFlight();
+        this.sampleIntervalNanos = properties.getSampleInterval().toNanos();
+        Gauge.builder("users.api.in-flight", inFlight, AtomicInteger::get)
+                .description("User requests in progress")
+                .register(meterRegistry);
+        TimeGauge.builder("users.api.pool.wait", this, TimeUnit.NANOSECONDS, shedder -> shedder.poolWaitNanos)
+                .description("Recent mean wait for a pooled connection")
+                .register(meterRegistry);
+        Gauge.builder("users.api.shed.ratio", this, shedder -> shedder.shedRatio)
+                .description("Share of user requests shed for the connection pool wait")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedRateTask(this::sample, TimeUnit.NANOSECONDS.toMillis(sampleIntervalNanos));
+    }
+
+    /**
+     * This method lets a request in unless it is shed, it must be followed by {@link #exit()} when let in.
+     *
+     * @return whether the request may proceed
+     */
+    public boolean tryEnter() {
+        double ratio = shedRatio;
+        if (ratio > 0 && (ratio >= 1 || ThreadLocalRandom.current().nextDouble() < ratio)) {
+            return false;
+        }
+        int current = inFlight.incrementAndGet();
+        if (maxInFlight > 0 && current > maxInFlight) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * This method ends a request let in by {@link #tryEnter()}.
+     */
+    public void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * This method samples the connection pool wait and derives the share of requests to shed.
+     */
+    public void sample() {
+        long acquired = 0;
+        double waitedNanos = 0;
+        for (Timer timer : meterRegistry.find(ACQUIRE_METER).timers()) {
+            acquired += timer.count();
+            waitedNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        double pending = 0;
+        for (Gauge gauge : meterRegistry.find(PENDING_METER).gauges()) {
+            pending += gauge.value();
+        }
+        long acquiredSince = acquired - lastAcquired;
+        double wait = acquiredSince > 0 ? (waitedNanos - lastWaitedNanos) / acquiredSince : 0;
+        if (acquiredSince == 0 && pending > 0) {
+            // nobody got a connection while some wait, so the wait grew by the whole interval
+            wait = poolWaitNanos + sampleIntervalNanos;
+        }
+        lastAcquired = acquired;
+        lastWaitedNanos = waitedNanos;
+        double error = Math.min(1, Math.max(-1, (wait - waitThresholdNanos) / waitThresholdNanos));
+        double ratio = Math.min(1, Math.max(0, shedRatio + MAX_STEP * error));
+        if (ratio > 0 && shedRatio == 0) {
+            LOGGER.warn("Connection pool wait of {} ms, shedding user requests", (long) (wait / 1_000_000));
+        } else if (ratio == 0 && shedRatio > 0) {
+            LOGGER.info("Connection pool wait of {} ms, no longer shedding user requests", (long) (wait / 1_000_000));
+        }
+        poolWaitNanos = wait;
+        shedRatio = ratio;
+    }
+
+    /**
+     * This method returns the share of requests currently shed for the connection pool wait.
+     *
+     * @return ratio between 0 and 1
+     */
+    public double shedRatio() {
+        return shedRatio;
+    }
+}
@@ -0,0 +1,151 @@
+package com.scalegrid.assignment.user.throttle;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.exception.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>ThrottleFilter class protects the user endpoints from clients sending more than their share and from
+ * overload. Each client, told apart by API key or else by address, has a {@link TokenBucket} per
+ * {@link EndpointClass}; a request finding its bucket empty gets a 429 with {@code Retry-After}. Keys are not
+ * authenticated, so only the configured known keys count: with any other key a client could get a fresh bucket
+ * per request, and is told apart by address instead. Requests let
+ * through may still be shed by the {@link LoadShedder} with a 503. Both answers are cheap, they never wait for
+ * a thread of the pool or a connection.</p>
+ *
+ * <p>Every decision is counted in {@code users.api.throttle}, tagged with the endpoint class and the
+ * decision.</p>
+ */
+public class ThrottleFilter extends OncePerRequestFilter {
+    private static final String THROTTLE_COUNTER = "users.api.throttle";
+    private static final String RATE_LIMITED = "Rate limit of %s requests exceeded, retry in %d s";
+    private static final String OVERLOADED = "Service overloaded, retry later";
+    private final LoadShedder loadShedder;
+    private final ObjectMapper objectMapper;
+    private final String apiKeyHeader;
+    private final Set<String> knownApiKeys;
+    private final Map<EndpointClass, Cache<String, TokenBucket>> buckets = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, UserProperties.Throttle.Limit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> allowedCounters = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rateLimitedCounters = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> shedCounters = new EnumMap<>(EndpointClass.class);
+
+    /**
+     * Constructs a new {@link ThrottleFilter} instance
+     *
+     * @param userProperties {@link UserProperties}
+     * @param loadShedder    {@link LoadShedder}
+     * @param objectMapper   {@link ObjectMapper}
+     * @param meterRegistry  {@link MeterRegistry}
+     */
+    public ThrottleFilter(UserProperties userProperties, LoadShedder loadShedder, ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        UserProperties.Throttle properties = userProperties.getThrottle();
+        this.loadShedder = loadShedder;
+        this.objectMapper = objectMapper;
+        this.apiKeyHeader = properties.getApiKeyHeader();
+        this.knownApiKeys = Set.copyOf(properties.getKnownApiKeys());
+        limits.put(EndpointClass.WRITE, properties.getWrite());
+        limits.put(EndpointClass.LIST, properties.getList());
+        limits.put(EndpointClass.USER, properties.getUser());
+        for (EndpointClass endpoint : EndpointClass.values()) {
+            UserProperties.Throttle.Limit limit = limits.get(endpoint);
+            if (limit.getRate() > 0) {
+                // a bucket idle for longer than it takes to refill is full, dropping it changes nothing
+                buckets.put(endpoint, Caffeine.newBuilder()
+                        .maximumSize(properties.getMaxClients())
+                        .expireAfterAccess(Duration.ofNanos((long) (Math.max(limit.getBurst(), 1)
+                                * 1_000_000_000L / limit.getRate())).plusSeconds(1))
+                        .build());
+            }
+            allowedCounters.put(endpoint, throttleCounter(meterRegistry, endpoint, "allowed"));
+            rateLimitedCounters.put(endpoint, throttleCounter(meterRegistry, endpoint, "rate_limited"));
+            shedCounters.put(endpoint, throttleCounter(meterRegistry, endpoint, "shed"));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointClass endpoint = EndpointClass.of(request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()));
+        long waitNanos = tryAcquire(endpoint, clientKey(request));
+        if (waitNanos > 0) {
+            rateLimitedCounters.get(endpoint).increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+                    String.format(RATE_LIMITED, endpoint.tag(), retryAfter));
+            return;
+        }
+        if (!loadShedder.tryEnter()) {
+            shedCounters.get(endpoint).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, OVERLOADED);
+            return;
+        }
+        allowedCounters.get(endpoint).increment();
+        // async requests, like change feed long polls, leave once their thread is released
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            loadShedder.exit();
+        }
+    }
+
+    private long tryAcquire(EndpointClass endpoint, String clientKey) {
+        Cache<String, TokenBucket> endpointBuckets = buckets.get(endpoint);
+        if (endpointBuckets == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        UserProperties.Throttle.Limit limit = limits.get(endpoint);
+        return endpointBuckets.get(clientKey, key -> new TokenBucket(limit.getRate(), limit.getBurst(), now))
+                .tryAcquire(now);
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        return apiKey != null && knownApiKeys.contains(apiKey)
+                ? "key:".concat(apiKey) : "ip:".concat(request.getRemoteAddr());
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+            throws IOException {
+        ErrorResponse errorResponse = new ErrorResponse.
+                Builder()
+                .withMessage(message)
+                .withHttpStatus(status)
+                .withCreatedAt()
+                .build();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private static Counter throttleCounter(MeterRegistry meterRegistry, EndpointClass endpoint, String decision) {
+        return Counter.builder(THROTTLE_COUNTER)
+                .description("Throttling decisions on user requests")
+                .tag("endpoint", endpoint.tag())
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.scalegrid.assignment.user.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>TokenBucket class is a lock-free token bucket, kept as the generic cell rate algorithm: a single
+ * {@link AtomicLong} holds the time at which the bucket is full again, and each request pushes it one emission
+ * interval further unless that would exceed the burst. Concurrent requests retry a compare-and-set instead of
+ * taking a lock.</p>
+ */
+public class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * Constructs a new, full, {@link TokenBucket} instance
+     *
+     * @param rate     tokens added per second
+     * @param burst    tokens the bucket holds
+     * @param nowNanos current {@link System#nanoTime()}
+     */
+    public TokenBucket(double rate, int burst, long nowNanos) {
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / rate));
+        this.burstNanos = emissionIntervalNanos * Math.max(burst, 1);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * This method takes a token if one is left.
+     *
+     * @param nowNanos current {@link System#nanoTime()}
+     * @return 0 when a token was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            // nanoTime values are only compared by difference
+            long next = (current - nowNanos > 0 ? current : nowNanos) + emissionIntervalNanos;
+            long excess = next - nowNanos - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
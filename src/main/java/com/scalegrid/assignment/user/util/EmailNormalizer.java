@@ -0,0 +1,24 @@
+package com.scalegrid.assignment.user.util;
+
+import java.util.Locale;
+
+/**
+ * <p>EmailNormalizer class brings emails to the form they are stored, looked up and cached with: trimmed
+ * and lower case, so emails differing only by case belong to one user. The unique index on
+ * {@code lower(email)} enforces it in the database.</p>
+ */
+public final class EmailNormalizer {
+
+    private EmailNormalizer() {
+    }
+
+    /**
+     * This method normalizes the given email.
+     *
+     * @param email {@link String}
+     * @return {@link String} normalized email, null for null
+     */
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,59 @@
+package com.scalegrid.assignment.user.util;
+
+import com.scalegrid.assignment.exception.PreconditionFailedException;
+import com.scalegrid.assignment.user.model.User;
+
+/**
+ * <p>UserETag class builds the entity tag of a user, {@code W/"<id>-<version>"}, and reads the version
+ * an {@code If-Match} header expects. The version changes on every write, so the tag changes exactly when
+ * the user does. The tag is weak because JSON, Smile and CBOR responses of one version share it: they are
+ * equivalent, not byte for byte the same.</p>
+ */
+public final class UserETag {
+    private static final String ANY = "*";
+    private static final String WEAK = "W/";
+    private static final String QUOTE = "\"";
+    private static final char SEPARATOR = '-';
+    private static final String NOT_MATCHED = "If-Match does not match the current version of user with ID: ";
+
+    private UserETag() {
+    }
+
+    /**
+     * This method builds the entity tag of the user.
+     *
+     * @param user {@link User}
+     * @return {@link String} quoted entity tag
+     */
+    public static String of(User user) {
+        return WEAK + QUOTE + user.getId() + SEPARATOR + user.getVersion() + QUOTE;
+    }
+
+    /**
+     * This method returns the version of the user with the given id that the {@code If-Match} header expects.
+     * The tag is compared by version, so it may be weak, as the tags of this class are, or strong.
+     *
+     * @param ifMatch {@link String} header value, may be null
+     * @param id      {@link Long} id of the user written
+     * @return {@link Long} expected version, null when the header is absent or {@code *}
+     * @throws PreconditionFailedException If the header is not a single tag of this user.
+     */
+    public static Long expectedVersion(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith(WEAK)) {
+            tag = tag.substring(WEAK.length());
+        }
+        String prefix = QUOTE + id + SEPARATOR;
+        if (!tag.startsWith(prefix) || !tag.endsWith(QUOTE) || tag.length() <= prefix.length() + 1) {
+            throw new PreconditionFailedException(NOT_MATCHED.concat(String.valueOf(id)));
+        }
+        try {
+            return Long.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException(NOT_MATCHED.concat(String.valueOf(id)));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+-- User schema, as Hibernate created it with ddl-auto=update before migrations, plus what JPA can not declare.
+-- Databases created that way are baselined at version 0 and get this version applied too, so every statement
+-- must be idempotent.
+
+create sequence if not exists users_seq start 1 increment 50;
+
+create table if not exists users (
+    id int8 not null,
+    birth_date date not null,
+    email varchar(255) not null,
+    name varchar(255) not null,
+    version bigint default 0 not null,
+    primary key (id)
+);
+
+-- tables created before the optimistic locking had no version column
+alter table users add column if not exists version bigint not null default 0;
+
+-- ids come from users_seq now instead of the identity column, so start it past the existing ones
+select setval('users_seq', greatest((select coalesce(max(id), 0) from users), 1));
+
+create table if not exists user_outbox (
+    id bigserial not null,
+    birth_date date,
+    email varchar(255),
+    name varchar(255),
+    occurred_at timestamp with time zone default now() not null,
+    position int8 constraint user_outbox_position_key unique,
+    type varchar(16) not null,
+    user_id int8 not null,
+    version int8,
+    primary key (id)
+);
+
+create table if not exists user_audit (
+    id bigserial not null,
+    actor varchar(128) not null,
+    birth_date date,
+    email varchar(255),
+    name varchar(255),
+    occurred_at timestamp with time zone not null,
+    operation varchar(16) not null,
+    previous_birth_date date,
+    previous_email varchar(255),
+    previous_name varchar(255),
+    previous_version int8,
+    user_id int8,
+    version int8,
+    primary key (id)
+);
+create index if not exists user_audit_user_id_idx on user_audit (user_id);
+
+create table if not exists user_idempotency_key (
+    idempotency_key varchar(255) not null,
+    birth_date date,
+    created_at timestamp with time zone not null,
+    email varchar(255),
+    fingerprint varchar(64) not null,
+    name varchar(255),
+    user_id int8 not null,
+    version int8,
+    primary key (idempotency_key)
+);
+create index if not exists user_idempotency_key_created_at_idx on user_idempotency_key (created_at);
+
+-- Emails are unique whatever their case; lookups and prefix searches on lower(email) are served by this index
+create unique index if not exists users_email_lower_key on users (lower(email) text_pattern_ops);
+
+-- Search predicates: name prefixes, name substrings (trigrams) and birthdate ranges
+create extension if not exists pg_trgm;
+-- prefixes compare upper(name), so the planner can not pick the trigram index, far slower for short prefixes
+create index if not exists users_name_upper_prefix_idx on users (upper(name) text_pattern_ops);
+create index if not exists users_name_lower_trgm_idx on users using gin (lower(name) gin_trgm_ops);
+create index if not exists users_birth_date_idx on users (birth_date);
+
+-- User outbox: the relay reads the changes not published yet, oldest first
+create index if not exists user_outbox_unpublished_idx on user_outbox (id) where position is null;
@@ -0,0 +1,63 @@
+package com.scalegrid.assignment.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests {@link ConcurrencyLimitingDataSource} class functionalities
+ */
+public class ConcurrencyLimitingDataSourceTest {
+
+    @Test
+    public void testGetConnection_waitsForPermitUntilClose() throws Exception {
+        // given
+        DataSource targetDataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        ConcurrencyLimitingDataSource dataSource =
+                new ConcurrencyLimitingDataSource(targetDataSource, 1, Duration.ofMillis(50));
+
+        // when
+        when(targetDataSource.getConnection()).thenReturn(connection);
+
+        // then
+        Connection first = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        first.close();
+        // a second close is forwarded but does not release another permit
+        first.close();
+        Connection second = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        second.close();
+
+        // verify
+        verify(targetDataSource, times(2)).getConnection();
+        verify(connection, times(3)).close();
+    }
+
+    @Test
+    public void testGetConnection_releasesPermitOnFailure() throws Exception {
+        // given
+        DataSource targetDataSource = mock(DataSource.class);
+        ConcurrencyLimitingDataSource dataSource =
+                new ConcurrencyLimitingDataSource(targetDataSource, 1, Duration.ofMillis(50));
+
+        // when
+        when(targetDataSource.getConnection()).thenThrow(new SQLException("pool exhausted"))
+                .thenReturn(mock(Connection.class));
+
+        // then
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertNotNull(dataSource.getConnection());
+
+        // verify
+        verify(targetDataSource, times(2)).getConnection();
+    }
+}
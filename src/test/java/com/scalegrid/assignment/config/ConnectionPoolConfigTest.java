@@ -0,0 +1,65 @@
+package com.scalegrid.assignment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests {@link ConnectionPoolConfig} class functionalities
+ */
+public class ConnectionPoolConfigTest {
+
+    @Test
+    public void testPostProcess_sizesPoolFromCores() {
+        // given
+        ConnectionPoolProperties properties = new ConnectionPoolProperties();
+        properties.setConnectionsPerCore(2);
+        properties.setExtraConnections(1);
+        properties.setCores(4);
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(50);
+
+        // when
+        Object processed = postProcessor(properties).postProcessBeforeInitialization(dataSource, "dataSource");
+
+        // then
+        assertSame(dataSource, processed);
+        assertEquals(9, dataSource.getMaximumPoolSize());
+    }
+
+    @Test
+    public void testPostProcess_keepsConfiguredSizeByDefault() {
+        // given
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(50);
+
+        // when
+        postProcessor(new ConnectionPoolProperties()).postProcessBeforeInitialization(dataSource, "dataSource");
+
+        // then
+        assertEquals(50, dataSource.getMaximumPoolSize());
+    }
+
+    @Test
+    public void testPoolSize_defaultsToAvailableProcessors() {
+        // given
+        ConnectionPoolProperties properties = new ConnectionPoolProperties();
+
+        // when
+        properties.setConnectionsPerCore(2);
+
+        // then
+        assertEquals(Runtime.getRuntime().availableProcessors() * 2 + 1, properties.poolSize());
+    }
+
+    @SuppressWarnings("unchecked")
+    private BeanPostProcessor postProcessor(ConnectionPoolProperties properties) {
+        ObjectProvider<ConnectionPoolProperties> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(properties);
+        return ConnectionPoolConfig.connectionPoolSizingPostProcessor(provider);
+    }
+}
@@ -0,0 +1,127 @@
+package com.scalegrid.assignment.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link ReadReplicaConfig} routing against the configured database. The replica is the same
+ * database reached under another application name, which tells the connections apart.
+ */
+@SpringBootTest(properties = {
+        "app.datasource.read-replica.urls=${spring.datasource.url}?ApplicationName=replica",
+        "app.datasource.read-replica.max-pool-size=2"})
+public class ReadReplicaConfigTest {
+    private static final String APPLICATION_NAME = "select current_setting('application_name')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testReadOnlyTransaction_readsReplicaUnlessPinned() {
+        // given
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        // when
+        String readOnlyApplication = readOnly.execute(status -> jdbcTemplate.queryForObject(APPLICATION_NAME, String.class));
+        String readWriteApplication = readWrite.execute(status -> jdbcTemplate.queryForObject(APPLICATION_NAME, String.class));
+        String pinnedApplication = ReadReplicaRouting.onPrimary(() ->
+                readOnly.execute(status -> jdbcTemplate.queryForObject(APPLICATION_NAME, String.class)));
+
+        // then
+        assertEquals("replica", readOnlyApplication);
+        assertNotEquals("replica", readWriteApplication);
+        assertNotEquals("replica", pinnedApplication);
+    }
+
+    @Test
+    public void testReadYourWritesFilter_pinsWriterWithinWindow() throws Exception {
+        // given
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5), clock);
+        AtomicBoolean pinned = new AtomicBoolean();
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+
+        // when a client writes, then reads within and after the window
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/v1/users/1"), writeResponse, new MockFilterChain());
+        Cookie cookie = writeResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/v1/users");
+        read.setCookies(cookie);
+        filter.doFilter(read, new MockHttpServletResponse(), (request, response) ->
+                pinned.set(ReadReplicaRouting.isPrimaryRequired()));
+        boolean pinnedWithinWindow = pinned.get();
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/api/v1/users");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "1000000"));
+        filter.doFilter(expired, new MockHttpServletResponse(), (request, response) ->
+                pinned.set(ReadReplicaRouting.isPrimaryRequired()));
+
+        // then
+        assertEquals("1005000", cookie.getValue());
+        assertEquals(5, cookie.getMaxAge());
+        assertTrue(pinnedWithinWindow);
+        assertFalse(pinned.get());
+        assertFalse(ReadReplicaRouting.isPrimaryRequired());
+    }
+
+    @Test
+    public void testReadYourWritesFilter_pinsSuccessfulWritesOnly() throws Exception {
+        // given
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5), Clock.systemUTC());
+        MockHttpServletResponse lookupResponse = new MockHttpServletResponse();
+        MockHttpServletResponse failedResponse = new MockHttpServletResponse();
+        MockHttpServletResponse writtenResponse = new MockHttpServletResponse();
+
+        // when
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/users/lookup"), lookupResponse,
+                new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/users"), failedResponse, (request, response) ->
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_BAD_REQUEST));
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/users"), writtenResponse, (request, response) -> {
+            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_CREATED);
+            response.getWriter().write("{}");
+        });
+
+        // then
+        assertNull(lookupResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+        assertNull(failedResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+        assertNotNull(writtenResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+    }
+
+    @Test
+    public void testPropagate_carriesPinToAnotherThread() throws Exception {
+        // given
+        AtomicBoolean pinned = new AtomicBoolean();
+        Runnable task = ReadReplicaRouting.onPrimary(() ->
+                ReadReplicaRouting.propagate(() -> pinned.set(ReadReplicaRouting.isPrimaryRequired())));
+
+        // when
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+
+        // then
+        assertTrue(pinned.get());
+        assertFalse(ReadReplicaRouting.isPrimaryRequired());
+    }
+}
@@ -0,0 +1,109 @@
+package com.scalegrid.assignment.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests {@link ReplicaRoutingDataSource} class functionalities
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void testGetConnection_readOnlyGoesToReplicasInTurn() throws Exception {
+        // given
+        DataSource primary = dataSource();
+        DataSource first = dataSource();
+        DataSource second = dataSource();
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(first, second),
+                ReadReplicaProperties.Selection.ROUND_ROBIN);
+
+        // when
+        dataSource.getConnection().close();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        dataSource.getConnection().close();
+        dataSource.getConnection().close();
+        dataSource.getConnection().close();
+        ReadReplicaRouting.onPrimary(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        // then
+        assertFalse(ReadReplicaRouting.isPrimaryRequired());
+
+        // verify
+        verify(primary, times(2)).getConnection();
+        verify(first, times(2)).getConnection();
+        verify(second, times(1)).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_leastConnectionsSkipsBusyReplica() throws Exception {
+        // given
+        DataSource first = dataSource();
+        DataSource second = dataSource();
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(dataSource(), List.of(first, second),
+                ReadReplicaProperties.Selection.LEAST_CONNECTIONS);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // when the first replica keeps its connection open
+        Connection held = dataSource.getConnection();
+        for (int i = 0; i < 4; i++) {
+            dataSource.getConnection().close();
+        }
+
+        // then
+        assertEquals(1, dataSource.getConnectionsInUse(0));
+        assertEquals(0, dataSource.getConnectionsInUse(1));
+        held.close();
+        held.close();
+        assertEquals(0, dataSource.getConnectionsInUse(0));
+
+        // verify
+        verify(first, times(1)).getConnection();
+        verify(second, times(4)).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_failingReplicaFallsBackToPrimary() throws Exception {
+        // given
+        DataSource primary = dataSource();
+        DataSource replica = mock(DataSource.class);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(replica),
+                ReadReplicaProperties.Selection.ROUND_ROBIN);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // when
+        when(replica.getConnection()).thenThrow(new SQLException("replica down"));
+
+        // then
+        assertNotNull(dataSource.getConnection());
+        assertEquals(0, dataSource.getConnectionsInUse(0));
+
+        // verify
+        verify(primary).getConnection();
+    }
+
+    private static DataSource dataSource() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return dataSource;
+    }
+}
@@ -0,0 +1,38 @@
+package com.scalegrid.assignment.config;
+
+import com.scalegrid.assignment.user.audit.UserAuditLog;
+import com.scalegrid.assignment.user.controller.UserController;
+import com.scalegrid.assignment.user.service.UserService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link StartupConfig} class functionalities
+ */
+public class StartupConfigTest {
+
+    @Test
+    public void testEagerStartupBeans_keepsMigrationsHibernateAndBackgroundTasksEager() {
+        // given
+        LazyInitializationExcludeFilter filter = StartupConfig.eagerStartupBeans();
+
+        // then
+        assertTrue(isExcluded(filter, Flyway.class));
+        assertTrue(isExcluded(filter, FlywayMigrationInitializer.class));
+        assertTrue(isExcluded(filter, EntityManagerFactory.class));
+        assertTrue(isExcluded(filter, UserAuditLog.class));
+        assertFalse(isExcluded(filter, UserController.class));
+        assertFalse(isExcluded(filter, UserService.class));
+    }
+
+    private static boolean isExcluded(LazyInitializationExcludeFilter filter, Class<?> beanType) {
+        return filter.isExcluded("bean", new RootBeanDefinition(beanType), beanType);
+    }
+}
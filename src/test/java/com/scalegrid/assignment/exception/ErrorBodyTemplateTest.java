@@ -0,0 +1,102 @@
+package com.scalegrid.assignment.exception;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link ErrorBodyTemplate} and {@link LogSampler} class functionalities
+ */
+public class ErrorBodyTemplateTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Dhaka");
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 6, 1, 15, 4, 5);
+
+    @Test
+    public void testRender_writesTheBytesOfErrorResponse() throws Exception {
+        // given
+        Clock clock = Clock.fixed(NOW.atZone(ZONE).toInstant(), ZONE);
+        ErrorBodyTemplate template = new ErrorBodyTemplate(HttpStatus.NOT_FOUND, clock);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        // then
+        for (String message : new String[]{"User not found with email: x@y.z", "quote \" backslash \\ tab \t",
+                "ইউজার পাওয়া যায়নি \u0001", "", null}) {
+            ErrorResponse errorResponse = new ErrorResponse.Builder()
+                    .withHttpStatus(HttpStatus.NOT_FOUND)
+                    .withMessage(message)
+                    .build();
+            errorResponse.setCreatedAt(NOW);
+            assertEquals(new String(objectMapper.writeValueAsBytes(errorResponse), StandardCharsets.UTF_8),
+                    new String(template.render(message), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testRender_followsTheClock() {
+        // given
+        Clock first = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        Clock second = Clock.offset(first, Duration.ofSeconds(1));
+        MutableClock clock = new MutableClock(first);
+        ErrorBodyTemplate template = new ErrorBodyTemplate(HttpStatus.NOT_FOUND, clock);
+
+        // when
+        String before = new String(template.render("x"), StandardCharsets.UTF_8);
+        clock.current = second;
+        String after = new String(template.render("x"), StandardCharsets.UTF_8);
+
+        // then
+        assertTrue(before.contains("\"01-06-2023 03:04:05\""));
+        assertTrue(after.contains("\"01-06-2023 03:04:06\""));
+    }
+
+    @Test
+    public void testLogSampler_letsThroughAtMostPerSecond() {
+        // given
+        LogSampler sampler = new LogSampler(3);
+        int logged = 0;
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            if (sampler.sample()) logged++;
+        }
+
+        // then
+        assertEquals(3, logged);
+        assertEquals(7, sampler.takeSuppressed());
+        assertEquals(0, sampler.takeSuppressed());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Clock current;
+
+        private MutableClock(Clock current) {
+            this.current = current;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return current.getZone();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return current.withZone(zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return current.instant();
+        }
+    }
+}
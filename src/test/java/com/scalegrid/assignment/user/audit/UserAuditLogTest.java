@@ -0,0 +1,214 @@
+package com.scalegrid.assignment.user.audit;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.UserAudit;
+import com.scalegrid.assignment.user.repository.UserAuditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests {@link UserAuditLog} and {@link AuditRingBuffer} class functionalities
+ */
+public class UserAuditLogTest {
+    private static final UserAuditRecord.Values VALUES = new UserAuditRecord.Values("Maruf",
+            "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10), 0L);
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testRingBuffer_boundedAndFirstInFirstOut() {
+        // given
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+        AuditRingBuffer<Integer> smallest = new AuditRingBuffer<>(1);
+        List<Integer> drained = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        // then
+        assertEquals(4, buffer.capacity());
+        assertEquals(2, smallest.capacity());
+        assertTrue(smallest.offer(0));
+        assertTrue(smallest.offer(1));
+        assertFalse(smallest.offer(2));
+        assertFalse(buffer.offer(4));
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertTrue(buffer.offer(4));
+        assertTrue(buffer.offer(5));
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testRingBuffer_concurrentProducersLoseNothing() throws Exception {
+        // given
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        Set<Integer> drained = new HashSet<>();
+        List<Integer> batch = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+
+        // when
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        // give up with the consumer so a starved run fails the assertion instead of hanging
+                        if (System.nanoTime() > deadline) return null;
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        while (drained.size() < producers * perProducer && System.nanoTime() < deadline) {
+            batch.clear();
+            buffer.drainTo(batch, 16);
+            for (Integer element : batch) {
+                assertTrue(drained.add(element));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(producers * perProducer, drained.size());
+    }
+
+    @Test
+    public void testRecord_dropsWhenFullAndWritesInBatches() {
+        // given
+        UserProperties userProperties = new UserProperties();
+        userProperties.getAudit().setCapacity(4);
+        userProperties.getAudit().setBatchSize(3);
+        UserAuditRepository repository = mock(UserAuditRepository.class);
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> batchSizes.add(invocation.<List<?>>getArgument(0).size()))
+                .when(repository).appendAll(any());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserAuditLog auditLog = new UserAuditLog(repository, userProperties, meterRegistry);
+
+        // when
+        for (int i = 0; i < 6; i++) {
+            auditLog.created((long) i, VALUES);
+        }
+        auditLog.run();
+
+        // then
+        assertEquals(List.of(3, 1), batchSizes);
+        assertEquals(4, meterRegistry.get("users.audit.records").tag("outcome", "written").counter().count());
+        assertEquals(2, meterRegistry.get("users.audit.records").tag("outcome", "dropped").counter().count());
+        assertEquals(0, meterRegistry.get("users.audit.backlog").gauge().value());
+    }
+
+    @Test
+    public void testRecord_blocksUntilTimeout() {
+        // given
+        UserProperties userProperties = new UserProperties();
+        userProperties.getAudit().setCapacity(1);
+        userProperties.getAudit().setOverflow(UserProperties.Audit.OverflowPolicy.BLOCK);
+        userProperties.getAudit().setBlockTimeout(Duration.ofMillis(50));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserAuditLog auditLog = new UserAuditLog(mock(UserAuditRepository.class), userProperties, meterRegistry);
+
+        // when
+        auditLog.created(1L, VALUES);
+        auditLog.created(2L, VALUES);
+        long start = System.nanoTime();
+        auditLog.created(3L, VALUES);
+        long blockedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then
+        assertTrue(blockedMillis >= 50, "blocked for " + blockedMillis + " ms");
+        assertEquals(1, meterRegistry.get("users.audit.records").tag("outcome", "dropped").counter().count());
+    }
+
+    @Test
+    public void testRun_retriesFailedBatch() {
+        // given
+        UserAuditRepository repository = mock(UserAuditRepository.class);
+        List<UserAuditRecord> written = new ArrayList<>();
+        doThrow(new IllegalStateException("database down"))
+                .doAnswer(invocation -> written.addAll(invocation.getArgument(0)))
+                .when(repository).appendAll(any());
+        UserAuditLog auditLog = new UserAuditLog(repository, new UserProperties(), new SimpleMeterRegistry());
+
+        // when
+        auditLog.removed(1L, VALUES);
+        auditLog.run();
+        auditLog.run();
+
+        // then
+        assertEquals(1, written.size());
+        assertEquals(UserAudit.Operation.REMOVE, written.get(0).getOperation());
+        assertSame(VALUES, written.get(0).getPrevious());
+        assertNull(written.get(0).getCurrent());
+        verify(repository, times(2)).appendAll(any());
+    }
+
+    @Test
+    public void testRecord_appendsOnCommitWithTheRequestActor() {
+        // given
+        UserAuditRepository repository = mock(UserAuditRepository.class);
+        List<UserAuditRecord> written = new ArrayList<>();
+        doAnswer(invocation -> written.addAll(invocation.getArgument(0))).when(repository).appendAll(any());
+        UserAuditLog auditLog = new UserAuditLog(repository, new UserProperties(), new SimpleMeterRegistry());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-API-Key", "batch-job");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        auditLog.modified(1L, VALUES, VALUES);
+        auditLog.run();
+        int beforeCommit = written.size();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        auditLog.run();
+
+        // then
+        assertEquals(0, beforeCommit);
+        assertEquals(1, written.size());
+        assertEquals("key:598fee22f789015d", written.get(0).getActor());
+        assertEquals(UserAudit.Operation.MODIFY, written.get(0).getOperation());
+    }
+}
@@ -0,0 +1,104 @@
+package com.scalegrid.assignment.user.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link SingleFlight} class functionalities
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testExecute_sharesException() throws Exception {
+        // given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch joined = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        // when
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", key -> {
+            loading.countDown();
+            await(joined);
+            throw failure;
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", key -> {
+            throw new AssertionError("a second load must not run");
+        }));
+        while (singleFlight.coalesced() < 1) {
+            Thread.sleep(1);
+        }
+        joined.countDown();
+
+        // then
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertSame(failure, leaderFailure.getCause());
+        assertSame(failure, followerFailure.getCause());
+        assertEquals(1, singleFlight.executions());
+        assertEquals("retried", singleFlight.execute("key", key -> "retried"));
+    }
+
+    @Test
+    public void testExecute_unrelatedKeysDoNotWait() throws Exception {
+        // given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // when
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> singleFlight.execute("slow", key -> {
+            loading.countDown();
+            await(release);
+            return key;
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // then
+        assertEquals("fast", singleFlight.execute("fast", key -> key));
+        assertFalse(slow.isDone());
+        release.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testForget_startsNewCall() throws Exception {
+        // given
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // when
+        CompletableFuture<Integer> before = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", key -> {
+            loading.countDown();
+            await(release);
+            return loads.incrementAndGet();
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        singleFlight.forget("key");
+        int after = singleFlight.execute("key", key -> loads.incrementAndGet());
+        release.countDown();
+
+        // then
+        assertEquals(1, after);
+        assertEquals(2, before.get(5, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.coalesced());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
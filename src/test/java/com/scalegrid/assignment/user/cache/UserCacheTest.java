@@ -0,0 +1,138 @@
+package com.scalegrid.assignment.user.cache;
+
+import com.scalegrid.assignment.config.ReadReplicaRouting;
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link UserCache} class functionalities
+ */
+public class UserCacheTest {
+    private static final String EMAIL = "maruf.cse.cou@gmail.com";
+
+    @Test
+    public void testInvalidateDuringLoad_dropsLoadedValue() throws Exception {
+        // given
+        UserCache userCache = new UserCache(new UserProperties());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        User staleUser = getUser("Maruf");
+        User freshUser = getUser("Rahman");
+
+        // when a load reads the row before a concurrent update commits
+        CompletableFuture<Optional<User>> staleRead = CompletableFuture.supplyAsync(() ->
+                userCache.get(EMAIL, email -> {
+                    loading.countDown();
+                    await(committed);
+                    return Optional.of(staleUser);
+                }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> invalidation = CompletableFuture.runAsync(() -> userCache.invalidate(EMAIL));
+        committed.countDown();
+        invalidation.get(5, TimeUnit.SECONDS);
+
+        // then the stale value does not survive the invalidation
+        assertEquals(staleUser, staleRead.get(5, TimeUnit.SECONDS).get());
+        assertEquals("Rahman", userCache.get(EMAIL, email -> Optional.of(freshUser)).get().getName());
+    }
+
+    @Test
+    public void testGetAll_loadsMissesOnceAndDropsInvalidated() {
+        // given
+        UserCache userCache = new UserCache(new UserProperties());
+        AtomicInteger loads = new AtomicInteger();
+        userCache.get(EMAIL, email -> Optional.of(getUser("Maruf")));
+
+        // when a write commits while the misses are loaded
+        Map<String, Optional<User>> users = userCache.getAll(List.of(EMAIL, "Rahman@gmail.com", "karim@gmail.com"),
+                misses -> {
+                    loads.incrementAndGet();
+                    assertEquals(Set.of("rahman@gmail.com", "karim@gmail.com"), misses);
+                    userCache.invalidate("karim@gmail.com");
+                    return Map.of("rahman@gmail.com", getUser("Rahman"));
+                });
+
+        // then
+        assertEquals("Maruf", users.get(EMAIL).get().getName());
+        assertEquals("Rahman", users.get("rahman@gmail.com").get().getName());
+        assertTrue(users.get("karim@gmail.com").isEmpty());
+        assertEquals(1, loads.get());
+        assertTrue(userCache.get("rahman@gmail.com", email -> Optional.empty()).isPresent());
+        assertTrue(userCache.get("karim@gmail.com", email -> Optional.of(getUser("Karim"))).isPresent());
+    }
+
+    @Test
+    public void testGet_readsPrimaryRightAfterInvalidation() {
+        // given
+        UserCache userCache = new UserCache(new UserProperties());
+        AtomicBoolean primaryRequired = new AtomicBoolean(true);
+
+        // when
+        userCache.get("rahman@gmail.com", email -> {
+            primaryRequired.set(ReadReplicaRouting.isPrimaryRequired());
+            return Optional.empty();
+        });
+        boolean primaryBeforeWrite = primaryRequired.get();
+        userCache.invalidate(EMAIL);
+        userCache.get(EMAIL, email -> {
+            primaryRequired.set(ReadReplicaRouting.isPrimaryRequired());
+            return Optional.of(getUser("Rahman"));
+        });
+
+        // then
+        assertFalse(primaryBeforeWrite);
+        assertTrue(primaryRequired.get());
+        assertFalse(ReadReplicaRouting.isPrimaryRequired());
+    }
+
+    @Test
+    public void testMaxSize_evictsEntries() {
+        // given
+        UserProperties userProperties = new UserProperties();
+        userProperties.getCache().setMaxSize(10);
+        UserCache userCache = new UserCache(userProperties);
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            userCache.get(i + EMAIL, email -> {
+                loads.incrementAndGet();
+                return Optional.empty();
+            });
+        }
+        userCache.cleanUp();
+
+        // then
+        assertEquals(100, loads.get());
+        assertTrue(userCache.size() <= 10);
+        assertTrue(userCache.stats().evictionCount() >= 90);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static User getUser(String name) {
+        User user = new User(name, EMAIL, LocalDate.of(1994, 2, 10));
+        user.setId(1L);
+        return user;
+    }
+}
@@ -0,0 +1,156 @@
+package com.scalegrid.assignment.user.cache;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.dto.UserCount;
+import com.scalegrid.assignment.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests {@link UserCountCache} class functionalities
+ */
+public class UserCountCacheTest {
+
+    @Test
+    public void testGet_countsOnceThenAddsDeltas() {
+        // given
+        UserRepository userRepository = mock(UserRepository.class);
+        UserCountCache userCountCache = new UserCountCache(userRepository, new UserProperties(),
+                mock(PlatformTransactionManager.class));
+
+        // when
+        when(userRepository.count()).thenReturn(10L);
+
+        // then
+        assertEquals(10, userCountCache.get().getCount());
+        userCountCache.add(3);
+        userCountCache.add(-1);
+        UserCount userCount = userCountCache.get();
+        assertEquals(12, userCount.getCount());
+        assertFalse(userCount.isEstimated());
+        assertNotNull(userCount.getCountedAt());
+
+        // verify
+        verify(userRepository, times(1)).count();
+    }
+
+    @Test
+    public void testRefresh_replacesCountAndDropsDeltas() {
+        // given
+        UserRepository userRepository = mock(UserRepository.class);
+        UserCountCache userCountCache = new UserCountCache(userRepository, new UserProperties(),
+                mock(PlatformTransactionManager.class));
+
+        // when
+        when(userRepository.count()).thenReturn(10L, 20L);
+        userCountCache.get();
+        userCountCache.add(5);
+        userCountCache.refresh();
+
+        // then
+        assertEquals(20, userCountCache.get().getCount());
+
+        // verify
+        verify(userRepository, times(2)).count();
+    }
+
+    @Test
+    public void testRefresh_keepsWritesCommittedWhileCounting() {
+        // given
+        UserRepository userRepository = mock(UserRepository.class);
+        UserCountCache userCountCache = new UserCountCache(userRepository, new UserProperties(),
+                mock(PlatformTransactionManager.class));
+        when(userRepository.count()).thenReturn(10L);
+        userCountCache.get();
+        userCountCache.add(2);
+
+        // when a user is added while counting, after the count read the table
+        when(userRepository.count()).thenAnswer(invocation -> {
+            userCountCache.add(1);
+            return 12L;
+        });
+        userCountCache.refresh();
+
+        // then the count keeps the earlier writes once and the later one on top
+        assertEquals(13, userCountCache.get().getCount());
+
+        // verify
+        verify(userRepository, times(2)).count();
+    }
+
+    @Test
+    public void testRefresh_takesSnapshotAgainWhenWritesCommitMeanwhile() {
+        // given
+        UserRepository userRepository = mock(UserRepository.class);
+        UserCountCache userCountCache = new UserCountCache(userRepository, new UserProperties(),
+                mock(PlatformTransactionManager.class));
+        when(userRepository.count()).thenReturn(10L);
+        userCountCache.get();
+
+        // when a user is added while the first snapshot is taken, and may be in it
+        when(userRepository.takeSnapshot()).thenAnswer(invocation -> {
+            userCountCache.add(1);
+            return 1;
+        }).thenReturn(1);
+        when(userRepository.count()).thenReturn(11L);
+        userCountCache.refresh();
+
+        // then the second snapshot holds it and it is counted once
+        assertEquals(11, userCountCache.get().getCount());
+
+        // verify
+        verify(userRepository, times(3)).takeSnapshot();
+        verify(userRepository, times(2)).count();
+    }
+
+    @Test
+    public void testAdd_appliedAfterCommitOnly() {
+        // given
+        UserRepository userRepository = mock(UserRepository.class);
+        UserCountCache userCountCache = new UserCountCache(userRepository, new UserProperties(),
+                mock(PlatformTransactionManager.class));
+        when(userRepository.count()).thenReturn(10L);
+        userCountCache.get();
+
+        // when a transaction adds a user
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userCountCache.add(1);
+
+            // then the count is unchanged until it commits
+            assertEquals(10, userCountCache.get().getCount());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(11, userCountCache.get().getCount());
+    }
+
+    @Test
+    public void testEstimate_fallsBackToCountBeforeAnalyze() {
+        // given
+        UserRepository userRepository = mock(UserRepository.class);
+        UserCountCache userCountCache = new UserCountCache(userRepository, new UserProperties(),
+                mock(PlatformTransactionManager.class));
+
+        // when
+        when(userRepository.estimateCount()).thenReturn(-1L, 1000L);
+        when(userRepository.count()).thenReturn(10L);
+
+        // then
+        UserCount beforeAnalyze = userCountCache.estimate();
+        assertEquals(10, beforeAnalyze.getCount());
+        assertFalse(beforeAnalyze.isEstimated());
+        UserCount afterAnalyze = userCountCache.estimate();
+        assertEquals(1000, afterAnalyze.getCount());
+        assertTrue(afterAnalyze.isEstimated());
+
+        // verify
+        verify(userRepository, times(1)).count();
+    }
+}
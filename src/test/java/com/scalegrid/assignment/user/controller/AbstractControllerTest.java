@@ -1,14 +1,25 @@
 package com.scalegrid.assignment.user.controller;
 
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.idempotency.IdempotentUserCreation;
+import com.scalegrid.assignment.user.idempotency.InProcessIdempotencyStore;
 import com.scalegrid.assignment.user.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest
+@ImportAutoConfiguration({MetricsAutoConfiguration.class, SimpleMetricsExportAutoConfiguration.class})
+@EnableConfigurationProperties(UserProperties.class)
+@Import({IdempotentUserCreation.class, InProcessIdempotencyStore.class})
 public abstract class AbstractControllerTest {
 
     @Autowired
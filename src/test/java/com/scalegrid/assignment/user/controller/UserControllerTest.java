@@ -1,25 +1,55 @@
 package com.scalegrid.assignment.user.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.exception.PreconditionFailedException;
 import com.scalegrid.assignment.exception.ResourceNotFoundException;
+import com.scalegrid.assignment.user.export.UserExportFormat;
+import com.scalegrid.assignment.user.importer.UserImportFormat;
 import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.UserChange;
+import com.scalegrid.assignment.user.model.dto.UserBatchResult;
+import com.scalegrid.assignment.user.model.dto.UserChangePage;
+import com.scalegrid.assignment.user.model.dto.UserCount;
+import com.scalegrid.assignment.user.model.dto.UserCursorPage;
 import com.scalegrid.assignment.user.model.dto.UserDto;
+import com.scalegrid.assignment.user.model.dto.UserImportResult;
+import com.scalegrid.assignment.user.model.dto.UserLookupResult;
+import com.scalegrid.assignment.user.model.dto.UserSearchPage;
+import com.scalegrid.assignment.user.repository.UserWriteResult;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
  * This class tests {@link UserController} class functionalities
@@ -27,6 +57,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 public class UserControllerTest extends AbstractControllerTest {
     private static final String BASE_URL = "/api/v1/users";
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     public void testGetUserByEmail_success() throws Exception {
         // given
@@ -48,6 +81,35 @@ public class UserControllerTest extends AbstractControllerTest {
         verify(userService).getUser("maruf.cse.cou@gmail.com");
     }
 
+    @Test
+    public void testGetUserByEmail_notModifiedForMatchingETag() throws Exception {
+        // given
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 5, 20));
+        user.setId(1L);
+        user.setVersion(3L);
+
+        // when
+        when(userService.getUser("maruf.cse.cou@gmail.com")).thenReturn(user);
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/maruf.cse.cou@gmail.com")).accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-3\""))
+                .andExpect(jsonPath("$.version", is(3)));
+        mockMvc.perform(get(BASE_URL.concat("/maruf.cse.cou@gmail.com")).accept(APPLICATION_JSON)
+                        .header("If-None-Match", "W/\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"1-3\""))
+                .andExpect(content().string(""));
+        mockMvc.perform(get(BASE_URL.concat("/maruf.cse.cou@gmail.com")).accept(APPLICATION_JSON)
+                        .header("If-None-Match", "W/\"1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Maruf")));
+
+        // verify
+        verify(userService, times(3)).getUser("maruf.cse.cou@gmail.com");
+    }
+
     @Test
     public void testGetUserByEmail_resourceNotFoundException() throws Exception {
         // given
@@ -67,6 +129,43 @@ public class UserControllerTest extends AbstractControllerTest {
         verify(userService).getUser("rahman.cse.cou@gmail.com");
     }
 
+    @Test
+    public void testGetUserByEmail_countsHandledException() throws Exception {
+        // given
+        String email = "rahman.cse.cou@gmail.com";
+        double handled = meterRegistry.counter("users.api.errors"
+                , "exception", "ResourceNotFoundException").count();
+
+        // when
+        when(userService.getUser(email))
+                .thenThrow(new ResourceNotFoundException("User not found with email: ".concat(email)));
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/").concat(email)).accept(APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+        assertEquals(handled + 1, meterRegistry.counter("users.api.errors"
+                , "exception", "ResourceNotFoundException").count());
+    }
+
+    @Test
+    public void testGetUserByEmail_resourceNotFoundInBinaryFormat() throws Exception {
+        // given
+        String email = "rahman.cse.cou@gmail.com";
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+        // when
+        when(userService.getUser(email))
+                .thenThrow(new ResourceNotFoundException("User not found with email: ".concat(email)));
+
+        // then
+        byte[] cbor = mockMvc.perform(get(BASE_URL.concat("/").concat(email)).accept("application/cbor"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("User not found with email: ".concat(email), cborMapper.readTree(cbor).get("message").asText());
+        assertEquals("NOT_FOUND", cborMapper.readTree(cbor).get("httpStatus").asText());
+    }
+
     @Test
     public void testGetUserList_success() throws Exception {
         // given
@@ -95,6 +194,122 @@ public class UserControllerTest extends AbstractControllerTest {
         verify(userService).getUserList(any());
     }
 
+    @Test
+    public void testCountUsers_success() throws Exception {
+        // when
+        when(userService.countUsers(false)).thenReturn(new UserCount(42, false, Instant.now()));
+        when(userService.countUsers(true)).thenReturn(new UserCount(40, true, null));
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/count")).accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(42)))
+                .andExpect(jsonPath("$.estimated", is(false)));
+        mockMvc.perform(get(BASE_URL.concat("/count")).param("estimate", "true").accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(40)))
+                .andExpect(jsonPath("$.estimated", is(true)));
+
+        // verify
+        verify(userService).countUsers(false);
+        verify(userService).countUsers(true);
+        verify(userService, never()).getUser(any());
+    }
+
+    @Test
+    public void testGetUserList_binaryFormats() throws Exception {
+        // given
+        LocalDate dateOfBirth = LocalDate.of(1994, 5, 20);
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", dateOfBirth);
+        user.setId(1L);
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+        // when
+        when(userService.getUserList(any())).thenReturn(List.of(user));
+
+        // then
+        byte[] smile = mockMvc.perform(get(BASE_URL).accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] cbor = mockMvc.perform(get(BASE_URL).accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("maruf.cse.cou@gmail.com", smileMapper.readTree(smile).get(0).get("email").asText());
+        assertEquals(dateOfBirth.toString(), smileMapper.readTree(smile).get(0).get("birthDate").asText());
+        assertEquals("maruf.cse.cou@gmail.com", cborMapper.readTree(cbor).get(0).get("email").asText());
+        mockMvc.perform(get(BASE_URL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON));
+
+        // verify
+        verify(userService, times(3)).getUserList(any());
+    }
+
+    @Test
+    public void testSearchUsers_success() throws Exception {
+        // given
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 5, 20));
+        user.setId(1L);
+
+        // when
+        when(userService.searchUsers(any(), eq(0), eq(10))).thenReturn(new UserSearchPage(List.of(user), 0, 10, false));
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/search?name=mar&email=maruf&bornFrom=1994-01-01&bornTo=1994-12-31&size=10"))
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].email", is("maruf.cse.cou@gmail.com")))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+
+        // verify
+        verify(userService).searchUsers(argThat(criteria -> criteria != null
+                && "mar".equals(criteria.getName())
+                && "maruf".equals(criteria.getEmail())
+                && LocalDate.of(1994, 1, 1).equals(criteria.getBornFrom())
+                && LocalDate.of(1994, 12, 31).equals(criteria.getBornTo())), eq(0), eq(10));
+    }
+
+    @Test
+    public void testGetUserListAfterCursor_success() throws Exception {
+        // given
+        LocalDate dateOfBirth = LocalDate.of(1994, 5, 20);
+        User user = new User("Rahman", "rahman.cse.cou@gmail.com", dateOfBirth);
+        user.setId(2L);
+        UserCursorPage userPage = new UserCursorPage(List.of(user), "aWQ6Mg");
+
+        // when
+        when(userService.getUserList(eq("aWQ6MQ"), eq(1))).thenReturn(userPage);
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/cursor?after=aWQ6MQ&size=1")).accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].name", is("Rahman")))
+                .andExpect(jsonPath("$.nextCursor", is("aWQ6Mg")));
+
+        // verify
+        verify(userService).getUserList(eq("aWQ6MQ"), eq(1));
+    }
+
+    @Test
+    public void testGetUserListAfterCursor_invalidRequestException() throws Exception {
+        // when
+        when(userService.getUserList(eq("broken"), eq(20)))
+                .thenThrow(new InvalidRequestException("Invalid cursor: broken"));
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/cursor?after=broken")).accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Invalid cursor: broken")));
+
+        // verify
+        verify(userService).getUserList(eq("broken"), eq(20));
+    }
+
     @Test
     public void testCreateUser_success() throws Exception {
         UserDto newUser = createUser("Maruf", "maruf.cse.cou@gmail.com"
@@ -119,6 +334,152 @@ public class UserControllerTest extends AbstractControllerTest {
         verify(userService).createUser(eq(newUser));
     }
 
+    @Test
+    public void testCreateUser_idempotentRetriesCreateOnce() throws Exception {
+        // given
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+        user.setId(7L);
+        user.setVersion(0L);
+        int retries = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(retries);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MvcResult>> concurrent = new ArrayList<>();
+
+        // when
+        when(userService.createUser(any())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return user;
+        });
+        for (int i = 0; i < retries; i++) {
+            concurrent.add(executor.submit(() -> {
+                start.await();
+                return mockMvc.perform(post(BASE_URL)
+                                .header("Idempotency-Key", "create-once")
+                                .content(getUserRequestBody())
+                                .contentType(APPLICATION_JSON)
+                                .accept(APPLICATION_JSON))
+                        .andReturn();
+            }));
+        }
+        start.countDown();
+        int replayed = 0;
+        for (Future<MvcResult> future : concurrent) {
+            MvcResult result = future.get();
+            assertEquals(201, result.getResponse().getStatus());
+            assertEquals("W/\"7-0\"", result.getResponse().getHeader("ETag"));
+            if ("true".equals(result.getResponse().getHeader("Idempotent-Replayed"))) replayed++;
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(retries - 1, replayed);
+        mockMvc.perform(post(BASE_URL)
+                        .header("Idempotency-Key", "create-once")
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id", is(7)))
+                .andExpect(jsonPath("$.email", is("maruf.cse.cou@gmail.com")));
+
+        // verify
+        verify(userService, times(1)).createUser(any());
+    }
+
+    @Test
+    public void testCreateUser_idempotencyKeyReusedForAnotherUser() throws Exception {
+        // given
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+        user.setId(8L);
+
+        // when
+        when(userService.createUser(any())).thenReturn(user);
+        mockMvc.perform(post(BASE_URL)
+                        .header("Idempotency-Key", "reused")
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        // then
+        mockMvc.perform(post(BASE_URL)
+                        .header("Idempotency-Key", "reused")
+                        .content("{\"name\":\"Rahman\", \"email\":\"rahman.cse.cou@gmail.com\", " +
+                                "\"dateOfBirth\":\"1994-02-10\"}")
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Idempotency key was already used to create another user: reused")));
+        mockMvc.perform(post(BASE_URL)
+                        .header("Idempotency-Key", " ")
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        // verify
+        verify(userService, times(1)).createUser(any());
+    }
+
+    @Test
+    public void testCreateUsers_success() throws Exception {
+        // given
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com"
+                , LocalDate.of(1994, 2, 10));
+        user.setId(1L);
+        List<UserBatchResult> results = List.of(
+                UserBatchResult.created(0, user),
+                UserBatchResult.rejected(1, UserBatchResult.Status.DUPLICATE
+                        , "Email already exists: maruf.cse.cou@gmail.com"));
+
+        // when
+        when(userService.createUsers(any())).thenReturn(results);
+
+        // then
+        mockMvc.perform(post(BASE_URL.concat("/batch"))
+                        .content("[" + getUserRequestBody() + "," + getUserRequestBody() + "]")
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].user.email", is("maruf.cse.cou@gmail.com")))
+                .andExpect(jsonPath("$[1].status", is("DUPLICATE")))
+                .andExpect(jsonPath("$[1].message", is("Email already exists: maruf.cse.cou@gmail.com")));
+
+        // verify
+        verify(userService).createUsers(argThat(userDtos -> userDtos.size() == 2));
+    }
+
+    @Test
+    public void testLookupUsers_success() throws Exception {
+        // given
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+        user.setId(1L);
+        UserLookupResult result = new UserLookupResult();
+        result.getUsers().add(user);
+        result.getMissingEmails().add("nobody@gmail.com");
+        result.getMissingIds().add(7L);
+
+        // when
+        when(userService.lookupUsers(any())).thenReturn(result);
+
+        // then
+        mockMvc.perform(post(BASE_URL.concat("/lookup"))
+                        .content("{\"emails\":[\"maruf.cse.cou@gmail.com\",\"nobody@gmail.com\"], \"ids\":[7]}")
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(1)))
+                .andExpect(jsonPath("$.users[0].email", is("maruf.cse.cou@gmail.com")))
+                .andExpect(jsonPath("$.missingEmails[0]", is("nobody@gmail.com")))
+                .andExpect(jsonPath("$.missingIds[0]", is(7)));
+
+        // verify
+        verify(userService).lookupUsers(argThat(request -> request.getEmails().size() == 2
+                && request.getIds().equals(List.of(7L))));
+    }
+
     @Test
     public void testUpdateExistingUser_success() throws Exception {
         // given
@@ -128,7 +489,7 @@ public class UserControllerTest extends AbstractControllerTest {
         user.setId(1L);
 
         // when
-        when(userService.modifyUser(eq(userDto), eq(1L))).thenReturn(user);
+        when(userService.modifyUser(eq(userDto), eq(1L), isNull())).thenReturn(user);
 
         // then
         mockMvc.perform(put(BASE_URL.concat("/1"))
@@ -141,7 +502,41 @@ public class UserControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$.email", is("maruf.cse.cou@gmail.com")));
 
         // verify
-        verify(userService).modifyUser(eq(userDto), eq(1L));
+        verify(userService).modifyUser(eq(userDto), eq(1L), isNull());
+    }
+
+    @Test
+    public void testUpsertUser_createdThenOk() throws Exception {
+        // given
+        UserDto userDto = createUser("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+        UserWriteResult inserted = mock(UserWriteResult.class);
+        UserWriteResult updated = mock(UserWriteResult.class);
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+        user.setId(1L);
+
+        // when
+        when(inserted.getInserted()).thenReturn(true);
+        when(inserted.toUser()).thenReturn(user);
+        when(updated.getInserted()).thenReturn(false);
+        when(updated.toUser()).thenReturn(user);
+        when(userService.upsertUser(eq(userDto))).thenReturn(inserted, updated);
+
+        // then
+        mockMvc.perform(put(BASE_URL)
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is(1)));
+        mockMvc.perform(put(BASE_URL)
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email", is("maruf.cse.cou@gmail.com")));
+
+        // verify
+        verify(userService, times(2)).upsertUser(eq(userDto));
     }
 
     @Test
@@ -151,7 +546,7 @@ public class UserControllerTest extends AbstractControllerTest {
                 , LocalDate.of(1994, 2, 10));
 
         // when
-        when(userService.modifyUser(eq(userDto), eq(1L)))
+        when(userService.modifyUser(eq(userDto), eq(1L), isNull()))
                 .thenThrow(new ResourceNotFoundException("While modifying user not found with ID: 1"));
 
         // then
@@ -163,7 +558,69 @@ public class UserControllerTest extends AbstractControllerTest {
                 .andExpect(status().isNotFound());
 
         // verify
-        verify(userService).modifyUser(eq(userDto), eq(1L));
+        verify(userService).modifyUser(eq(userDto), eq(1L), isNull());
+    }
+
+    @Test
+    public void testUpdateExistingUser_ifMatch() throws Exception {
+        // given
+        LocalDate dateOfBirth = LocalDate.of(1994, 2, 10);
+        UserDto userDto = createUser("Maruf", "maruf.cse.cou@gmail.com", dateOfBirth);
+        User user = new User("Maruf", "maruf.cse.cou@gmail.com", dateOfBirth);
+        user.setId(1L);
+        user.setVersion(4L);
+
+        // when
+        when(userService.modifyUser(eq(userDto), eq(1L), eq(3L))).thenReturn(user);
+        when(userService.modifyUser(eq(userDto), eq(1L), eq(2L)))
+                .thenThrow(new PreconditionFailedException("User was modified concurrently, version is not: 2"));
+
+        // then
+        mockMvc.perform(put(BASE_URL.concat("/1"))
+                        .header("If-Match", "\"1-3\"")
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-4\""));
+        mockMvc.perform(put(BASE_URL.concat("/1"))
+                        .header("If-Match", "\"1-2\"")
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message", is("User was modified concurrently, version is not: 2")));
+        mockMvc.perform(put(BASE_URL.concat("/1"))
+                        .header("If-Match", "W/\"1-3\"")
+                        .content(getUserRequestBody())
+                        .contentType(APPLICATION_JSON)
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // verify
+        verify(userService, times(2)).modifyUser(eq(userDto), eq(1L), eq(3L));
+        verify(userService).modifyUser(eq(userDto), eq(1L), eq(2L));
+        verifyNoMoreInteractions(userService);
+    }
+
+    @Test
+    public void testDeleteExistingUser_ifMatch() throws Exception {
+        // when
+        doThrow(new PreconditionFailedException("User was modified concurrently, version is not: 2"))
+                .when(userService).removeUser(eq(1L), eq(2L));
+
+        // then
+        mockMvc.perform(delete(BASE_URL.concat("/1")).header("If-Match", "\"1-3\""))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete(BASE_URL.concat("/1")).header("If-Match", "\"1-2\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete(BASE_URL.concat("/1")).header("If-Match", "\"7-3\""))
+                .andExpect(status().isPreconditionFailed());
+
+        // verify
+        verify(userService).removeUser(1L, 3L);
+        verify(userService).removeUser(1L, 2L);
+        verifyNoMoreInteractions(userService);
     }
 
     @Test
@@ -187,7 +644,7 @@ public class UserControllerTest extends AbstractControllerTest {
 
         // when
         doThrow(new ResourceNotFoundException("While deleting user not found with ID: 1"))
-                .when(userService).removeUser(eq(1l));
+                .when(userService).removeUser(eq(1l), isNull());
 
         // then
         mockMvc.perform(delete(BASE_URL.concat("/1"))
@@ -197,13 +654,165 @@ public class UserControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$.message", is("While deleting user not found with ID: 1")));
 
         // verify
-        verify(userService).removeUser(1l);
+        verify(userService).removeUser(1l, null);
     }
 
     private String getUserRequestBody() {
         return "{\"name\":\"Maruf\", \"email\":\"maruf.cse.cou@gmail.com\", \"dateOfBirth\":\"1994-02-10\"}";
     }
 
+    @Test
+    public void testExportUsers_streamsCsv() throws Exception {
+        // when
+        when(userService.exportUsers(eq(UserExportFormat.CSV), any())).thenAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("id,name,email,birthDate\r\n".getBytes(StandardCharsets.UTF_8));
+            return 0L;
+        });
+
+        // then
+        MvcResult result = mockMvc.perform(get(BASE_URL.concat("/export")).param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"users.csv\""))
+                .andExpect(content().string("id,name,email,birthDate\r\n"));
+
+        // verify
+        verify(userService).exportUsers(eq(UserExportFormat.CSV), any());
+    }
+
+    @Test
+    public void testGetChanges_longPolls() throws Exception {
+        // given
+        UserChange change = new UserChange(1L, UserChange.Type.DELETED, "Maruf", "maruf.cse.cou@gmail.com",
+                LocalDate.of(1994, 2, 10), 2L);
+        change.setId(41L);
+        change.setPosition(8L);
+
+        // when
+        when(userService.getChanges(7, 100, Duration.ofSeconds(20)))
+                .thenReturn(CompletableFuture.completedFuture(new UserChangePage(List.of(change), 8)));
+
+        // then
+        MvcResult result = mockMvc.perform(get(BASE_URL.concat("/changes")).param("since", "7").param("wait", "20"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(1)))
+                .andExpect(jsonPath("$.changes[0].position", is(8)))
+                .andExpect(jsonPath("$.changes[0].type", is("DELETED")))
+                .andExpect(jsonPath("$.changes[0].userId", is(1)))
+                .andExpect(jsonPath("$.next", is(8)));
+
+        // verify
+        verify(userService).getChanges(7, 100, Duration.ofSeconds(20));
+    }
+
+    @Test
+    public void testGetChanges_invalidRequest() throws Exception {
+        // when
+        when(userService.getChanges(0, 100, Duration.ofSeconds(120)))
+                .thenThrow(new InvalidRequestException("Wait must be between 0 and seconds: 30"));
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/changes")).param("wait", "120"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Wait must be between 0 and seconds: 30")));
+    }
+
+    @Test
+    public void testStreamUsers_jsonArrayByDefault() throws Exception {
+        // when
+        when(userService.streamUserList(2, 50)).thenReturn(writer -> {
+            writer.finish();
+            return 0;
+        });
+
+        // then
+        MvcResult result = mockMvc.perform(get(BASE_URL.concat("/stream")).param("page", "2").param("size", "50"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/json"))
+                .andExpect(content().string("[]"));
+
+        // verify
+        verify(userService).streamUserList(2, 50);
+    }
+
+    @Test
+    public void testStreamUsers_serverSentEvents() throws Exception {
+        // when
+        when(userService.streamUserList(0, 20)).thenReturn(writer -> {
+            writer.finish();
+            return 0;
+        });
+
+        // then
+        MvcResult result = mockMvc.perform(get(BASE_URL.concat("/stream")).accept("text/event-stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/event-stream"))
+                .andExpect(content().string("event: end\ndata:\n\n"));
+    }
+
+    @Test
+    public void testStreamUsers_invalidRequest() throws Exception {
+        // when
+        when(userService.streamUserList(0, 0)).thenThrow(new InvalidRequestException("Page size must be between 1 and 100000"));
+
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/stream")).param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Page size must be between 1 and 100000")));
+    }
+
+    @Test
+    public void testExportUsers_invalidFormat() throws Exception {
+        // then
+        mockMvc.perform(get(BASE_URL.concat("/export")).param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Export format must be ndjson or csv: xml")));
+
+        // verify
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void testImportUsers_success() throws Exception {
+        // given
+        UserImportResult importResult = new UserImportResult();
+        importResult.setReceived(2);
+        importResult.setCreated(1);
+        importResult.setInvalid(1);
+        importResult.getRejected().add(UserBatchResult.rejected(2, UserBatchResult.Status.INVALID,
+                "Email format is invalid"));
+
+        // when
+        when(userService.importUsers(eq(UserImportFormat.CSV), eq(true), any())).thenReturn(importResult);
+
+        // then
+        mockMvc.perform(post(BASE_URL.concat("/import")).param("format", "csv").param("update", "true")
+                        .content("name,email,dateOfBirth\r\n")
+                        .contentType("text/csv")
+                        .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received", is(2)))
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.rejected[0].index", is(2)))
+                .andExpect(jsonPath("$.rejected[0].status", is("INVALID")));
+
+        // verify
+        verify(userService).importUsers(eq(UserImportFormat.CSV), eq(true), any());
+    }
+
     private UserDto createUser(String name, String email, LocalDate dateOfBirth) {
         return new UserDto(name, email, dateOfBirth);
     }
@@ -0,0 +1,99 @@
+package com.scalegrid.assignment.user.idempotency;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.repository.UserIdempotencyKeyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link DatabaseIdempotencyStore} against the configured database
+ */
+@DataJpaTest(properties = "app.user.idempotency.store=database")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnableConfigurationProperties(UserProperties.class)
+@Import(DatabaseIdempotencyStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DatabaseIdempotencyStoreTest {
+    private static final String KEY = "database-idempotency-store-test";
+
+    @Autowired
+    private DatabaseIdempotencyStore store;
+
+    @Autowired
+    private UserIdempotencyKeyRepository userIdempotencyKeyRepository;
+
+    @AfterEach
+    public void tearDown() {
+        userIdempotencyKeyRepository.findById(KEY).ifPresent(userIdempotencyKeyRepository::delete);
+    }
+
+    @Test
+    public void testExecute_duplicateWaitsForTheFirstRequestAndReplaysIt() throws Exception {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        // when
+        Future<IdempotentResponse> first = executor.submit(() -> store.execute(KEY, () -> {
+            executions.incrementAndGet();
+            firstRunning.countDown();
+            sleep(300);
+            return new IdempotentResponse("fingerprint", 1L, "Maruf", "maruf.cse.cou@gmail.com",
+                    LocalDate.of(1994, 2, 10), 0L);
+        }));
+        assertTrue(firstRunning.await(10, TimeUnit.SECONDS));
+        Future<IdempotentResponse> duplicate = executor.submit(() -> store.execute(KEY, () -> {
+            executions.incrementAndGet();
+            return new IdempotentResponse("other", 2L, "Rahman", "rahman.cse.cou@gmail.com",
+                    LocalDate.of(1994, 2, 10), 0L);
+        }));
+        IdempotentResponse firstResponse = first.get(10, TimeUnit.SECONDS);
+        IdempotentResponse replayed = duplicate.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        assertEquals(1, executions.get());
+        assertEquals(firstResponse.getId(), replayed.getId());
+        assertEquals("fingerprint", replayed.getFingerprint());
+        assertEquals("maruf.cse.cou@gmail.com", replayed.getEmail());
+        assertEquals(LocalDate.of(1994, 2, 10), replayed.getBirthDate());
+    }
+
+    @Test
+    public void testExecute_failedRequestLeavesKeyUnused() {
+        // when
+        assertThrows(IllegalStateException.class, () -> store.execute(KEY, () -> {
+            throw new IllegalStateException("user creation failed");
+        }));
+
+        // then
+        assertTrue(userIdempotencyKeyRepository.findByKeyAndCreatedAtAfter(KEY, Instant.EPOCH).isEmpty());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.scalegrid.assignment.user.idempotency;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.dto.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link IdempotentUserCreation} and {@link InProcessIdempotencyStore} class functionalities
+ */
+public class IdempotentUserCreationTest {
+    private static final UserDto USER_DTO = new UserDto("Maruf", "maruf.cse.cou@gmail.com",
+            LocalDate.of(1994, 2, 10));
+
+    @Test
+    public void testInProcessStore_keepsAtMostMaxKeys() {
+        // given
+        UserProperties userProperties = new UserProperties();
+        userProperties.getIdempotency().setMaxKeys(100);
+        InProcessIdempotencyStore store = new InProcessIdempotencyStore(userProperties);
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            long id = i;
+            store.execute("key-" + i, () -> new IdempotentResponse("fingerprint", id, "Maruf",
+                    "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10), 0L));
+        }
+
+        // then
+        assertTrue(store.size() <= 100, "kept " + store.size() + " keys");
+    }
+
+    @Test
+    public void testCreateUser_failedRequestIsNotStored() {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IdempotentUserCreation idempotentUserCreation = new IdempotentUserCreation(
+                new InProcessIdempotencyStore(new UserProperties()), meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        assertThrows(IllegalStateException.class, () -> idempotentUserCreation.createUser("retried", USER_DTO,
+                userDto -> {
+                    attempts.incrementAndGet();
+                    throw new IllegalStateException("database down");
+                }));
+        IdempotentUserCreation.Result created = idempotentUserCreation.createUser("retried", USER_DTO, userDto -> {
+            attempts.incrementAndGet();
+            User user = new User(userDto.getName(), userDto.getEmail(), userDto.getDateOfBirth());
+            user.setId(1L);
+            user.setVersion(0L);
+            return user;
+        });
+        IdempotentUserCreation.Result replayed = idempotentUserCreation.createUser("retried", USER_DTO,
+                userDto -> fail("replayed key must not create a user"));
+
+        // then
+        assertEquals(2, attempts.get());
+        assertFalse(created.isReplayed());
+        assertTrue(replayed.isReplayed());
+        assertEquals(1L, replayed.getUser().getId());
+        assertEquals("maruf.cse.cou@gmail.com", replayed.getUser().getEmail());
+        assertEquals(1, meterRegistry.get("users.idempotency.requests").tag("outcome", "executed").counter().count());
+        assertEquals(1, meterRegistry.get("users.idempotency.requests").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    public void testCreateUser_rejectsInvalidKey() {
+        // given
+        IdempotentUserCreation idempotentUserCreation = new IdempotentUserCreation(
+                new InProcessIdempotencyStore(new UserProperties()), new SimpleMeterRegistry());
+
+        // then
+        assertThrows(InvalidRequestException.class, () -> idempotentUserCreation.createUser("", USER_DTO,
+                userDto -> fail("invalid key must not create a user")));
+        assertThrows(InvalidRequestException.class, () -> idempotentUserCreation.createUser("k".repeat(256),
+                USER_DTO, userDto -> fail("invalid key must not create a user")));
+    }
+}
@@ -0,0 +1,117 @@
+package com.scalegrid.assignment.user.outbox;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.model.UserChange;
+import com.scalegrid.assignment.user.repository.UserChangeRepository;
+import com.scalegrid.assignment.user.repository.UserRepository;
+import com.scalegrid.assignment.user.repository.UserWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link UserOutboxRelay} against the configured database
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class UserOutboxRelayTest {
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserChangeRepository userChangeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final List<UserChange> published = new ArrayList<>();
+
+    private final UserChangeFeed userChangeFeed = new UserChangeFeed();
+
+    private final UserProperties userProperties = new UserProperties();
+
+    private UserOutboxRelay userOutboxRelay;
+
+    @BeforeEach
+    public void setUp() {
+        userProperties.getOutbox().setBatchSize(2);
+        userOutboxRelay = new UserOutboxRelay(userChangeRepository, published::addAll, userChangeFeed,
+                transactionManager, userProperties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testRelay_publishesCommittedChangesInOrderWithNextPositions() {
+        // given
+        Long latestPosition = userChangeRepository.findLatestPosition();
+        UserWriteResult maruf = userRepository.upsertUser("Maruf", "maruf.cse.cou@gmail.com",
+                LocalDate.of(1994, 2, 10)).orElseThrow();
+        UserWriteResult rahman = userRepository.upsertUser("Rahman", "rahman.cse.cou@gmail.com",
+                LocalDate.of(1990, 1, 1)).orElseThrow();
+        userRepository.deleteUser(maruf.getId(), null);
+        Set<Long> userIds = Set.of(maruf.getId(), rahman.getId());
+
+        // when
+        userOutboxRelay.run();
+        entityManager.flush();
+        entityManager.clear();
+
+        // then
+        List<UserChange> ours = published.stream().filter(change -> userIds.contains(change.getUserId()))
+                .collect(Collectors.toList());
+        assertEquals(List.of(UserChange.Type.CREATED, UserChange.Type.CREATED, UserChange.Type.DELETED),
+                ours.stream().map(UserChange::getType).collect(Collectors.toList()));
+        assertEquals(List.of(maruf.getId(), rahman.getId(), maruf.getId()),
+                ours.stream().map(UserChange::getUserId).collect(Collectors.toList()));
+        // positions follow the last published one without gaps, across batches
+        long position = latestPosition == null ? 0 : latestPosition;
+        for (UserChange change : published) {
+            assertEquals(++position, change.getPosition());
+        }
+        assertEquals(position, userChangeRepository.findLatestPosition());
+        assertTrue(userChangeRepository.findUnpublished(PageRequest.of(0, 1)).isEmpty());
+        assertEquals(ids(ours), ids(userChangeRepository.findByPositionGreaterThanOrderByPositionAsc(
+                ours.get(0).getPosition() - 1, PageRequest.of(0, 10)).stream()
+                .filter(change -> userIds.contains(change.getUserId())).collect(Collectors.toList())));
+        assertEquals(0, userOutboxRelay.relay());
+    }
+
+    @Test
+    public void testRelay_failedSinkLeavesChangesUnpublished() {
+        // given
+        UserOutboxRelay failingRelay = new UserOutboxRelay(userChangeRepository, changes -> {
+            throw new IllegalStateException("sink down");
+        }, userChangeFeed, transactionManager, userProperties, new SimpleMeterRegistry());
+        UserWriteResult maruf = userRepository.upsertUser("Maruf", "maruf.cse.cou@gmail.com",
+                LocalDate.of(1994, 2, 10)).orElseThrow();
+
+        // when
+        assertThrows(IllegalStateException.class, failingRelay::relay);
+        // the batch joined the test transaction, drop its positions as its rollback would
+        entityManager.clear();
+
+        // then
+        assertTrue(userChangeRepository.findUnpublished(PageRequest.of(0, 1000)).stream()
+                .anyMatch(change -> change.getUserId().equals(maruf.getId()) && change.getPosition() == null));
+    }
+
+    private static List<Long> ids(List<UserChange> changes) {
+        return changes.stream().map(UserChange::getId).collect(Collectors.toList());
+    }
+}
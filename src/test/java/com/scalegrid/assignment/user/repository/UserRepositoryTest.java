@@ -0,0 +1,693 @@
+package com.scalegrid.assignment.user.repository;
+
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.user.audit.UserAuditLog;
+import com.scalegrid.assignment.user.audit.UserAuditRecord;
+import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.UserAudit;
+import com.scalegrid.assignment.user.model.UserChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests {@link UserRepository} queries against the configured database
+ */
+// validate checks the entities against the schema the migrations created
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.scalegrid.assignment.user.repository.UserRepositoryTest$SqlRecorder"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class UserRepositoryTest {
+    private static final long BASE_ID = 900_000_000L;
+    private static final int PAGE_SIZE = 2;
+    private static final int PAGES = 10_000;
+    private static final long PLAN_BASE_ID = 2_000_000_000L;
+    private static final String ANALYZE = "(analyze, buffers)";
+    private static final Pattern BUFFERS = Pattern.compile("Buffers: shared(?: hit=(\\d+))?(?: read=(\\d+))?");
+    // the default run checks the plans at 100k rows only, which does not prove them at production size: run
+    // with -Dusers.plan-rows=10000000 for that
+    private static final long PLAN_ROWS = Long.getLong("users.plan-rows", 100_000);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserChangeRepository userChangeRepository;
+
+    @Autowired
+    private UserAuditRepository userAuditRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testFindByIdGreaterThan_deepPageCostsSameAsFirstPage() {
+        // given
+        entityManager.createNativeQuery("insert into users (id, name, email, birth_date) " +
+                        "select :base + g, 'User ' || g, 'keyset' || g || '@test.com', date '1994-02-10' " +
+                        "from generate_series(1, :rows) g")
+                .setParameter("base", BASE_ID)
+                .setParameter("rows", PAGE_SIZE * PAGES)
+                .executeUpdate();
+        entityManager.createNativeQuery("analyze users").executeUpdate();
+        statistics.clear();
+        long firstPageCursor = BASE_ID;
+        long lastPageCursor = BASE_ID + (long) PAGE_SIZE * (PAGES - 1);
+
+        // when
+        SqlRecorder.STATEMENTS.clear();
+        List<User> firstPage = userRepository
+                .findByIdGreaterThanOrderByIdAsc(firstPageCursor, PageRequest.of(0, PAGE_SIZE));
+        long firstPageStatements = statistics.getPrepareStatementCount();
+        String seek = SqlRecorder.lastSelect();
+        statistics.clear();
+        List<User> lastPage = userRepository
+                .findByIdGreaterThanOrderByIdAsc(lastPageCursor, PageRequest.of(0, PAGE_SIZE));
+        long lastPageStatements = statistics.getPrepareStatementCount();
+        // warm the cache so buffers compare the pages read, not where they came from
+        explain(ANALYZE, seek + " offset " + (lastPageCursor - BASE_ID), false, firstPageCursor, PAGE_SIZE);
+        long firstPageBuffers = buffers(explain(ANALYZE, seek, false, firstPageCursor, PAGE_SIZE));
+        long lastPageBuffers = buffers(explain(ANALYZE, seek, false, lastPageCursor, PAGE_SIZE));
+        long lastPageOffsetBuffers = buffers(explain(ANALYZE, seek + " offset " + (lastPageCursor - BASE_ID), false,
+                firstPageCursor, PAGE_SIZE));
+
+        // then
+        assertEquals(PAGE_SIZE, firstPage.size());
+        assertEquals(BASE_ID + 1, firstPage.get(0).getId());
+        assertEquals(PAGE_SIZE, lastPage.size());
+        assertEquals(lastPageCursor + 1, lastPage.get(0).getId());
+        assertEquals(BASE_ID + (long) PAGE_SIZE * PAGES, lastPage.get(PAGE_SIZE - 1).getId());
+
+        // one seek query per page and no count query, whatever the depth
+        assertEquals(1, firstPageStatements);
+        assertEquals(firstPageStatements, lastPageStatements);
+        // the seek reads as many pages at depth as for the first page, skipping the rows with offset reads
+        // every one of them
+        assertTrue(lastPageBuffers <= firstPageBuffers + 1, firstPageBuffers + " vs " + lastPageBuffers);
+        assertTrue(lastPageOffsetBuffers > 10 * lastPageBuffers, lastPageBuffers + " vs " + lastPageOffsetBuffers);
+    }
+
+    @Test
+    public void testFindByEmail_usesLowerEmailIndex() {
+        // given
+        insertPlanRows();
+
+        // when
+        SqlRecorder.STATEMENTS.clear();
+        Optional<User> user = userRepository.findByEmail("plan" + PLAN_ROWS / 2 + "@test.com");
+        String sql = SqlRecorder.lastSelect();
+
+        // then the statement Hibernate generates is indexed for this email and for any email
+        assertIndexed("users_email_lower_key", explain(sql, false, "plan" + PLAN_ROWS / 2 + "@test.com"));
+        assertIndexed("users_email_lower_key", explain(sql, true, (Object) null));
+        assertTrue(user.isPresent());
+        assertEquals("Plan" + PLAN_ROWS / 2 + "@Test.com", user.get().getEmail());
+    }
+
+    @Test
+    public void testSearch_predicatesUseIndexes() {
+        // given
+        insertPlanRows();
+        LocalDate from = LocalDate.of(1960, 1, 1);
+        LocalDate to = LocalDate.of(1960, 1, 31);
+        PageRequest page = PageRequest.of(0, 20);
+
+        // when the generated statements are planned with their parameters
+        String namePrefix = searchSql(UserSpecifications.nameStartsWith("user 1234"), page);
+        String nameContains = searchSql(UserSpecifications.nameContains("er 12345"), page);
+        String emailPrefix = searchSql(UserSpecifications.emailStartsWith("plan1234"), page);
+        String birthDate = searchSql(UserSpecifications.bornOnOrAfter(from)
+                .and(UserSpecifications.bornOnOrBefore(to)), page);
+
+        // then prefixes are only indexed with their value, which the plan cache keeps as the generic plan is
+        // a scan; the other predicates are indexed in the generic plan too
+        assertIndexed("users_name_upper_prefix_idx", explain(namePrefix, false, "USER 1234%", 21));
+        assertIndexed("users_name_lower_trgm_idx", explain(nameContains, false, "%er 12345%", 21));
+        assertIndexed("users_name_lower_trgm_idx", explain(nameContains, true, null, null));
+        assertIndexed("users_email_lower_key", explain(emailPrefix, false, "plan1234%", 21));
+        assertIndexed("users_birth_date_idx", explain(birthDate, false, from, to, 21));
+        assertIndexed("users_birth_date_idx", explain(birthDate, true, null, null, null));
+    }
+
+    @Test
+    public void testSearch_combinesPredicatesWithoutCount() {
+        // given
+        userRepository.save(new User("Maruf Rahman", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10)));
+        userRepository.save(new User("Marufa", "marufa@gmail.com", LocalDate.of(1990, 1, 1)));
+        userRepository.save(new User("Rahman", "rahman.cse.cou@gmail.com", LocalDate.of(1994, 2, 10)));
+        userRepository.save(new User("100% Maruf", "percent@gmail.com", LocalDate.of(1994, 2, 10)));
+        userRepository.flush();
+        statistics.clear();
+
+        // when
+        Slice<User> byName = userRepository.search(UserSpecifications.nameStartsWith("MARUF"), PageRequest.of(0, 1));
+        Slice<User> byNameAndBirthDate = userRepository.search(UserSpecifications.nameStartsWith("maruf")
+                .and(UserSpecifications.bornOnOrAfter(LocalDate.of(1994, 1, 1)))
+                .and(UserSpecifications.bornOnOrBefore(LocalDate.of(1994, 12, 31))), PageRequest.of(0, 10));
+        Slice<User> byNamePart = userRepository.search(UserSpecifications.nameContains("% m"), PageRequest.of(0, 10));
+        Slice<User> byEmail = userRepository.search(UserSpecifications.emailStartsWith("rahman."), PageRequest.of(0, 10));
+
+        // then
+        assertEquals(1, byName.getNumberOfElements());
+        assertTrue(byName.hasNext());
+        assertEquals(List.of("maruf.cse.cou@gmail.com"), emails(byNameAndBirthDate));
+        assertFalse(byNameAndBirthDate.hasNext());
+        assertEquals(List.of("percent@gmail.com"), emails(byNamePart));
+        assertEquals(List.of("rahman.cse.cou@gmail.com"), emails(byEmail));
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindAllBy_singleStatementWithoutCount() {
+        // given
+        userRepository.save(getUser("maruf.cse.cou@gmail.com"));
+        userRepository.save(getUser("rahman.cse.cou@gmail.com"));
+        userRepository.flush();
+        statistics.clear();
+
+        // when
+        Slice<User> firstPage = userRepository.findAllBy(PageRequest.of(0, 1, Sort.by("id").descending()));
+
+        // then
+        assertEquals(List.of("rahman.cse.cou@gmail.com"), emails(firstPage));
+        assertTrue(firstPage.hasNext());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testEstimateCount_readsStatisticsAfterAnalyze() {
+        // given
+        insertPlanRows();
+
+        // when
+        Long estimate = userRepository.estimateCount();
+
+        // then
+        assertNotNull(estimate);
+        assertTrue(estimate >= PLAN_ROWS / 2 && estimate <= PLAN_ROWS * 2, "estimate " + estimate);
+    }
+
+    @Test
+    public void testUpsertUser_matchesEmailInAnyCase() {
+        // given
+        User user = userRepository.saveAndFlush(getUser("Maruf.CSE.COU@gmail.com"));
+        entityManager.clear();
+
+        // when
+        UserWriteResult result = userRepository.upsertUser("Rahman", "maruf.cse.cou@gmail.com"
+                , LocalDate.of(1990, 1, 1)).orElseThrow();
+
+        // then
+        assertFalse(result.getInserted());
+        assertEquals(user.getId(), result.getId());
+        assertEquals(List.of("maruf.cse.cou@gmail.com"),
+                userRepository.findExistingEmails(List.of("maruf.cse.cou@gmail.com", "rahman.cse.cou@gmail.com")));
+    }
+
+    @Test
+    public void testUpdateUser_singleStatementReturnsPreviousValues() {
+        // given
+        User user = userRepository.saveAndFlush(getUser("maruf.cse.cou@gmail.com"));
+        entityManager.clear();
+        statistics.clear();
+
+        // when
+        Optional<UserWriteResult> result = userRepository.updateUser(user.getId(), null, "Rahman"
+                , "rahman.cse.cou@gmail.com", LocalDate.of(1990, 1, 1));
+
+        // then
+        assertTrue(result.isPresent());
+        assertEquals(user.getId(), result.get().getId());
+        assertEquals("Rahman", result.get().getName());
+        assertEquals("rahman.cse.cou@gmail.com", result.get().getEmail());
+        assertEquals(LocalDate.of(1990, 1, 1), result.get().getBirthDate());
+        assertEquals("maruf.cse.cou@gmail.com", result.get().getPreviousEmail());
+        assertEquals("Maruf", result.get().getPreviousName());
+        assertEquals(user.getBirthDate(), result.get().getPreviousBirthDate());
+        assertEquals(0L, result.get().getPreviousVersion());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(userRepository.updateUser(-1L, null, "Rahman", "x@y.z", LocalDate.of(1990, 1, 1)).isEmpty());
+    }
+
+    @Test
+    public void testDeleteUser_singleStatementReturnsDeletedUser() {
+        // given
+        User user = userRepository.saveAndFlush(getUser("maruf.cse.cou@gmail.com"));
+        entityManager.clear();
+        statistics.clear();
+
+        // when
+        Optional<UserRow> deleted = userRepository.deleteUser(user.getId(), null);
+
+        // then
+        assertEquals("maruf.cse.cou@gmail.com", deleted.get().getEmail());
+        assertEquals(user.getId(), deleted.get().getId());
+        assertEquals(user.getName(), deleted.get().getName());
+        assertEquals(0L, deleted.get().getVersion());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(userRepository.deleteUser(user.getId(), null).isEmpty());
+        assertTrue(userRepository.findByEmail("maruf.cse.cou@gmail.com").isEmpty());
+    }
+
+    @Test
+    public void testUpdateAndDeleteUser_checkVersion() {
+        // given
+        User user = userRepository.saveAndFlush(getUser("maruf.cse.cou@gmail.com"));
+        entityManager.clear();
+
+        // when
+        Optional<UserWriteResult> stale = userRepository.updateUser(user.getId(), user.getVersion() + 1, "Rahman"
+                , "maruf.cse.cou@gmail.com", LocalDate.of(1990, 1, 1));
+        Optional<UserWriteResult> updated = userRepository.updateUser(user.getId(), user.getVersion(), "Rahman"
+                , "maruf.cse.cou@gmail.com", LocalDate.of(1990, 1, 1));
+        Optional<UserRow> staleDelete = userRepository.deleteUser(user.getId(), user.getVersion());
+
+        // then
+        assertEquals(0L, user.getVersion());
+        assertTrue(stale.isEmpty());
+        assertEquals(1L, updated.get().getVersion());
+        assertTrue(staleDelete.isEmpty());
+        assertEquals(Optional.of("maruf.cse.cou@gmail.com"), userRepository.deleteUser(user.getId(), 1L)
+                .map(UserRow::getEmail));
+    }
+
+    @Test
+    public void testUpsertUser_insertsThenUpdatesByEmail() {
+        // when
+        UserWriteResult inserted = userRepository.upsertUser("Maruf", "maruf.cse.cou@gmail.com"
+                , LocalDate.of(1994, 2, 10)).orElseThrow();
+        UserWriteResult updated = userRepository.upsertUser("Rahman", "maruf.cse.cou@gmail.com"
+                , LocalDate.of(1990, 1, 1)).orElseThrow();
+
+        // then
+        assertTrue(inserted.getInserted());
+        assertFalse(updated.getInserted());
+        assertEquals(inserted.getId(), updated.getId());
+        assertEquals("Rahman", updated.getName());
+        assertEquals(LocalDate.of(1990, 1, 1), updated.getBirthDate());
+        assertEquals(0L, inserted.getVersion());
+        assertEquals(1L, updated.getVersion());
+        assertNull(inserted.getPreviousVersion());
+        assertEquals("Maruf", updated.getPreviousName());
+        assertEquals(LocalDate.of(1994, 2, 10), updated.getPreviousBirthDate());
+        assertEquals(0L, updated.getPreviousVersion());
+    }
+
+    @Test
+    public void testUpsertUser_unchangedValuesKeepVersionAndOutbox() {
+        // given
+        UserWriteResult inserted = userRepository.upsertUser("Maruf", "maruf.cse.cou@gmail.com"
+                , LocalDate.of(1994, 2, 10)).orElseThrow();
+
+        // when
+        UserWriteResult unchanged = userRepository.upsertUser("Maruf", "maruf.cse.cou@gmail.com"
+                , LocalDate.of(1994, 2, 10)).orElseThrow();
+
+        // then
+        assertFalse(unchanged.getInserted());
+        assertTrue(unchanged.isUnchanged());
+        assertEquals(inserted.getId(), unchanged.getId());
+        assertEquals(0L, unchanged.getVersion());
+        assertEquals("maruf.cse.cou@gmail.com", unchanged.getEmail());
+        assertEquals(List.of(UserChange.Type.CREATED), userChangeRepository.findUnpublished(PageRequest.of(0, 1000))
+                .stream().filter(change -> change.getUserId().equals(inserted.getId()))
+                .map(UserChange::getType).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testWrites_recordChangesInOutbox() {
+        // given
+        User created = userRepository.saveAndFlush(getUser("maruf.cse.cou@gmail.com"));
+        userChangeRepository.insertCreated(List.of(created.getId()));
+        entityManager.clear();
+
+        // when
+        userRepository.updateUser(created.getId(), null, "Rahman", "rahman.cse.cou@gmail.com",
+                LocalDate.of(1990, 1, 1));
+        UserWriteResult upserted = userRepository.upsertUser("Karim", "karim.cse.cou@gmail.com",
+                LocalDate.of(1991, 1, 1)).orElseThrow();
+        userRepository.mergeUsers(List.of(getUser("karim.cse.cou@gmail.com")), true);
+        userRepository.deleteUser(created.getId(), null);
+        userRepository.updateUser(created.getId(), null, "Rahman", "rahman.cse.cou@gmail.com",
+                LocalDate.of(1990, 1, 1));
+
+        // then
+        List<UserChange> changes = userChangeRepository.findUnpublished(PageRequest.of(0, 1000)).stream()
+                .filter(change -> change.getUserId().equals(created.getId())
+                        || change.getUserId().equals(upserted.getId()))
+                .collect(Collectors.toList());
+        assertEquals(List.of(UserChange.Type.CREATED, UserChange.Type.UPDATED, UserChange.Type.CREATED,
+                UserChange.Type.UPDATED, UserChange.Type.DELETED), changes.stream().map(UserChange::getType)
+                .collect(Collectors.toList()));
+        assertEquals("maruf.cse.cou@gmail.com", changes.get(0).getEmail());
+        assertEquals("rahman.cse.cou@gmail.com", changes.get(1).getEmail());
+        assertEquals(1L, changes.get(1).getVersion());
+        assertEquals(upserted.getId(), changes.get(3).getUserId());
+        assertEquals("Maruf", changes.get(3).getName());
+        assertEquals(1L, changes.get(3).getVersion());
+        // a deletion carries the user as it was deleted
+        assertEquals("Rahman", changes.get(4).getName());
+        assertNotNull(changes.get(4).getOccurredAt());
+        assertTrue(changes.stream().allMatch(change -> change.getPosition() == null));
+    }
+
+    @Test
+    public void testStreamAllRows_keepsPersistenceContextEmpty() {
+        // given
+        User first = userRepository.save(getUser("maruf.cse.cou@gmail.com"));
+        User second = userRepository.save(getUser("rahman.cse.cou@gmail.com"));
+        userRepository.flush();
+        entityManager.clear();
+
+        // when
+        List<UserRow> rows;
+        try (Stream<UserRow> stream = userRepository.streamAllRows()) {
+            rows = stream.filter(row -> row.getId() >= first.getId()).collect(Collectors.toList());
+        }
+
+        // then
+        assertEquals(2, rows.size());
+        assertEquals(first.getId(), rows.get(0).getId());
+        assertEquals(second.getId(), rows.get(1).getId());
+        assertEquals("rahman.cse.cou@gmail.com", rows.get(1).getEmail());
+        assertEquals(LocalDate.of(1994, 2, 10), rows.get(1).getBirthDate());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void testStreamRows_streamsOnePage() {
+        // given
+        entityManager.createNativeQuery("insert into users (id, name, email, birth_date) " +
+                        "select :base + g, 'User ' || g, 'stream' || g || '@test.com', date '1994-02-10' " +
+                        "from generate_series(1, 5) g")
+                .setParameter("base", PLAN_BASE_ID)
+                .executeUpdate();
+        long before;
+        try (Stream<UserRow> stream = userRepository.streamAllRows()) {
+            before = stream.filter(row -> row.getId() <= PLAN_BASE_ID).count();
+        }
+        entityManager.clear();
+
+        // when
+        List<UserRow> rows;
+        try (Stream<UserRow> stream = userRepository.streamRows(PageRequest.of((int) (before / 2) + 1, 2))) {
+            rows = stream.collect(Collectors.toList());
+        }
+
+        // then
+        List<Long> ids;
+        try (Stream<UserRow> stream = userRepository.streamAllRows()) {
+            ids = stream.skip(((before / 2) + 1) * 2).limit(2).map(UserRow::getId).collect(Collectors.toList());
+        }
+        assertEquals(ids, rows.stream().map(UserRow::getId).collect(Collectors.toList()));
+        assertEquals(0L, rows.get(0).getVersion());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void testMergeUsers_skipsExistingAndRepeatedEmails() {
+        // given
+        User existing = userRepository.saveAndFlush(getUser("maruf.cse.cou@gmail.com"));
+        User renamed = getUser("maruf.cse.cou@gmail.com");
+        renamed.setName("Rahman");
+
+        // when
+        UserMergeResult result = userRepository.mergeUsers(List.of(renamed, getUser("rahman.cse.cou@gmail.com"),
+                getUser("rahman.cse.cou@gmail.com")), false);
+        entityManager.clear();
+
+        // then
+        assertEquals(List.of("rahman.cse.cou@gmail.com"), result.getInsertedEmails());
+        assertTrue(result.getUpdatedEmails().isEmpty());
+        assertEquals("Maruf", userRepository.findById(existing.getId()).orElseThrow().getName());
+        assertTrue(userRepository.findByEmail("rahman.cse.cou@gmail.com").isPresent());
+    }
+
+    @Test
+    public void testMergeUsers_updatesExistingEmails() {
+        // given
+        User existing = userRepository.saveAndFlush(getUser("maruf.cse.cou@gmail.com"));
+        User renamed = getUser("maruf.cse.cou@gmail.com");
+        renamed.setName("Rahman");
+
+        // when
+        UserMergeResult result = userRepository.mergeUsers(List.of(renamed, getUser("rahman.cse.cou@gmail.com")), true);
+        entityManager.clear();
+
+        // then
+        assertEquals(List.of("rahman.cse.cou@gmail.com"), result.getInsertedEmails());
+        assertEquals(List.of("maruf.cse.cou@gmail.com"), result.getUpdatedEmails());
+        assertEquals("Rahman", userRepository.findById(existing.getId()).orElseThrow().getName());
+        assertEquals(existing.getId(), result.getUpdatedUsers().get(0).getId());
+        assertEquals("Rahman", result.getUpdatedUsers().get(0).getName());
+        assertEquals(1L, result.getUpdatedUsers().get(0).getVersion());
+        assertEquals(LocalDate.of(1994, 2, 10), result.getInsertedUsers().get(0).getBirthDate());
+    }
+
+    @Test
+    public void testMergeUsers_leavesUnchangedUsersAlone() {
+        // given
+        User existing = userRepository.saveAndFlush(getUser("maruf.cse.cou@gmail.com"));
+        int changes = userChangeRepository.findUnpublished(PageRequest.of(0, 1000)).size();
+
+        // when
+        UserMergeResult result = userRepository.mergeUsers(List.of(getUser("maruf.cse.cou@gmail.com")), true);
+        entityManager.clear();
+
+        // then
+        assertTrue(result.getInsertedEmails().isEmpty());
+        assertTrue(result.getUpdatedEmails().isEmpty());
+        assertEquals(existing.getVersion(), userRepository.findById(existing.getId()).orElseThrow().getVersion());
+        assertEquals(changes, userChangeRepository.findUnpublished(PageRequest.of(0, 1000)).size());
+    }
+
+    @Test
+    public void testMergeUsers_stagesMoreUsersThanOneStatementBinds() {
+        // given 4 parameters per staged user, a single insert would bind more than 32767
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 8200; i++) {
+            users.add(getUser("user" + i + "@example.com"));
+        }
+
+        // when
+        UserMergeResult result = userRepository.mergeUsers(users, false);
+
+        // then
+        assertEquals(8200, result.getInsertedEmails().size());
+        assertEquals("user8199@example.com", result.getInsertedEmails().get(8199));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testAppendAll_writesAuditRecordsInOneBatch() {
+        // given records are appended once committed, so this test runs outside the test transaction
+        long userId = 987_654_321L;
+        userAuditRepository.deleteAll(userAuditRepository.findByUserIdOrderByIdAsc(userId));
+        UserAuditRecord.Values previous = new UserAuditRecord.Values("Maruf", "maruf.cse.cou@gmail.com",
+                LocalDate.of(1994, 2, 10), 0L);
+        UserAuditRecord.Values current = new UserAuditRecord.Values("Rahman", "maruf.cse.cou@gmail.com",
+                LocalDate.of(1990, 1, 1), 1L);
+        UserAuditLog auditLog = new UserAuditLog(userAuditRepository, new UserProperties(), new SimpleMeterRegistry());
+
+        // when
+        auditLog.created(userId, previous);
+        auditLog.modified(userId, previous, current);
+        auditLog.removed(userId, current);
+        auditLog.run();
+        entityManager.clear();
+
+        // then
+        List<UserAudit> audits = userAuditRepository.findByUserIdOrderByIdAsc(userId);
+        assertEquals(List.of(UserAudit.Operation.CREATE, UserAudit.Operation.MODIFY, UserAudit.Operation.REMOVE),
+                audits.stream().map(UserAudit::getOperation).collect(Collectors.toList()));
+        assertEquals("system", audits.get(0).getActor());
+        assertNull(audits.get(0).getPreviousName());
+        assertEquals("Maruf", audits.get(0).getName());
+        assertEquals("Maruf", audits.get(1).getPreviousName());
+        assertEquals(0L, audits.get(1).getPreviousVersion());
+        assertEquals("Rahman", audits.get(1).getName());
+        assertEquals(LocalDate.of(1990, 1, 1), audits.get(1).getBirthDate());
+        assertEquals("Rahman", audits.get(2).getPreviousName());
+        assertNull(audits.get(2).getEmail());
+        assertNotNull(audits.get(2).getOccurredAt());
+        userAuditRepository.deleteAll(audits);
+    }
+
+    @Test
+    public void testFindAllByIdsOrEmails_findsByEitherKey() {
+        // given
+        User maruf = userRepository.saveAndFlush(getUser("Maruf.CSE.COU@gmail.com"));
+        User rahman = userRepository.saveAndFlush(getUser("rahman.cse.cou@gmail.com"));
+        userRepository.saveAndFlush(getUser("karim.cse.cou@gmail.com"));
+
+        // when
+        List<User> users = userRepository.findAllByIdsOrEmails(List.of(rahman.getId(), -1L),
+                List.of("maruf.cse.cou@gmail.com", "rahman.cse.cou@gmail.com", "nobody@gmail.com"));
+
+        // then
+        assertEquals(List.of(maruf.getId(), rahman.getId()),
+                users.stream().map(User::getId).sorted().collect(Collectors.toList()));
+        assertEquals(0L, users.get(0).getVersion());
+        assertEquals(LocalDate.of(1994, 2, 10), users.get(0).getBirthDate());
+        assertTrue(userRepository.findAllByIdsOrEmails(List.of(), List.of()).isEmpty());
+    }
+
+    @Test
+    public void testFindAllByIdsOrEmails_usesIndexes() {
+        // given
+        insertPlanRows();
+
+        // when
+        String plan = entityManager.createNativeQuery("explain select * from users " +
+                        "where id = any(array[" + (PLAN_BASE_ID + 1) + ", " + (PLAN_BASE_ID + 2) + "]) " +
+                        "or lower(email) = any(array['plan3@test.com', 'plan4@test.com'])")
+                .getResultList().toString();
+
+        // then
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertTrue(plan.contains("users_pkey"), plan);
+        assertTrue(plan.contains("users_email_lower_key"), plan);
+    }
+
+    // the SQL Hibernate generates for the search, as it runs
+    private String searchSql(Specification<User> specification, PageRequest page) {
+        SqlRecorder.STATEMENTS.clear();
+        userRepository.search(specification, page);
+        return SqlRecorder.lastSelect();
+    }
+
+    // plans the statement as a prepared statement, the way the driver runs it: a custom plan is made for the
+    // given values, a generic plan for any value
+    private String explain(String sql, boolean generic, Object... values) {
+        return explain("", sql, generic, values);
+    }
+
+    private String explain(String options, String sql, boolean generic, Object... values) {
+        StringBuilder parameterized = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                parameterized.append('$').append(++parameter);
+            } else {
+                parameterized.append(c);
+            }
+        }
+        assertEquals(values.length, parameter, sql);
+        List<String> arguments = new ArrayList<>();
+        for (Object value : values) {
+            arguments.add(value == null ? "null" : value instanceof String
+                    ? "'" + ((String) value).replace("'", "''") + "'"
+                    : value instanceof LocalDate ? "date '" + value + "'" : value.toString());
+        }
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            StringBuilder plan = new StringBuilder();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("set local plan_cache_mode = "
+                        + (generic ? "force_generic_plan" : "force_custom_plan"));
+                statement.execute("prepare plan_check as " + parameterized);
+                try (ResultSet rows = statement.executeQuery("explain " + options + " execute plan_check("
+                        + String.join(", ", arguments) + ")")) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("deallocate plan_check");
+                statement.execute("reset plan_cache_mode");
+            }
+            return plan.toString();
+        });
+    }
+
+    // shared buffers hit or read by the whole statement, from the top node of an analyzed plan
+    private static long buffers(String plan) {
+        Matcher matcher = BUFFERS.matcher(plan);
+        assertTrue(matcher.find(), plan);
+        return (matcher.group(1) == null ? 0 : Long.parseLong(matcher.group(1)))
+                + (matcher.group(2) == null ? 0 : Long.parseLong(matcher.group(2)));
+    }
+
+    // a scan of the primary key in id order filtering every row is what these indexes are there to avoid
+    private static void assertIndexed(String index, String plan) {
+        assertTrue(plan.contains("Index Scan using " + index + " ")
+                || plan.contains("Bitmap Index Scan on " + index + " "), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertFalse(plan.contains("users_pkey"), plan);
+    }
+
+    private void insertPlanRows() {
+        entityManager.createNativeQuery("insert into users (id, name, email, birth_date) " +
+                        "select :base + g, 'User ' || g, 'Plan' || g || '@Test.com', date '1950-01-01' + cast(g % 20000 as int) " +
+                        "from generate_series(1, :rows) g")
+                .setParameter("base", PLAN_BASE_ID)
+                .setParameter("rows", PLAN_ROWS)
+                .executeUpdate();
+        entityManager.createNativeQuery("analyze users").executeUpdate();
+    }
+
+    private List<String> emails(Slice<User> users) {
+        return users.getContent().stream().map(User::getEmail).collect(Collectors.toList());
+    }
+
+    private User getUser(String email) {
+        return new User("Maruf", email, LocalDate.of(1994, 2, 10));
+    }
+
+    /**
+     * Records the SQL Hibernate sends, so plans are checked on the statements the repository really runs
+     */
+    public static class SqlRecorder implements StatementInspector {
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+
+        private static String lastSelect() {
+            for (int i = STATEMENTS.size() - 1; i >= 0; i--) {
+                if (STATEMENTS.get(i).startsWith("select")) {
+                    return STATEMENTS.get(i);
+                }
+            }
+            throw new AssertionError("No select was run: " + STATEMENTS);
+        }
+    }
+}
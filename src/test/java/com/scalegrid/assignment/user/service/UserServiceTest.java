@@ -1,25 +1,72 @@
 package com.scalegrid.assignment.user.service;
 
+import com.scalegrid.assignment.config.UserProperties;
+import com.scalegrid.assignment.exception.InvalidRequestException;
+import com.scalegrid.assignment.exception.PreconditionFailedException;
 import com.scalegrid.assignment.exception.ResourceNotFoundException;
+import com.scalegrid.assignment.user.audit.UserAuditLog;
+import com.scalegrid.assignment.user.audit.UserAuditRecord;
+import com.scalegrid.assignment.user.cache.UserCache;
+import com.scalegrid.assignment.user.cache.UserCountCache;
+import com.scalegrid.assignment.user.export.UserExportFormat;
+import com.scalegrid.assignment.user.export.UserStream;
+import com.scalegrid.assignment.user.export.UserStreamFormat;
+import com.scalegrid.assignment.user.importer.UserImportFormat;
 import com.scalegrid.assignment.user.model.User;
+import com.scalegrid.assignment.user.model.UserChange;
+import com.scalegrid.assignment.user.model.dto.UserBatchResult;
+import com.scalegrid.assignment.user.model.dto.UserChangePage;
+import com.scalegrid.assignment.user.model.dto.UserCount;
+import com.scalegrid.assignment.user.model.dto.UserCursorPage;
 import com.scalegrid.assignment.user.model.dto.UserDto;
+import com.scalegrid.assignment.user.model.dto.UserImportResult;
+import com.scalegrid.assignment.user.model.dto.UserLookupRequest;
+import com.scalegrid.assignment.user.model.dto.UserLookupResult;
+import com.scalegrid.assignment.user.model.dto.UserSearchCriteria;
+import com.scalegrid.assignment.user.model.dto.UserSearchPage;
+import com.scalegrid.assignment.user.outbox.UserChangeFeed;
+import com.scalegrid.assignment.user.repository.UserChangeRepository;
+import com.scalegrid.assignment.user.repository.UserMergeResult;
 import com.scalegrid.assignment.user.repository.UserRepository;
+import com.scalegrid.assignment.user.repository.UserRow;
+import com.scalegrid.assignment.user.repository.UserWriteResult;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -30,6 +77,33 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private UserProperties userProperties = new UserProperties();
+
+    @Spy
+    private UserCache userCache = new UserCache(new UserProperties());
+
+    @Mock
+    private UserCountCache userCountCache;
+
+    @Mock
+    private UserAuditLog userAuditLog;
+
+    @Mock
+    private UserChangeRepository userChangeRepository;
+
+    @Spy
+    private UserChangeFeed userChangeFeed = new UserChangeFeed();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private Executor taskExecutor = new SyncTaskExecutor();
+
     @InjectMocks
     private UserService userService;
 
@@ -64,16 +138,199 @@ public class UserServiceTest {
         verify(userRepository).findByEmail(eq("maruf.cse.cou@gmail.com"));
     }
 
+    @Test
+    public void testGetUser_servedFromCache() {
+        // given
+        Optional<User> user = Optional.of(getUser());
+
+        // when
+        when(userRepository.findByEmail(eq("maruf.cse.cou@gmail.com"))).thenReturn(user);
+
+        // then
+        assertEquals(user.get(), userService.getUser("maruf.cse.cou@gmail.com"));
+        assertEquals(user.get(), userService.getUser(" maruf.cse.cou@gmail.com "));
+        assertEquals(1, userCache.stats().hitCount());
+        assertEquals(1, userCache.stats().missCount());
+
+        // verify
+        verify(userRepository, times(1)).findByEmail(eq("maruf.cse.cou@gmail.com"));
+    }
+
+    @Test
+    public void testGetUser_concurrentMissesShareOneQuery() throws Exception {
+        // given
+        int requests = 16;
+        User user = getUser();
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when the query only returns once every other request joined it
+        when(userRepository.findByEmail(eq("maruf.cse.cou@gmail.com"))).thenAnswer(invocation -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (userCache.coalescedLoads() < requests - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return Optional.of(user);
+        });
+        List<Future<User>> results = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return userService.getUser("maruf.cse.cou@gmail.com");
+            }));
+        }
+        start.countDown();
+
+        // then
+        for (Future<User> result : results) {
+            assertEquals(user, result.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, userCache.loads());
+        assertEquals(requests - 1, userCache.coalescedLoads());
+
+        // verify
+        verify(userRepository, times(1)).findByEmail(eq("maruf.cse.cou@gmail.com"));
+    }
+
+    @Test
+    public void testLookupUsers_servesCachedEmailsAndQueriesTheRestOnce() {
+        // given
+        User maruf = getUser();
+        User rahman = new User("Rahman", "rahman.cse.cou@gmail.com", LocalDate.of(1990, 1, 1));
+        rahman.setId(2L);
+        UserLookupRequest request = new UserLookupRequest(
+                List.of("Maruf.CSE.COU@gmail.com", "rahman.cse.cou@gmail.com", "nobody@gmail.com"), List.of(2L, 7L));
+
+        // when
+        when(userRepository.findByEmail(eq("maruf.cse.cou@gmail.com"))).thenReturn(Optional.of(maruf));
+        when(userRepository.findAllByIdsOrEmails(any(), any())).thenReturn(List.of(rahman));
+        userService.getUser("maruf.cse.cou@gmail.com");
+        UserLookupResult result = userService.lookupUsers(request);
+
+        // then
+        assertEquals(List.of(maruf, rahman), result.getUsers());
+        assertEquals(List.of("nobody@gmail.com"), result.getMissingEmails());
+        assertEquals(List.of(7L), result.getMissingIds());
+        assertEquals(List.of(rahman), userService.lookupUsers(
+                new UserLookupRequest(List.of("rahman.cse.cou@gmail.com"), List.of())).getUsers());
+
+        // verify the cached email is not queried, ids ride along with the missed emails, and misses are cached
+        verify(userRepository).findAllByIdsOrEmails(eq(List.of(2L, 7L)),
+                eq(List.of("rahman.cse.cou@gmail.com", "nobody@gmail.com")));
+        verifyNoMoreInteractions(ignoreStubs(userRepository));
+    }
+
+    @Test
+    public void testLookupUsers_chunksKeys() {
+        // given
+        userProperties.getLookup().setChunkSize(2);
+        UserLookupRequest request = new UserLookupRequest(List.of("a@b.c", "d@e.f"), List.of(1L, 2L, 3L));
+
+        // when
+        when(userRepository.findAllByIdsOrEmails(any(), any())).thenReturn(List.of());
+        UserLookupResult result = userService.lookupUsers(request);
+
+        // then
+        assertTrue(result.getUsers().isEmpty());
+        assertEquals(List.of("a@b.c", "d@e.f"), result.getMissingEmails());
+        assertEquals(List.of(1L, 2L, 3L), result.getMissingIds());
+
+        // verify
+        verify(userRepository).findAllByIdsOrEmails(eq(List.of(1L, 2L)), eq(List.of()));
+        verify(userRepository).findAllByIdsOrEmails(eq(List.of(3L)), eq(List.of("a@b.c")));
+        verify(userRepository).findAllByIdsOrEmails(eq(List.of()), eq(List.of("d@e.f")));
+    }
+
+    @Test
+    public void testLookupUsers_invalidRequestException() {
+        // given
+        userProperties.getLookup().setMaxItems(2);
+        UserLookupRequest request = new UserLookupRequest(List.of("a@b.c", "d@e.f"), List.of(1L));
+
+        // then
+        assertThrows(InvalidRequestException.class, () -> userService.lookupUsers(request));
+
+        // verify
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testGetUser_missIsCachedUntilCreate() {
+        // given
+        String email = "maruf.cse.cou@gmail.com";
+
+        // when
+        when(userRepository.findByEmail(eq(email))).thenReturn(Optional.empty());
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(getUser());
+
+        // then
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUser(email));
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUser(email));
+        userService.createUser(getUserDto());
+        when(userRepository.findByEmail(eq(email))).thenReturn(Optional.of(getUser()));
+        assertEquals(getUser(), userService.getUser(email));
+
+        // verify
+        verify(userRepository, times(2)).findByEmail(eq(email));
+    }
+
+    @Test
+    public void testModifyUser_invalidatesPreviousAndNewEmail() {
+        // given
+        User user = getUser();
+        user.setEmail("rahman.cse.cou@gmail.com");
+        UserDto userDto = new UserDto("Maruf", "rahman.cse.cou@gmail.com", LocalDate.of(1994, 2, 10));
+
+        // when
+        when(userRepository.findByEmail(eq("maruf.cse.cou@gmail.com"))).thenReturn(Optional.of(getUser()));
+        when(userRepository.findByEmail(eq("rahman.cse.cou@gmail.com"))).thenReturn(Optional.empty());
+        when(userRepository.updateUser(eq(1L), any(), any(), any(), any()))
+                .thenReturn(Optional.of(getWriteResult(user, "maruf.cse.cou@gmail.com", false)));
+
+        // then
+        userService.getUser("maruf.cse.cou@gmail.com");
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUser("rahman.cse.cou@gmail.com"));
+        userService.modifyUser(userDto, 1L, null);
+        when(userRepository.findByEmail(eq("maruf.cse.cou@gmail.com"))).thenReturn(Optional.empty());
+        when(userRepository.findByEmail(eq("rahman.cse.cou@gmail.com"))).thenReturn(Optional.of(user));
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUser("maruf.cse.cou@gmail.com"));
+        assertEquals(user, userService.getUser("rahman.cse.cou@gmail.com"));
+
+        // verify
+        verify(userCache).invalidate("maruf.cse.cou@gmail.com", "rahman.cse.cou@gmail.com");
+    }
+
+    @Test
+    public void testRemoveUser_invalidatesEmail() {
+        // given
+        Optional<User> user = Optional.of(getUser());
+
+        // when
+        when(userRepository.findByEmail(eq("maruf.cse.cou@gmail.com"))).thenReturn(user);
+        when(userRepository.deleteUser(eq(1L), any()))
+                .thenReturn(Optional.of(getRow(1L, "Maruf", "maruf.cse.cou@gmail.com")));
+
+        // then
+        userService.getUser("maruf.cse.cou@gmail.com");
+        userService.removeUser(1L, null);
+        when(userRepository.findByEmail(eq("maruf.cse.cou@gmail.com"))).thenReturn(Optional.empty());
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUser("maruf.cse.cou@gmail.com"));
+
+        // verify
+        verify(userRepository, times(2)).findByEmail(eq("maruf.cse.cou@gmail.com"));
+        verify(userCountCache).add(-1);
+    }
+
     @Test
     public void testGetUserList() {
         // given
         List<User> userList = new ArrayList<>();
         userList.add(getUser());
-        Page page = new PageImpl(userList);
         Pageable pageable = PageRequest.of(0, 1);
 
         // when
-        when(userRepository.findAll(pageable)).thenReturn(page);
+        when(userRepository.findAllBy(pageable)).thenReturn(new SliceImpl<>(userList, pageable, true));
 
         // then
         List<User> fetchedUserList = userService.getUserList(pageable);
@@ -81,7 +338,68 @@ public class UserServiceTest {
         assertEquals(userList, fetchedUserList);
 
         // verify
-        verify(userRepository).findAll(pageable);
+        verify(userRepository).findAllBy(pageable);
+        verify(userRepository, never()).findAll(any(Pageable.class));
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    public void testCountUsers() {
+        // given
+        UserCount counted = new UserCount(42, false, Instant.now());
+        UserCount estimated = new UserCount(40, true, null);
+
+        // when
+        when(userCountCache.get()).thenReturn(counted);
+        when(userCountCache.estimate()).thenReturn(estimated);
+
+        // then
+        assertEquals(counted, userService.countUsers(false));
+        assertEquals(estimated, userService.countUsers(true));
+
+        // verify
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    public void testGetUserListAfterCursor_nextPage() {
+        // given
+        User user1 = getUser();
+        User user2 = getUser();
+        user2.setId(2L);
+        User user3 = getUser();
+        user3.setId(3L);
+
+        // when
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), eq(PageRequest.of(0, 3))))
+                .thenReturn(List.of(user1, user2, user3));
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                .thenReturn(List.of(user3));
+
+        // then
+        UserCursorPage firstPage = userService.getUserList(null, 2);
+        assertEquals(List.of(user1, user2), firstPage.getContent());
+        assertNotNull(firstPage.getNextCursor());
+
+        UserCursorPage lastPage = userService.getUserList(firstPage.getNextCursor(), 2);
+        assertEquals(List.of(user3), lastPage.getContent());
+        assertNull(lastPage.getNextCursor());
+
+        // verify
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3)));
+        verify(userRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    public void testGetUserListAfterCursor_invalidRequestException() {
+        // then
+        assertThrows(InvalidRequestException.class, () -> userService.getUserList("not-a-cursor", 2));
+        assertThrows(InvalidRequestException.class, () -> userService.getUserList(null, 0));
+        assertThrows(InvalidRequestException.class
+                , () -> userService.getUserList(null, UserService.MAX_CURSOR_PAGE_SIZE + 1));
+
+        // verify
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -90,7 +408,7 @@ public class UserServiceTest {
         User user = getUser();
 
         // when
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
 
         // then
         User savedUser = userService.createUser(getUserDto());
@@ -99,29 +417,153 @@ public class UserServiceTest {
         assertEquals(user, savedUser);
 
         // verify
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(userChangeRepository).insertCreated(List.of(user.getId()));
+        verify(transactionManager).commit(any());
+        verify(userAuditLog).created(eq(user.getId()), argThat(created -> user.getEmail().equals(created.getEmail())));
+    }
+
+    @Test
+    public void testCreateUser_failureRecordsNoChange() {
+        // when
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(DataIntegrityViolationException.class);
+
+        // then
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(getUserDto()));
+
+        // verify
+        verify(userChangeRepository, never()).insertCreated(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
     }
 
+    @Test
+    public void testCreateUser_normalizesEmail() {
+        // given
+        UserDto userDto = new UserDto("Maruf", " Maruf.CSE.COU@Gmail.com ", LocalDate.of(1994, 2, 10));
+
+        // when
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(1L);
+            return user;
+        });
+
+        // then
+        assertEquals("maruf.cse.cou@gmail.com", userService.createUser(userDto).getEmail());
+
+        // verify
+        verify(userCache).invalidate("maruf.cse.cou@gmail.com");
+    }
+
+    @Test
+    public void testGetUser_anyCaseHitsCache() {
+        // when
+        when(userRepository.findByEmail("maruf.cse.cou@gmail.com")).thenReturn(Optional.of(getUser()));
+
+        // then
+        assertEquals(userService.getUser("maruf.cse.cou@gmail.com"), userService.getUser("Maruf.CSE.COU@gmail.com"));
+
+        // verify
+        verify(userRepository, times(1)).findByEmail("maruf.cse.cou@gmail.com");
+    }
+
+    @Test
+    public void testCreateUsers_reportsPerItem() {
+        // given
+        List<UserDto> userDtos = List.of(
+                new UserDto("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10)),
+                new UserDto("Rahman", "rahman.cse.cou@gmail.com", LocalDate.of(1994, 2, 10)),
+                new UserDto("", "invalid", LocalDate.of(1994, 2, 10)),
+                new UserDto("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10)));
+        User saved = getUser();
+
+        // when
+        when(userRepository.findExistingEmails(any()))
+                .thenReturn(List.of("rahman.cse.cou@gmail.com"));
+        when(userRepository.saveAllAndFlush(any())).thenReturn(List.of(saved));
+
+        // then
+        List<UserBatchResult> results = userService.createUsers(userDtos);
+        assertEquals(4, results.size());
+        assertEquals(UserBatchResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(saved, results.get(0).getUser());
+        assertEquals(UserBatchResult.Status.DUPLICATE, results.get(1).getStatus());
+        assertEquals(UserBatchResult.Status.INVALID, results.get(2).getStatus());
+        assertEquals(UserBatchResult.Status.DUPLICATE, results.get(3).getStatus());
+        assertEquals(3, results.get(3).getIndex());
+
+        // verify
+        verify(userRepository).saveAllAndFlush(argThat(users -> ((List<User>) users).size() == 1));
+        verify(userRepository, never()).saveAndFlush(any());
+        verify(userChangeRepository).insertCreated(List.of(saved.getId()));
+    }
+
+    @Test
+    public void testCreateUsers_concurrentDuplicateFallsBackPerItem() {
+        // given
+        List<UserDto> userDtos = List.of(
+                new UserDto("Maruf", "maruf.cse.cou@gmail.com", LocalDate.of(1994, 2, 10)),
+                new UserDto("Rahman", "rahman.cse.cou@gmail.com", LocalDate.of(1994, 2, 10)));
+
+        // when
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of());
+        when(userRepository.saveAllAndFlush(any())).thenThrow(DataIntegrityViolationException.class);
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (user.getEmail().startsWith("rahman")) throw new DataIntegrityViolationException("duplicate");
+            return getUser();
+        });
+
+        // then
+        List<UserBatchResult> results = userService.createUsers(userDtos);
+        assertEquals(UserBatchResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(UserBatchResult.Status.DUPLICATE, results.get(1).getStatus());
+
+        // verify
+        verify(userRepository, times(2)).saveAndFlush(any());
+        verify(userChangeRepository, times(1)).insertCreated(any());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    public void testCreateUsers_invalidRequestException() {
+        // given
+        List<UserDto> userDtos = new ArrayList<>();
+        for (int i = 0; i <= userProperties.getBatch().getMaxItems(); i++) {
+            userDtos.add(getUserDto());
+        }
+
+        // then
+        assertThrows(InvalidRequestException.class, () -> userService.createUsers(userDtos));
+
+        // verify
+        verifyNoInteractions(userRepository);
+    }
 
     @Test
     public void testModifyUser_success() {
         // given
-        Optional<User> user = Optional.of(getUser());
-        Long userId = user.get().getId();
+        User user = getUser();
+        Long userId = user.getId();
 
         // when
-        when(userRepository.findById(eq(userId))).thenReturn(user);
-        when(userRepository.save(eq(user.get()))).thenReturn(user.get());
+        when(userRepository.updateUser(eq(userId), any(), eq("maruf"), eq("maruf.cse.cou@gmail.com")
+                , eq(LocalDate.of(1994, 2, 10))))
+                .thenReturn(Optional.of(getWriteResult(user, user.getEmail(), false)));
 
         // then
-        User updatedUser = userService.modifyUser(getUserDto(), userId);
+        User updatedUser = userService.modifyUser(getUserDto(), userId, null);
         assertNotNull(updatedUser);
         assertEquals(userId, updatedUser.getId());
-        assertEquals(user.get(), updatedUser);
+        assertEquals(user, updatedUser);
 
         // verify
-        verify(userRepository).findById(eq(userId));
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).updateUser(eq(userId), any(), any(), any(), any());
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).save(any(User.class));
+        verify(userAuditLog).modified(eq(userId), argThat(previous -> "Previous".equals(previous.getName())
+                && previous.getVersion() == 0L), argThat(modified -> "Maruf".equals(modified.getName())));
     }
 
     @Test
@@ -130,29 +572,79 @@ public class UserServiceTest {
         Long userId = 1l;
 
         // when
-        when(userRepository.findById(eq(userId))).thenReturn(Optional.empty());
+        when(userRepository.updateUser(eq(userId), any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        // then
+        assertThrows(ResourceNotFoundException.class, () -> userService.modifyUser(getUserDto(), userId, null));
+
+        // verify
+        verify(userRepository).updateUser(eq(userId), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testModifyUser_preconditionFailedException() {
+        // given
+        Long userId = 1l;
+
+        // when
+        when(userRepository.updateUser(eq(userId), eq(3L), any(), any(), any())).thenReturn(Optional.empty());
+        when(userRepository.existsById(eq(userId))).thenReturn(true);
+
+        // then
+        assertThrows(PreconditionFailedException.class, () -> userService.modifyUser(getUserDto(), userId, 3L));
+
+        // verify
+        verify(userRepository).updateUser(eq(userId), eq(3L), any(), any(), any());
+        verify(userRepository).existsById(eq(userId));
+        verifyNoInteractions(userCache);
+    }
+
+    @Test
+    public void testModifyUser_invalidRequestException() {
+        // given
+        UserDto userDto = new UserDto("", "invalid", LocalDate.of(1994, 2, 10));
 
         // then
-        assertThrows(ResourceNotFoundException.class, () -> userService.modifyUser(getUserDto(), userId));
+        assertThrows(InvalidRequestException.class, () -> userService.modifyUser(userDto, 1L, null));
 
         // verify
-        verify(userRepository).findById(eq(userId));
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     public void testRemoveUser_success() {
         // given
-        Optional<User> user = Optional.of(getUser());
-        Long userId = user.get().getId();
+        User user = getUser();
+        Long userId = user.getId();
+
+        // when
+        when(userRepository.deleteUser(eq(userId), any()))
+                .thenReturn(Optional.of(getRow(userId, user.getName(), user.getEmail())));
+
+        // then
+        assertDoesNotThrow(() -> userService.removeUser(userId, null));
+
+        // verify
+        verify(userRepository).deleteUser(eq(userId), any());
+        verify(userRepository, never()).findById(any());
+        verify(userAuditLog).removed(eq(userId), argThat(removed -> "Maruf".equals(removed.getName())));
+    }
+
+    @Test
+    public void testRemoveUser_preconditionFailedException() {
+        // given
+        Long userId = 1l;
 
         // when
-        when(userRepository.findById(eq(userId))).thenReturn(user);
+        when(userRepository.deleteUser(eq(userId), eq(3L))).thenReturn(Optional.empty());
+        when(userRepository.existsById(eq(userId))).thenReturn(true);
 
         // then
-        assertDoesNotThrow(() -> userService.removeUser(userId));
+        assertThrows(PreconditionFailedException.class, () -> userService.removeUser(userId, 3L));
 
         // verify
-        verify(userRepository).findById(eq(userId));
+        verify(userRepository).deleteUser(eq(userId), eq(3L));
+        verifyNoInteractions(userCache);
     }
 
     @Test
@@ -161,13 +653,54 @@ public class UserServiceTest {
         Long userId = 1l;
 
         // when
-        when(userRepository.findById(eq(userId))).thenThrow(ResourceNotFoundException.class);
+        when(userRepository.deleteUser(eq(userId), any())).thenReturn(Optional.empty());
+
+        // then
+        assertThrows(ResourceNotFoundException.class, () -> userService.removeUser(userId, null));
+
+        // verify
+        verify(userRepository).deleteUser(eq(userId), any());
+    }
+
+    @Test
+    public void testUpsertUser_success() {
+        // given
+        User user = getUser();
+
+        // when
+        when(userRepository.upsertUser(eq("maruf"), eq("maruf.cse.cou@gmail.com"), eq(LocalDate.of(1994, 2, 10))))
+                .thenReturn(Optional.of(getWriteResult(user, null, true)));
+
+        // then
+        UserWriteResult result = userService.upsertUser(getUserDto());
+        assertTrue(result.getInserted());
+        assertEquals(user, result.toUser());
+
+        // verify
+        verify(userCache).invalidate("maruf.cse.cou@gmail.com");
+        verify(userAuditLog).created(eq(user.getId()), any(UserAuditRecord.Values.class));
+        verify(userAuditLog, never()).modified(any(), any(), any());
+    }
+
+    @Test
+    public void testUpsertUser_unchangedIsNotAudited() {
+        // given
+        User user = getUser();
+        user.setVersion(0L);
+
+        // when the first statement misses the user inserted concurrently
+        when(userRepository.upsertUser(eq("maruf"), eq("maruf.cse.cou@gmail.com"), eq(LocalDate.of(1994, 2, 10))))
+                .thenReturn(Optional.empty(), Optional.of(getWriteResult(user, null, false)));
 
         // then
-        assertThrows(ResourceNotFoundException.class, () -> userService.removeUser(userId));
+        UserWriteResult result = userService.upsertUser(getUserDto());
+        assertTrue(result.isUnchanged());
+        assertEquals(user, result.toUser());
 
         // verify
-        verify(userRepository).findById(eq(userId));
+        verify(userRepository, times(2)).upsertUser(any(), any(), any());
+        verify(userCache, never()).invalidate(any());
+        verifyNoInteractions(userAuditLog);
     }
 
     private User getUser() {
@@ -177,6 +710,401 @@ public class UserServiceTest {
         return user;
     }
 
+    @Test
+    public void testSearchUsers_success() {
+        // given
+        UserSearchCriteria criteria = new UserSearchCriteria("Maruf", null, "Maruf.CSE", LocalDate.of(1994, 1, 1), null);
+
+        // when
+        when(userRepository.search(any(), eq(PageRequest.of(1, 20))))
+                .thenReturn(new SliceImpl<>(List.of(getUser()), PageRequest.of(1, 20), true));
+
+        // then
+        UserSearchPage userPage = userService.searchUsers(criteria, 1, 20);
+        assertEquals(List.of(getUser()), userPage.getContent());
+        assertEquals(1, userPage.getPage());
+        assertTrue(userPage.isHasNext());
+
+        // verify
+        verify(userRepository).search(any(), eq(PageRequest.of(1, 20)));
+    }
+
+    @Test
+    public void testSearchUsers_invalidRequestException() {
+        // given
+        UserSearchCriteria criteria = new UserSearchCriteria();
+        UserSearchCriteria shortPart = new UserSearchCriteria(null, "ab", null, null, null);
+        UserSearchCriteria reversedRange = new UserSearchCriteria(null, null, null,
+                LocalDate.of(1995, 1, 1), LocalDate.of(1994, 1, 1));
+
+        // then
+        assertEquals("Page size must be between 1 and 100",
+                assertThrows(InvalidRequestException.class, () -> userService.searchUsers(criteria, 0, 101)).getMessage());
+        assertEquals("Search can page through at most users: 1000",
+                assertThrows(InvalidRequestException.class, () -> userService.searchUsers(criteria, 50, 20)).getMessage());
+        assertEquals("Name part must have at least 3 characters",
+                assertThrows(InvalidRequestException.class, () -> userService.searchUsers(shortPart, 0, 20)).getMessage());
+        assertEquals("Birthdate range must not end before it starts",
+                assertThrows(InvalidRequestException.class, () -> userService.searchUsers(reversedRange, 0, 20)).getMessage());
+
+        // verify
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testExportUsers_ndjson() throws IOException {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        when(userRepository.streamAllRows()).thenReturn(Stream.of(
+                getRow(1L, "Maruf", "maruf.cse.cou@gmail.com"),
+                getRow(2L, "Rahman \"R\"", "rahman.cse.cou@gmail.com")));
+
+        // then
+        assertEquals(2, userService.exportUsers(UserExportFormat.NDJSON, outputStream));
+        assertEquals("{\"id\":1,\"name\":\"Maruf\",\"email\":\"maruf.cse.cou@gmail.com\",\"birthDate\":\"1994-02-10\"}\n" +
+                        "{\"id\":2,\"name\":\"Rahman \\\"R\\\"\",\"email\":\"rahman.cse.cou@gmail.com\",\"birthDate\":\"1994-02-10\"}\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+
+        // verify
+        verify(userRepository).streamAllRows();
+    }
+
+    @Test
+    public void testStreamUserList_jsonArray() throws IOException {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        when(userRepository.streamRows(PageRequest.of(1, 2))).thenReturn(Stream.of(
+                getRow(3L, "Maruf", "maruf.cse.cou@gmail.com"),
+                getRow(4L, "Rahman", "rahman.cse.cou@gmail.com")));
+
+        // then
+        UserStream users = userService.streamUserList(1, 2);
+        verifyNoInteractions(userRepository);
+        assertEquals(2, users.writeTo(UserStreamFormat.JSON.writer(outputStream)));
+        assertEquals("[{\"id\":3,\"name\":\"Maruf\",\"email\":\"maruf.cse.cou@gmail.com\",\"birthDate\":\"1994-02-10\"," +
+                        "\"version\":0},{\"id\":4,\"name\":\"Rahman\",\"email\":\"rahman.cse.cou@gmail.com\"," +
+                        "\"birthDate\":\"1994-02-10\",\"version\":0}]",
+                outputStream.toString(StandardCharsets.UTF_8));
+
+        // verify
+        verify(userRepository).streamRows(PageRequest.of(1, 2));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void testStreamUserList_serverSentEvents() throws IOException {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        when(userRepository.streamRows(PageRequest.of(0, 20))).thenReturn(Stream.of(
+                getRow(1L, "Maruf", "maruf.cse.cou@gmail.com")));
+
+        // then
+        assertEquals(1, userService.streamUserList(0, 20).writeTo(UserStreamFormat.SSE.writer(outputStream)));
+        assertEquals("event: user\nid: 1\ndata: {\"id\":1,\"name\":\"Maruf\",\"email\":\"maruf.cse.cou@gmail.com\"," +
+                        "\"birthDate\":\"1994-02-10\",\"version\":0}\n\nevent: end\ndata:\n\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStreamUserList_invalidRequestException() {
+        // then
+        assertThrows(InvalidRequestException.class, () -> userService.streamUserList(0, 0));
+        assertThrows(InvalidRequestException.class, () -> userService.streamUserList(-1, 20));
+        assertThrows(InvalidRequestException.class, () -> userService.streamUserList(0,
+                userProperties.getStreaming().getMaxPageSize() + 1));
+
+        // verify
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testExportUsers_csvQuotesValues() throws IOException {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        when(userRepository.streamAllRows()).thenReturn(Stream.of(
+                getRow(1L, "Maruf", "maruf.cse.cou@gmail.com"),
+                getRow(2L, "Rahman, \"R\"", "rahman.cse.cou@gmail.com")));
+
+        // then
+        assertEquals(2, userService.exportUsers(UserExportFormat.CSV, outputStream));
+        assertEquals("id,name,email,birthDate\r\n" +
+                        "1,Maruf,maruf.cse.cou@gmail.com,1994-02-10\r\n" +
+                        "2,\"Rahman, \"\"R\"\"\",rahman.cse.cou@gmail.com,1994-02-10\r\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+
+        // verify
+        verify(userRepository).streamAllRows();
+    }
+
+    @Test
+    public void testImportUsers_csvReportsInvalidAndDuplicateRecords() throws IOException {
+        // given
+        userProperties.getImport().setChunkSize(2);
+        String csv = "email,name,dateOfBirth\r\n" +
+                "maruf.cse.cou@gmail.com,Maruf,1994-02-10\r\n" +
+                "rahman.cse.cou@gmail.com,\"Rahman, \"\"R\"\"\",1994-02-10\r\n" +
+                "invalid,Invalid,1994-02-10\r\n" +
+                "maruf.cse.cou@gmail.com,Maruf,10-02-1994\r\n" +
+                "karim.cse.cou@gmail.com,Karim,1994-02-10\r\n";
+
+        // when
+        when(userRepository.mergeUsers(any(), eq(false))).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            UserMergeResult result = new UserMergeResult();
+            users.stream().map(User::getEmail)
+                    .filter(email -> !email.equals("rahman.cse.cou@gmail.com"))
+                    .forEach(result.getInsertedEmails()::add);
+            return result;
+        });
+        UserImportResult result = userService.importUsers(UserImportFormat.CSV, false,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(2, result.getInvalid());
+        assertEquals(3, result.getRejected().size());
+        assertEquals(2, result.getRejected().get(0).getIndex());
+        assertEquals(UserBatchResult.Status.DUPLICATE, result.getRejected().get(0).getStatus());
+        assertEquals(3, result.getRejected().get(1).getIndex());
+        assertEquals(UserBatchResult.Status.INVALID, result.getRejected().get(1).getStatus());
+        assertEquals(4, result.getRejected().get(2).getIndex());
+        assertEquals("Birthdate must be formatted as yyyy-MM-dd: 10-02-1994", result.getRejected().get(2).getMessage());
+
+        // verify
+        verify(userRepository, times(2)).mergeUsers(any(), eq(false));
+        verify(userCache).invalidate("maruf.cse.cou@gmail.com");
+        verify(userCache).invalidate("karim.cse.cou@gmail.com");
+    }
+
+    @Test
+    public void testImportUsers_ndjsonReadsExportedRecords() throws IOException {
+        // given
+        String ndjson = "{\"id\":1,\"name\":\"Maruf\",\"email\":\"maruf.cse.cou@gmail.com\",\"birthDate\":\"1994-02-10\"}\n" +
+                "\n" +
+                "{\"name\":\"Rahman\",\"email\":\"rahman.cse.cou@gmail.com\",\"dateOfBirth\":\"1994-02-10\"}\n" +
+                "{\"name\":\n";
+        List<User> merged = new ArrayList<>();
+
+        // when
+        when(userRepository.mergeUsers(any(), eq(true))).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            merged.addAll(users);
+            UserMergeResult result = new UserMergeResult();
+            result.getUpdatedEmails().add(users.get(0).getEmail());
+            result.getUpdatedUsers().add(users.get(0));
+            result.getInsertedEmails().add(users.get(1).getEmail());
+            result.getInsertedUsers().add(users.get(1));
+            return result;
+        });
+        UserImportResult result = userService.importUsers(UserImportFormat.NDJSON, true,
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals(3, result.getReceived());
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getInvalid());
+        assertEquals(3, result.getRejected().get(0).getIndex());
+        assertEquals(2, merged.size());
+        assertEquals(LocalDate.of(1994, 2, 10), merged.get(0).getBirthDate());
+        assertNull(merged.get(0).getId());
+
+        // verify
+        verify(userRepository).mergeUsers(any(), eq(true));
+        verify(userAuditLog).modified(any(), isNull(), argThat(modified -> "Maruf".equals(modified.getName())));
+        verify(userAuditLog).created(any(), argThat(created -> "Rahman".equals(created.getName())));
+    }
+
+    @Test
+    public void testImportUsers_countsUnchangedUsersApartFromDuplicates() throws IOException {
+        // given
+        String csv = "email,name,dateOfBirth\r\n" +
+                "maruf.cse.cou@gmail.com,Maruf,1994-02-10\r\n" +
+                "maruf.cse.cou@gmail.com,Maruf,1994-02-10\r\n";
+
+        // when
+        when(userRepository.mergeUsers(any(), eq(true))).thenReturn(new UserMergeResult());
+        UserImportResult result = userService.importUsers(UserImportFormat.CSV, true,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getRejected().size());
+        assertEquals(2, result.getRejected().get(0).getIndex());
+
+        // verify
+        verify(userAuditLog, never()).modified(any(), any(), any());
+    }
+
+    @Test
+    public void testImportUsers_csvWithoutHeader() {
+        // given
+        String csv = "maruf.cse.cou@gmail.com,Maruf,1994-02-10\r\n";
+
+        // then
+        InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                () -> userService.importUsers(UserImportFormat.CSV, false,
+                        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+        assertEquals("CSV header must name the columns name, email and dateOfBirth", exception.getMessage());
+
+        // verify
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testGetChanges_returnsChangesAfterSince() throws Exception {
+        // given
+        UserChange change = getChange(8L);
+
+        // when
+        when(userChangeRepository.findEarliestPosition()).thenReturn(1L);
+        when(userChangeRepository.findByPositionGreaterThanOrderByPositionAsc(eq(7L), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(change));
+
+        // then
+        UserChangePage page = userService.getChanges(7, 10, Duration.ofSeconds(30)).get(1, TimeUnit.SECONDS);
+        assertEquals(List.of(change), page.getChanges());
+        assertEquals(8L, page.getNext());
+
+        // verify
+        verify(userChangeFeed, never()).awaitAfter(anyLong(), any());
+    }
+
+    @Test
+    public void testGetChanges_waitsForNextChange() throws Exception {
+        // given
+        UserChange change = getChange(8L);
+
+        // when
+        when(userChangeRepository.findByPositionGreaterThanOrderByPositionAsc(eq(7L), any()))
+                .thenReturn(List.of(), List.of(change));
+
+        // then
+        CompletableFuture<UserChangePage> page = userService.getChanges(7, 10, Duration.ofSeconds(30));
+        assertFalse(page.isDone());
+        userChangeFeed.advance(7);
+        assertFalse(page.isDone());
+        userChangeFeed.advance(8);
+        assertEquals(List.of(change), page.get(1, TimeUnit.SECONDS).getChanges());
+        assertEquals(8L, page.get().getNext());
+
+        // verify
+        verify(userChangeRepository, times(2)).findByPositionGreaterThanOrderByPositionAsc(eq(7L), any());
+        verify(taskExecutor).execute(any());
+    }
+
+    @Test
+    public void testGetChanges_emptyPageAfterWait() throws Exception {
+        // when
+        when(userChangeRepository.findByPositionGreaterThanOrderByPositionAsc(eq(7L), any())).thenReturn(List.of());
+
+        // then
+        UserChangePage page = userService.getChanges(7, 10, Duration.ofMillis(50)).get(1, TimeUnit.SECONDS);
+        assertTrue(page.getChanges().isEmpty());
+        assertEquals(7L, page.getNext());
+        assertEquals(0, userChangeFeed.waiting());
+    }
+
+    @Test
+    public void testGetChanges_invalidRequestException() {
+        // when
+        when(userChangeRepository.findEarliestPosition()).thenReturn(100L);
+
+        // then
+        assertThrows(InvalidRequestException.class, () -> userService.getChanges(0, 0, Duration.ZERO));
+        assertThrows(InvalidRequestException.class, () -> userService.getChanges(0, 10, Duration.ofMinutes(5)));
+        assertThrows(InvalidRequestException.class, () -> userService.getChanges(98, 10, Duration.ZERO));
+        assertDoesNotThrow(() -> userService.getChanges(99, 10, Duration.ZERO));
+    }
+
+    private UserChange getChange(Long position) {
+        UserChange change = new UserChange(1L, UserChange.Type.UPDATED, "maruf", "maruf.cse.cou@gmail.com",
+                LocalDate.of(1994, 2, 10), 2L);
+        change.setId(position);
+        change.setPosition(position);
+        return change;
+    }
+
+    private UserRow getRow(Long id, String name, String email) {
+        return new UserRow() {
+            public Long getId() {
+                return id;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public String getEmail() {
+                return email;
+            }
+
+            public LocalDate getBirthDate() {
+                return LocalDate.of(1994, 2, 10);
+            }
+
+            public Long getVersion() {
+                return 0L;
+            }
+        };
+    }
+
+    private UserWriteResult getWriteResult(User user, String previousEmail, boolean inserted) {
+        return new UserWriteResult() {
+            public Long getId() {
+                return user.getId();
+            }
+
+            public String getName() {
+                return user.getName();
+            }
+
+            public String getEmail() {
+                return user.getEmail();
+            }
+
+            public LocalDate getBirthDate() {
+                return user.getBirthDate();
+            }
+
+            public Long getVersion() {
+                return user.getVersion();
+            }
+
+            public String getPreviousName() {
+                return inserted ? null : "Previous";
+            }
+
+            public String getPreviousEmail() {
+                return previousEmail;
+            }
+
+            public LocalDate getPreviousBirthDate() {
+                return inserted ? null : user.getBirthDate();
+            }
+
+            public Long getPreviousVersion() {
+                return inserted ? null : 0L;
+            }
+
+            public Boolean getInserted() {
+                return inserted;
+            }
+        };
+    }
+
     private UserDto getUserDto() {
         return new UserDto("maruf", "maruf.cse.cou@gmail.com"
                 , LocalDate.of(1994, 2, 10));
@@ -0,0 +1,215 @@
+package com.scalegrid.assignment.user.throttle;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.scalegrid.assignment.config.UserProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests {@link ThrottleFilter} class functionalities
+ */
+public class ThrottleFilterTest {
+
+    @Test
+    public void testEndpointClass_classifiesUserEndpoints() {
+        // then
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/api/v1/users"));
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/api/v1/users/search"));
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/api/v1/users/changes"));
+        assertEquals(EndpointClass.LIST, EndpointClass.of("POST", "/api/v1/users/lookup"));
+        assertEquals(EndpointClass.USER, EndpointClass.of("GET", "/api/v1/users/maruf.cse.cou@gmail.com"));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("POST", "/api/v1/users"));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("POST", "/api/v1/users/batch"));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("PUT", "/api/v1/users/1"));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("DELETE", "/api/v1/users/1"));
+    }
+
+    @Test
+    public void testDoFilter_rateLimitsEachClientAndEndpointClass() throws Exception {
+        // given
+        UserProperties userProperties = new UserProperties();
+        userProperties.getThrottle().getWrite().setRate(1);
+        userProperties.getThrottle().getWrite().setBurst(2);
+        userProperties.getThrottle().setKnownApiKeys(Set.of("batch-job"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ThrottleFilter filter = filter(userProperties, new LoadShedder(userProperties, meterRegistry), meterRegistry);
+
+        // when
+        int first = status(filter, request("POST", "/api/v1/users", "10.0.0.1", null));
+        int second = status(filter, request("POST", "/api/v1/users", "10.0.0.1", null));
+        MockHttpServletResponse third = response(filter, request("POST", "/api/v1/users", "10.0.0.1", null));
+        int otherClient = status(filter, request("POST", "/api/v1/users", "10.0.0.2", null));
+        int knownKey = status(filter, request("POST", "/api/v1/users", "10.0.0.1", "batch-job"));
+        int unknownKey = status(filter, request("POST", "/api/v1/users", "10.0.0.1", "made-up"));
+        int read = status(filter, request("GET", "/api/v1/users", "10.0.0.1", null));
+
+        // then
+        assertEquals(200, first);
+        assertEquals(200, second);
+        assertEquals(429, third.getStatus());
+        assertEquals("1", third.getHeader("Retry-After"));
+        assertTrue(third.getContentAsString().contains("Rate limit of write requests exceeded"));
+        assertEquals(200, otherClient);
+        assertEquals(200, knownKey);
+        assertEquals(429, unknownKey);
+        assertEquals(200, read);
+
+        // verify
+        assertEquals(2, meterRegistry.get("users.api.throttle").tag("endpoint", "write")
+                .tag("decision", "rate_limited").counter().count());
+        assertEquals(4, meterRegistry.get("users.api.throttle").tag("endpoint", "write")
+                .tag("decision", "allowed").counter().count());
+    }
+
+    @Test
+    public void testDoFilter_shedsWhenOverloaded() throws Exception {
+        // given
+        UserProperties userProperties = new UserProperties();
+        LoadShedder loadShedder = mock(LoadShedder.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ThrottleFilter filter = filter(userProperties, loadShedder, meterRegistry);
+        FilterChain chain = mock(FilterChain.class);
+
+        // when
+        when(loadShedder.tryEnter()).thenReturn(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/v1/users/maruf.cse.cou@gmail.com", "10.0.0.1", null), response, chain);
+
+        // then
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("Service overloaded"));
+
+        // verify
+        verifyNoInteractions(chain);
+        verify(loadShedder, never()).exit();
+        assertEquals(1, meterRegistry.get("users.api.throttle").tag("endpoint", "user")
+                .tag("decision", "shed").counter().count());
+    }
+
+    @Test
+    public void testLoadShedder_limitsRequestsInFlight() throws Exception {
+        // given
+        UserProperties userProperties = new UserProperties();
+        userProperties.getThrottle().setMaxInFlight(2);
+        LoadShedder loadShedder = new LoadShedder(userProperties, new SimpleMeterRegistry());
+
+        // then
+        assertTrue(loadShedder.tryEnter());
+        assertTrue(loadShedder.tryEnter());
+        assertFalse(loadShedder.tryEnter());
+        loadShedder.exit();
+        assertTrue(loadShedder.tryEnter());
+    }
+
+    @Test
+    public void testLoadShedder_shedsShareFollowingPoolWait() {
+        // given
+        UserProperties userProperties = new UserProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Timer acquire = meterRegistry.timer("hikaricp.connections.acquire");
+        AtomicInteger pending = meterRegistry.gauge("hikaricp.connections.pending", new AtomicInteger());
+        LoadShedder loadShedder = new LoadShedder(userProperties, meterRegistry);
+
+        // when the connections acquired since the last sample waited 750 ms on average, half over the threshold
+        acquire.record(500, TimeUnit.MILLISECONDS);
+        acquire.record(1000, TimeUnit.MILLISECONDS);
+        loadShedder.sample();
+
+        // then a small share is shed
+        assertEquals(0.05, loadShedder.shedRatio(), 0.001);
+
+        // when nobody gets a connection while some wait
+        pending.set(5);
+        for (int i = 0; i < 20; i++) {
+            loadShedder.sample();
+        }
+
+        // then all requests are shed
+        assertEquals(1, loadShedder.shedRatio(), 0.001);
+        assertFalse(loadShedder.tryEnter());
+
+        // when waits are short again
+        pending.set(0);
+        acquire.record(10, TimeUnit.MILLISECONDS);
+        loadShedder.sample();
+
+        // then the share shrinks, down to nothing
+        assertTrue(loadShedder.shedRatio() < 1);
+        for (int i = 0; i < 10; i++) {
+            loadShedder.sample();
+        }
+        assertEquals(0, loadShedder.shedRatio(), 0.001);
+        assertTrue(loadShedder.tryEnter());
+    }
+
+    @Test
+    public void testTokenBucket_concurrentAcquiresNeverExceedBurst() throws Exception {
+        // given
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(0.001, 100, now);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 100; j++) {
+                    if (bucket.tryAcquire(now) == 0) acquired.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(100, acquired.get());
+        assertTrue(bucket.tryAcquire(now) > 0);
+    }
+
+    private static ThrottleFilter filter(UserProperties userProperties, LoadShedder loadShedder,
+                                         SimpleMeterRegistry meterRegistry) {
+        return new ThrottleFilter(userProperties, loadShedder, new ObjectMapper().registerModule(new JavaTimeModule()),
+                meterRegistry);
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String address, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        return request;
+    }
+
+    private static int status(ThrottleFilter filter, MockHttpServletRequest request) throws Exception {
+        return response(filter, request).getStatus();
+    }
+
+    private static MockHttpServletResponse response(ThrottleFilter filter, MockHttpServletRequest request)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}